@@ -0,0 +1,151 @@
+package client;
+
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+
+import javax.websocket.Extension;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Client side of the permessage-deflate WebSocket extension (RFC 7692).
+ * <p>
+ * Both directions keep their compression context between messages unless the server asks otherwise.
+ * Consecutive boards of the same game differ by a move, so with the previous board still in the
+ * window a LOAD_GAME compresses to little more than back-references.
+ */
+class PerMessageDeflate implements ExtendedExtension {
+    static final String NAME = "permessage-deflate";
+
+    private static final byte CONTINUATION = 0x0;
+    private static final byte[] TAIL = {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+    private static final String INFLATER = "inflater";
+    private static final String DEFLATER = "deflater";
+    private static final String INFLATING = "inflating";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+        return List.of();
+    }
+
+    @Override
+    public Frame processIncoming(ExtensionContext context, Frame frame) {
+        Map<String, Object> properties = context.getProperties();
+        boolean continuesCompressed = frame.getOpcode() == CONTINUATION && properties.containsKey(INFLATING);
+        if (frame.isControlFrame() || !(frame.isRsv1() || continuesCompressed)) {
+            return frame;
+        }
+
+        Inflater inflater = (Inflater) properties.computeIfAbsent(INFLATER, key -> new Inflater(true));
+        byte[] payload = inflate(inflater, frame.getPayloadData());
+        if (frame.isFin()) {
+            // The sender strips the empty block that ends each message; put it back to flush the inflater
+            payload = concat(payload, inflate(inflater, TAIL));
+            properties.remove(INFLATING);
+            if (properties.containsKey(SERVER_NO_CONTEXT_TAKEOVER)) {
+                inflater.reset();
+            }
+        } else {
+            properties.put(INFLATING, Boolean.TRUE);
+        }
+        return Frame.builder(frame).rsv1(false).payloadData(payload).payloadLength(payload.length).build();
+    }
+
+    @Override
+    public Frame processOutgoing(ExtensionContext context, Frame frame) {
+        if (frame.isControlFrame()) {
+            return frame;
+        }
+
+        Map<String, Object> properties = context.getProperties();
+        Deflater deflater = (Deflater) properties.computeIfAbsent(DEFLATER,
+                key -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        byte[] payload = deflate(deflater, frame.getPayloadData());
+        if (frame.isFin()) {
+            payload = Arrays.copyOf(payload, payload.length - TAIL.length);
+            if (properties.containsKey(CLIENT_NO_CONTEXT_TAKEOVER)) {
+                deflater.reset();
+            }
+        }
+        // Only the first frame of a message carries the compressed bit
+        return Frame.builder(frame).rsv1(frame.getOpcode() != CONTINUATION)
+                .payloadData(payload).payloadLength(payload.length).build();
+    }
+
+    @Override
+    public List<Parameter> onExtensionNegotiation(ExtensionContext context, List<Parameter> requestedParameters) {
+        // Only the server side negotiates
+        return null;
+    }
+
+    @Override
+    public void onHandshakeResponse(ExtensionContext context, List<Parameter> responseParameters) {
+        for (Parameter parameter : responseParameters) {
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(parameter.getName())
+                    || CLIENT_NO_CONTEXT_TAKEOVER.equals(parameter.getName())) {
+                context.getProperties().put(parameter.getName(), Boolean.TRUE);
+            }
+        }
+    }
+
+    @Override
+    public void destroy(ExtensionContext context) {
+        Object inflater = context.getProperties().remove(INFLATER);
+        if (inflater != null) {
+            ((Inflater) inflater).end();
+        }
+        Object deflater = context.getProperties().remove(DEFLATER);
+        if (deflater != null) {
+            ((Deflater) deflater).end();
+        }
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] input) {
+        inflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+        byte[] buffer = new byte[4096];
+        try {
+            int length;
+            while ((length = inflater.inflate(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Invalid compressed WebSocket message", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] input) {
+        deflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + TAIL.length);
+        byte[] buffer = new byte[4096];
+        int length;
+        // A sync flush ends on a byte boundary so the message can be decoded without waiting for the next one
+        do {
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, length);
+        } while (length == buffer.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        if (second.length == 0) {
+            return first;
+        }
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
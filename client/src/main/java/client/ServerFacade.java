@@ -13,14 +13,19 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.io.IOException;
+import java.util.List;
 
-@ClientEndpoint
 public class ServerFacade {
     private final String serverUrl;
     private final HttpClient client;
     private final Gson gson;
+    private static final int RESUME_ATTEMPTS = 3;
+
     private Session websocketSession;
     private ServerMessageObserver observer;
+    private String websocketUrl;
+    private volatile UserGameCommand activeConnect;
+    private volatile long lastSequence;
 
     public ServerFacade(String url) {
         serverUrl = url;
@@ -109,23 +114,13 @@ public class ServerFacade {
 
     public GameData getGame(int gameId, String authToken) throws Exception {
         var request = HttpRequest.newBuilder()
-                .uri(URI.create(serverUrl + "/game?id=" + gameId))
+                .uri(URI.create(serverUrl + "/game/" + gameId))
                 .GET()
                 .header("Authorization", authToken)
                 .build();
-
         var response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
         handleResponse(response);
-
-        // Parse the response as a ListGamesResult
-        ListGamesResult listResult = gson.fromJson(response.body(), ListGamesResult.class);
-
-        // Find the game with the matching ID
-        return listResult.games().stream()
-                .filter(game -> game.gameID() == gameId)
-                .findFirst()
-                .orElseThrow(() -> new Exception("Game not found"));
+        return gson.fromJson(response.body(), GetGameResult.class).game();
     }
 
     private void handleResponse(HttpResponse<String> response) throws Exception {
@@ -138,8 +133,30 @@ public class ServerFacade {
 
     public void connectToWebSocket(String url, ServerMessageObserver observer) throws Exception {
         this.observer = observer;
+        this.websocketUrl = url;
+        this.websocketSession = openWebSocket();
+    }
+
+    /**
+     * Opens the WebSocket, offering per-message compression; game boards are large and repetitive,
+     * so the server compresses them when it supports the extension.
+     */
+    private Session openWebSocket() throws Exception {
+        ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+                .extensions(List.of(new PerMessageDeflate()))
+                .build();
         WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-        this.websocketSession = container.connectToServer(this, new URI(url));
+        return container.connectToServer(new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig endpointConfig) {
+                session.addMessageHandler(String.class, ServerFacade.this::onMessage);
+            }
+
+            @Override
+            public void onClose(Session session, CloseReason closeReason) {
+                ServerFacade.this.onClose(session, closeReason);
+            }
+        }, config, new URI(websocketUrl));
     }
 
     public void sendCommand(UserGameCommand command) throws IOException, EncodeException {
@@ -149,14 +166,67 @@ public class ServerFacade {
                 //command.setMove(gson.toJson(command.getMove()));
             }
             websocketSession.getBasicRemote().sendObject(gson.toJson(command));
+            if (command.getCommandType() == UserGameCommand.CommandType.CONNECT) {
+                activeConnect = command;
+                lastSequence = 0;
+            } else if (command.getCommandType() == UserGameCommand.CommandType.LEAVE) {
+                activeConnect = null;
+            }
         } else {
             throw new IOException("WebSocket is not connected");
         }
     }
 
-    @OnMessage
+    public void requestFullGame(String authToken, int gameID) throws IOException, EncodeException {
+        sendCommand(new UserGameCommand(UserGameCommand.CommandType.SYNC, authToken, gameID));
+    }
+
+    /**
+     * Reconnects the WebSocket and asks the server for only the game messages sent since the last one received.
+     */
+    public void resume() throws Exception {
+        UserGameCommand connect = activeConnect;
+        if (connect == null) {
+            throw new IOException("No game to resume");
+        }
+        this.websocketSession = openWebSocket();
+
+        UserGameCommand resumeCommand = new UserGameCommand(UserGameCommand.CommandType.RESUME,
+                connect.getAuthToken(), connect.getGameID());
+        resumeCommand.setAcceptsMoveDeltas(connect.acceptsMoveDeltas());
+        resumeCommand.setLastSequence(lastSequence);
+        websocketSession.getBasicRemote().sendObject(gson.toJson(resumeCommand));
+    }
+
+    public void onClose(Session session, CloseReason reason) {
+        if (activeConnect == null || reason.getCloseCode() == CloseReason.CloseCodes.NORMAL_CLOSURE) {
+            return;
+        }
+        // Dropped mid-game: reconnect in the background so the socket thread is not held up
+        Thread.ofVirtual().start(() -> {
+            for (int attempt = 1; attempt <= RESUME_ATTEMPTS; attempt++) {
+                try {
+                    Thread.sleep(500L * attempt);
+                    resume();
+                    return;
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    // Try again after a longer pause
+                }
+            }
+        });
+    }
+
     public void onMessage(String message) {
         ServerMessage serverMessage = gson.fromJson(message, ServerMessage.class);
+        if (serverMessage.getSequence() != null) {
+            lastSequence = Math.max(lastSequence, serverMessage.getSequence());
+        }
+        if (serverMessage.getGame() != null) {
+            // The game field is untyped, so Gson leaves it as a map until we convert it
+            serverMessage.setGame(gson.fromJson(gson.toJsonTree(serverMessage.getGame()), GameData.class));
+        }
         if (observer != null) {
             observer.onServerMessage(serverMessage);
         }
@@ -38,6 +38,7 @@ public class GameplayUI implements ServerFacade.ServerMessageObserver {
 
             // Send CONNECT command
             UserGameCommand connectCommand = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameId);
+            connectCommand.setAcceptsMoveDeltas(true);
             server.sendCommand(connectCommand);
         } catch (Exception e) {
             System.out.println(EscapeSequences.SET_TEXT_COLOR_RED + "Failed to initialize game: "
@@ -231,6 +232,9 @@ public class GameplayUI implements ServerFacade.ServerMessageObserver {
             case LOAD_GAME:
                 handleLoadGame(message);
                 break;
+            case MOVE:
+                handleMove(message);
+                break;
             case ERROR:
                 handleError(message);
                 break;
@@ -248,6 +252,38 @@ public class GameplayUI implements ServerFacade.ServerMessageObserver {
         }
     }
 
+    private void handleMove(ServerMessage message) {
+        int expectedPly = game.getPly() + 1;
+        if (message.getPly() < expectedPly) {
+            return; // Already applied, e.g. a MOVE that raced with a full reload
+        }
+        if (message.getPly() > expectedPly) {
+            requestFullGame();
+            return;
+        }
+
+        try {
+            game.makeMove(message.getMove());
+        } catch (InvalidMoveException e) {
+            requestFullGame();
+            return;
+        }
+        if (game.positionHash() != message.getPositionHash()) {
+            requestFullGame();
+            return;
+        }
+        displayGame();
+    }
+
+    private void requestFullGame() {
+        try {
+            server.requestFullGame(authToken, gameId);
+        } catch (Exception e) {
+            System.out.println(EscapeSequences.SET_TEXT_COLOR_RED + "Failed to resync game: " + e.getMessage()
+                    + EscapeSequences.RESET_TEXT_COLOR);
+        }
+    }
+
     private void handleError(ServerMessage message) {
         System.out.println(EscapeSequences.SET_TEXT_COLOR_RED + "Error: " + message.getErrorMessage()
                 + EscapeSequences.RESET_TEXT_COLOR);
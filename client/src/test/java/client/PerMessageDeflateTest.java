@@ -0,0 +1,129 @@
+package client;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import model.GameData;
+import org.glassfish.tyrus.core.extension.ExtendedExtension.ExtensionContext;
+import org.glassfish.tyrus.core.frame.Frame;
+import org.junit.jupiter.api.*;
+import websocket.messages.ServerMessage;
+
+import javax.websocket.Extension;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerMessageDeflateTest {
+    private static final byte TEXT = 0x1;
+    private static final byte CONTINUATION = 0x0;
+
+    private final PerMessageDeflate extension = new PerMessageDeflate();
+    private final Map<String, Object> senderProperties = new HashMap<>();
+    private final Map<String, Object> receiverProperties = new HashMap<>();
+    private final ExtensionContext sender = () -> senderProperties;
+    private final ExtensionContext receiver = () -> receiverProperties;
+
+    @AfterEach
+    void tearDown() {
+        extension.destroy(sender);
+        extension.destroy(receiver);
+    }
+
+    @Test
+    void roundTripRestoresMessage() {
+        String board = loadGame(new ChessGame());
+
+        Frame compressed = extension.processOutgoing(sender, textFrame(board, true));
+        Frame restored = extension.processIncoming(receiver, compressed);
+
+        assertTrue(compressed.isRsv1());
+        assertFalse(restored.isRsv1());
+        assertEquals(board, new String(restored.getPayloadData(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void repeatedBoardsShrinkWithContextTakeover() {
+        String board = loadGame(new ChessGame());
+
+        Frame first = extension.processOutgoing(sender, textFrame(board, true));
+        Frame second = extension.processOutgoing(sender, textFrame(board, true));
+
+        assertTrue(first.getPayloadData().length < board.length() / 4,
+                "first board compressed to " + first.getPayloadData().length + " bytes");
+        assertTrue(second.getPayloadData().length < first.getPayloadData().length / 4,
+                "second board compressed to " + second.getPayloadData().length + " bytes");
+
+        // The second message refers back to the first, so the receiver decodes them in order
+        extension.processIncoming(receiver, first);
+        assertEquals(board, new String(extension.processIncoming(receiver, second).getPayloadData(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void noContextTakeoverResetsBetweenMessages() {
+        extension.onHandshakeResponse(sender, List.of(parameter("client_no_context_takeover")));
+        String board = loadGame(new ChessGame());
+
+        int first = extension.processOutgoing(sender, textFrame(board, true)).getPayloadData().length;
+        int second = extension.processOutgoing(sender, textFrame(board, true)).getPayloadData().length;
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void fragmentedMessageIsReassembled() {
+        String board = loadGame(new ChessGame());
+        int split = board.length() / 2;
+
+        Frame firstPart = extension.processOutgoing(sender, textFrame(board.substring(0, split), false));
+        Frame secondPart = extension.processOutgoing(sender,
+                frame(CONTINUATION, board.substring(split), true));
+
+        assertTrue(firstPart.isRsv1());
+        assertFalse(secondPart.isRsv1());
+        String restored = new String(extension.processIncoming(receiver, firstPart).getPayloadData(),
+                StandardCharsets.UTF_8)
+                + new String(extension.processIncoming(receiver, secondPart).getPayloadData(),
+                StandardCharsets.UTF_8);
+        assertEquals(board, restored);
+    }
+
+    @Test
+    void uncompressedFramesPassThrough() {
+        Frame plain = textFrame("hello", true);
+
+        assertSame(plain, extension.processIncoming(receiver, plain));
+    }
+
+    private static String loadGame(ChessGame game) {
+        ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+        message.setGame(new GameData(1, "white", "black", "game", game));
+        return new Gson().toJson(message);
+    }
+
+    private static Frame textFrame(String text, boolean fin) {
+        return frame(TEXT, text, fin);
+    }
+
+    private static Frame frame(byte opcode, String text, boolean fin) {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        return Frame.builder().opcode(opcode).fin(fin).payloadData(payload).payloadLength(payload.length).build();
+    }
+
+    private static Extension.Parameter parameter(String name) {
+        return new Extension.Parameter() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+        };
+    }
+}
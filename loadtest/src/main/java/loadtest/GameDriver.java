@@ -0,0 +1,270 @@
+package loadtest;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import model.GameData;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Plays games between two players, watched by spectators, one game after another until told to stop.
+ * <p>
+ * Each game is created and joined over HTTP, then everyone connects over WebSocket and the players take turns
+ * making a random legal move at the configured rate. A move's latency is measured from sending it until the
+ * mover receives the updated board. Spectators ask for move deltas, and the time from sending a move until a
+ * spectator receives it is recorded as {@code broadcast}. A game that runs past the ply limit is resigned.
+ */
+final class GameDriver implements Runnable {
+    private static final long FAILURE_BACKOFF_MILLIS = 1000;
+
+    private final LoadConfig config;
+    private final LatencyRecorder recorder;
+    private final BooleanSupplier running;
+    private final Random random;
+    private final Player white;
+    private final Player black;
+    private final List<Player> spectators = new ArrayList<>();
+    private final AtomicLong gamesStarted;
+    private final AtomicLong gamesFinished;
+    private final long moveIntervalNanos;
+    private volatile SentMove lastMove;
+
+    /**
+     * The move most recently sent, so spectators can tell how long it took to reach them.
+     */
+    private record SentMove(int gameID, int ply, long sentNanos) {}
+
+    GameDriver(LoadConfig config, LatencyRecorder recorder, BooleanSupplier running, String namePrefix,
+               AtomicLong gamesStarted, AtomicLong gamesFinished) {
+        this.config = config;
+        this.recorder = recorder;
+        this.running = running;
+        this.random = new Random(config.seed() ^ namePrefix.hashCode());
+        this.white = new Player(config.serverUrl(), namePrefix + "-white");
+        this.black = new Player(config.serverUrl(), namePrefix + "-black");
+        for (int i = 0; i < config.spectators(); i++) {
+            spectators.add(new Player(config.serverUrl(), namePrefix + "-spectator-" + i));
+        }
+        this.gamesStarted = gamesStarted;
+        this.gamesFinished = gamesFinished;
+        this.moveIntervalNanos = (long) (1e9 / config.movesPerSecond());
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (Player player : players()) {
+                timed("register", player::register);
+                boolean spectator = player != white && player != black;
+                timed("openWebSocket", () -> player.openWebSocket(config.websocketUrl(),
+                        spectator ? this::onSpectatorMessage : null));
+            }
+        } catch (Exception e) {
+            // Without its users this game cannot be played; the failed call has been counted
+            return;
+        }
+        while (running.getAsBoolean()) {
+            try {
+                playGame();
+            } catch (Exception e) {
+                // Counted where it failed; back off briefly rather than hammer a server that is failing
+                pause(FAILURE_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Picks one of the legal moves for the team to move, or null if it has none.
+     */
+    static ChessMove randomMove(ChessGame game, Random random) {
+        List<ChessMove> moves = new ArrayList<>();
+        for (Map.Entry<ChessPosition, ChessPiece> entry : game.getBoard().getAllPieces().entrySet()) {
+            if (entry.getValue().getTeamColor() == game.getTeamTurn()) {
+                moves.addAll(game.validMoves(entry.getKey()));
+            }
+        }
+        return moves.isEmpty() ? null : moves.get(random.nextInt(moves.size()));
+    }
+
+    private void playGame() throws Exception {
+        int gameID = timed("createGame", () ->
+                white.facade().createGame("load " + white.username() + " " + gamesStarted.get(), white.authToken())
+                        .gameID());
+        gamesStarted.incrementAndGet();
+        timed("joinGame", () -> white.facade().joinGame("WHITE", gameID, white.authToken()));
+        timed("joinGame", () -> black.facade().joinGame("BLACK", gameID, black.authToken()));
+
+        // Everyone leaves even if a connect fails, so no session stays subscribed to an abandoned game
+        try {
+            GameData game = connect(white, gameID);
+            connect(black, gameID);
+            for (Player spectator : spectators) {
+                UserGameCommand connect = new UserGameCommand(UserGameCommand.CommandType.CONNECT,
+                        spectator.authToken(), gameID);
+                connect.setAcceptsMoveDeltas(true);
+                spectator.facade().sendCommand(connect);
+            }
+
+            boolean finished = play(gameID, game);
+            if (finished) {
+                gamesFinished.incrementAndGet();
+            }
+        } finally {
+            for (Player player : players()) {
+                player.sendQuietly(new UserGameCommand(UserGameCommand.CommandType.LEAVE, player.authToken(),
+                        gameID));
+            }
+        }
+    }
+
+    /**
+     * @return whether the game ended, rather than being cut short by the end of the run or a failed command
+     */
+    private boolean play(int gameID, GameData game) throws Exception {
+        long nextMoveAt = System.nanoTime();
+        while (running.getAsBoolean()) {
+            if (game.isFinished()) {
+                return true;
+            }
+            ChessGame chess = game.game();
+            Player mover = chess.getTeamTurn() == ChessGame.TeamColor.WHITE ? white : black;
+            ChessMove move = chess.getPly() < config.maxPlies() ? randomMove(chess, random) : null;
+            if (move == null) {
+                return resign(mover, gameID);
+            }
+
+            long wait = nextMoveAt - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            }
+            nextMoveAt = Math.max(nextMoveAt + moveIntervalNanos, System.nanoTime() - moveIntervalNanos);
+
+            int ply = chess.getPly() + 1;
+            UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE,
+                    mover.authToken(), gameID);
+            command.setMove(move);
+            long start = System.nanoTime();
+            lastMove = new SentMove(gameID, ply, start);
+            ServerMessage answer = mover.send(command, message -> isBoardAtPly(message, ply),
+                    config.timeoutMillis());
+            GameData updated = boardOf(answer);
+            if (updated == null) {
+                recorder.error("makeMove", failure(answer));
+                return false;
+            }
+            recorder.record("makeMove", System.nanoTime() - start);
+            game = updated;
+        }
+        return false;
+    }
+
+    /**
+     * Ends a game that has no legal moves left or ran past the ply limit; a mated or stalemated game is already
+     * finished on the server, so the resignation is then expected to fail and is not timed.
+     */
+    private boolean resign(Player mover, int gameID) throws Exception {
+        long start = System.nanoTime();
+        ServerMessage answer = mover.send(new UserGameCommand(UserGameCommand.CommandType.RESIGN, mover.authToken(),
+                gameID), message -> message.getServerMessageType() == ServerMessage.ServerMessageType.NOTIFICATION
+                && message.getMessage() != null && message.getMessage().contains("resigned"), config.timeoutMillis());
+        if (answer != null && answer.getServerMessageType() == ServerMessage.ServerMessageType.NOTIFICATION) {
+            recorder.record("resign", System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    /**
+     * @throws IllegalStateException if the server did not send the board, so the caller backs off
+     */
+    private GameData connect(Player player, int gameID) throws Exception {
+        long start = System.nanoTime();
+        ServerMessage answer = player.send(new UserGameCommand(UserGameCommand.CommandType.CONNECT,
+                player.authToken(), gameID), message -> message.getServerMessageType()
+                == ServerMessage.ServerMessageType.LOAD_GAME, config.timeoutMillis());
+        GameData game = boardOf(answer);
+        if (game == null) {
+            recorder.error("connect", failure(answer));
+            throw new IllegalStateException(player.username() + " could not connect to game " + gameID);
+        }
+        recorder.record("connect", System.nanoTime() - start);
+        return game;
+    }
+
+    private void onSpectatorMessage(ServerMessage message) {
+        SentMove sent = lastMove;
+        if (sent != null && message.getServerMessageType() == ServerMessage.ServerMessageType.MOVE
+                && message.getPly() != null && message.getPly() == sent.ply()) {
+            recorder.record("broadcast", System.nanoTime() - sent.sentNanos());
+        }
+    }
+
+    private String failure(ServerMessage answer) {
+        return answer == null ? "No answer within " + config.timeoutMillis() + " ms" : answer.getErrorMessage();
+    }
+
+    private static boolean isBoardAtPly(ServerMessage message, int ply) {
+        GameData game = boardOf(message);
+        return game != null && game.game().getPly() == ply;
+    }
+
+    private static GameData boardOf(ServerMessage message) {
+        if (message == null || message.getServerMessageType() != ServerMessage.ServerMessageType.LOAD_GAME) {
+            return null;
+        }
+        return (GameData) message.getGame();
+    }
+
+    private List<Player> players() {
+        List<Player> players = new ArrayList<>(spectators.size() + 2);
+        players.add(white);
+        players.add(black);
+        players.addAll(spectators);
+        return players;
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T call() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    private <T> T timed(String command, Call<T> call) throws Exception {
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            recorder.record(command, System.nanoTime() - start);
+            return result;
+        } catch (Exception e) {
+            recorder.error(command, e.getMessage());
+            throw e;
+        }
+    }
+
+    private void timed(String command, Action action) throws Exception {
+        timed(command, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
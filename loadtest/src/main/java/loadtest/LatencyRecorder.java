@@ -0,0 +1,88 @@
+package loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Collects the latency of every command sent, by command, and summarizes them once the run is over.
+ * <p>
+ * Every sample is kept rather than bucketed so the tail percentiles are exact; at eight bytes a sample, even
+ * millions of commands fit comfortably in memory.
+ */
+public class LatencyRecorder {
+    private final Map<String, Samples> commands = new ConcurrentSkipListMap<>();
+
+    /**
+     * Throughput, error count and latency percentiles in milliseconds for one command.
+     *
+     * @param firstError why the first failed command failed, or null if none did
+     */
+    public record CommandSummary(long count, long errors, double perSecond, double meanMillis, double p50Millis,
+                                 double p99Millis, double p999Millis, double maxMillis, String firstError) {}
+
+    public void record(String command, long nanos) {
+        samples(command).add(nanos);
+    }
+
+    /**
+     * Counts a command that failed or was not answered in time; it contributes no latency sample.
+     */
+    public void error(String command, String reason) {
+        samples(command).error(reason);
+    }
+
+    /**
+     * @param seconds how long the run lasted, for the throughput
+     */
+    public Map<String, CommandSummary> summarize(double seconds) {
+        Map<String, CommandSummary> summaries = new LinkedHashMap<>();
+        commands.forEach((command, samples) -> summaries.put(command, samples.summarize(seconds)));
+        return summaries;
+    }
+
+    /**
+     * @return the sample at the given quantile by the nearest-rank method, or 0 if there are none
+     */
+    static long valueAtQuantile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+    }
+
+    private Samples samples(String command) {
+        return commands.computeIfAbsent(command, key -> new Samples());
+    }
+
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private long errors;
+        private String firstError;
+
+        private synchronized void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        private synchronized void error(String reason) {
+            if (errors++ == 0) {
+                firstError = reason;
+            }
+        }
+
+        private synchronized CommandSummary summarize(double seconds) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            double mean = size == 0 ? 0 : Arrays.stream(sorted).average().orElse(0);
+            return new CommandSummary(size, errors, seconds <= 0 ? 0 : size / seconds, mean / 1e6,
+                    valueAtQuantile(sorted, 0.5) / 1e6, valueAtQuantile(sorted, 0.99) / 1e6,
+                    valueAtQuantile(sorted, 0.999) / 1e6, size == 0 ? 0 : sorted[size - 1] / 1e6, firstError);
+        }
+    }
+}
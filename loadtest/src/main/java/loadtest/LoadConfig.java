@@ -0,0 +1,48 @@
+package loadtest;
+
+/**
+ * How hard and for how long to load the server.
+ *
+ * @param serverUrl       the server's HTTP address; the WebSocket address is derived from it
+ * @param games           games played at the same time
+ * @param spectators      spectators watching each game
+ * @param movesPerSecond  moves made in each game per second
+ * @param durationSeconds how long to keep playing once the first game starts
+ * @param rampUpSeconds   how long to spread the start of the games over
+ * @param maxPlies        half-moves after which a game is resigned and a new one started
+ * @param timeoutMillis   how long to wait for the server to answer a command before counting it as failed
+ * @param output          the file the results are written to as JSON
+ * @param seed            seeds the random choice of moves
+ */
+public record LoadConfig(String serverUrl, int games, int spectators, double movesPerSecond, long durationSeconds,
+                         long rampUpSeconds, int maxPlies, long timeoutMillis, String output, long seed) {
+
+    public LoadConfig {
+        if (games < 1 || spectators < 0 || movesPerSecond <= 0 || durationSeconds < 1 || rampUpSeconds < 0
+                || maxPlies < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Load settings must be positive");
+        }
+    }
+
+    /**
+     * Reads each setting from a {@code chess.load.*} system property named after it, such as
+     * {@code chess.load.games}, falling back to a small load against a local server.
+     */
+    public static LoadConfig fromSystemProperties() {
+        return new LoadConfig(
+                System.getProperty("chess.load.serverUrl", "http://localhost:8080"),
+                Integer.getInteger("chess.load.games", 100),
+                Integer.getInteger("chess.load.spectators", 1),
+                Double.parseDouble(System.getProperty("chess.load.movesPerSecond", "1")),
+                Long.getLong("chess.load.durationSeconds", 60),
+                Long.getLong("chess.load.rampUpSeconds", 10),
+                Integer.getInteger("chess.load.maxPlies", 200),
+                Long.getLong("chess.load.timeoutMillis", 10_000),
+                System.getProperty("chess.load.output", "load-results.json"),
+                Long.getLong("chess.load.seed", System.nanoTime()));
+    }
+
+    public String websocketUrl() {
+        return serverUrl.replaceFirst("^http", "ws") + "/ws";
+    }
+}
@@ -0,0 +1,55 @@
+package loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The outcome of a load run, written as JSON so runs can be compared by a script.
+ *
+ * @param startedAt     when the run started, as an ISO-8601 instant
+ * @param elapsedSeconds how long games were played for
+ * @param gamesStarted  games created over the run
+ * @param gamesFinished games that ended in checkmate, stalemate or a resignation
+ * @param commands      latency and throughput by command
+ */
+public record LoadReport(LoadConfig config, String startedAt, double elapsedSeconds, long gamesStarted,
+                         long gamesFinished, Map<String, LatencyRecorder.CommandSummary> commands) {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+    public static LoadReport fromJson(String json) {
+        return GSON.fromJson(json, LoadReport.class);
+    }
+
+    public void write(Path file) throws IOException {
+        Files.writeString(file, toJson());
+    }
+
+    /**
+     * @return one line per command with its throughput and latency percentiles, for reading at a terminal
+     */
+    public String toTable() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%d games started, %d finished in %.1f s%n", gamesStarted, gamesFinished,
+                elapsedSeconds));
+        out.append(String.format("%-13s %9s %7s %9s %9s %9s %9s %9s%n", "command", "count", "errors", "per sec",
+                "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        commands.forEach((command, summary) -> {
+            out.append(String.format("%-13s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", command, summary.count(),
+                    summary.errors(), summary.perSecond(), summary.p50Millis(), summary.p99Millis(),
+                    summary.p999Millis(), summary.maxMillis()));
+            if (summary.firstError() != null) {
+                out.append("              first error: ").append(summary.firstError()).append('\n');
+            }
+        });
+        return out.toString();
+    }
+}
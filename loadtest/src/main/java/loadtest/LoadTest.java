@@ -0,0 +1,75 @@
+package loadtest;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how much play a running server can take: starts many games at once, each played by two simulated
+ * players making random legal moves and watched by simulated spectators, then reports throughput and latency
+ * percentiles for every command and writes them to a JSON file for comparing runs.
+ * <p>
+ * Settings come from {@code chess.load.*} system properties; see {@link LoadConfig#fromSystemProperties}. The
+ * first argument, if given, is the server's URL. Every simulated user has its own connection, so a run with
+ * many games needs a generous file descriptor limit on both ends.
+ */
+public class LoadTest {
+    private final LoadConfig config;
+
+    public LoadTest(LoadConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        if (args.length > 0) {
+            config = new LoadConfig(args[0], config.games(), config.spectators(), config.movesPerSecond(),
+                    config.durationSeconds(), config.rampUpSeconds(), config.maxPlies(), config.timeoutMillis(),
+                    config.output(), config.seed());
+        }
+        System.out.printf("Playing %d games with %d spectators each at %.2f moves per second against %s%n",
+                config.games(), config.spectators(), config.movesPerSecond(), config.serverUrl());
+
+        LoadReport report = new LoadTest(config).run();
+        System.out.print(report.toTable());
+        report.write(Path.of(config.output()));
+        System.out.println("Results written to " + config.output());
+        // The WebSocket client keeps non-daemon threads alive after its sessions are done
+        System.exit(0);
+    }
+
+    /**
+     * Starts the games spread over the ramp-up period, lets them play until the duration has passed, then waits
+     * for the commands in flight to be answered.
+     */
+    public LoadReport run() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        AtomicLong gamesStarted = new AtomicLong();
+        AtomicLong gamesFinished = new AtomicLong();
+        String runID = Long.toString(System.currentTimeMillis(), 36);
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        long rampStepNanos = TimeUnit.SECONDS.toNanos(config.rampUpSeconds()) / config.games();
+
+        List<Thread> drivers = new ArrayList<>(config.games());
+        for (int i = 0; i < config.games() && System.nanoTime() < end; i++) {
+            GameDriver driver = new GameDriver(config, recorder, () -> System.nanoTime() < end,
+                    "load-" + runID + "-" + i, gamesStarted, gamesFinished);
+            drivers.add(Thread.ofVirtual().name("game-driver-" + i).start(driver));
+            TimeUnit.NANOSECONDS.sleep(rampStepNanos);
+        }
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, end - System.nanoTime()));
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long joinDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.timeoutMillis());
+        for (Thread driver : drivers) {
+            driver.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(joinDeadline - System.nanoTime())));
+        }
+        return new LoadReport(config, startedAt.toString(), elapsedSeconds, gamesStarted.get(), gamesFinished.get(),
+                recorder.summarize(elapsedSeconds));
+    }
+}
@@ -0,0 +1,77 @@
+package loadtest;
+
+import client.ServerFacade;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * A simulated user with its own {@link ServerFacade}, and so its own HTTP client and WebSocket connection.
+ * Messages the server sends it are queued until the game driver waits for the answer to a command.
+ */
+final class Player {
+    private final String username;
+    private final ServerFacade facade;
+    private final BlockingQueue<ServerMessage> inbox = new LinkedBlockingQueue<>();
+    private String authToken;
+
+    Player(String serverUrl, String username) {
+        this.username = username;
+        this.facade = new ServerFacade(serverUrl);
+    }
+
+    String username() {
+        return username;
+    }
+
+    String authToken() {
+        return authToken;
+    }
+
+    ServerFacade facade() {
+        return facade;
+    }
+
+    void register() throws Exception {
+        authToken = facade.register(username, "load-test", username + "@example.com").authToken();
+    }
+
+    /**
+     * Opens the WebSocket; every message the server sends is queued, or handed to the observer if one is given.
+     */
+    void openWebSocket(String websocketUrl, ServerFacade.ServerMessageObserver observer) throws Exception {
+        facade.connectToWebSocket(websocketUrl, observer != null ? observer : inbox::add);
+    }
+
+    /**
+     * Sends a command and waits for the first message matching {@code answer}, discarding anything queued
+     * before the command was sent.
+     *
+     * @return the answer, or null if none arrived in time
+     */
+    ServerMessage send(UserGameCommand command, Predicate<ServerMessage> answer, long timeoutMillis)
+            throws Exception {
+        inbox.clear();
+        facade.sendCommand(command);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            ServerMessage message = inbox.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (message == null || answer.test(message)
+                    || message.getServerMessageType() == ServerMessage.ServerMessageType.ERROR) {
+                return message;
+            }
+        }
+    }
+
+    void sendQuietly(UserGameCommand command) {
+        try {
+            facade.sendCommand(command);
+        } catch (Exception e) {
+            // Only used when leaving a game, where nothing depends on it arriving
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package loadtest;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameDriverTest {
+    @Test
+    void randomMovesAreLegal() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Random random = new Random(42);
+        for (int ply = 0; ply < 40; ply++) {
+            ChessMove move = GameDriver.randomMove(game, random);
+            if (move == null) {
+                break;
+            }
+            game.makeMove(move);
+        }
+        assertTrue(game.getPly() > 0);
+    }
+
+    @Test
+    void openingMovesAllReachable() {
+        ChessGame game = new ChessGame();
+        Random random = new Random(1);
+        Set<ChessMove> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            seen.add(GameDriver.randomMove(game, random));
+        }
+        assertEquals(20, seen.size());
+    }
+
+    @Test
+    void noMoveWhenCheckmated() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+
+        assertNull(GameDriver.randomMove(game, new Random()));
+    }
+}
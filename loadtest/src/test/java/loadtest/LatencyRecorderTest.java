@@ -0,0 +1,57 @@
+package loadtest;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyRecorderTest {
+    @Test
+    void percentilesByNearestRank() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int millis = 1000; millis >= 1; millis--) {
+            recorder.record("makeMove", millis * 1_000_000L);
+        }
+        recorder.error("makeMove", "Error: not your turn");
+
+        LatencyRecorder.CommandSummary summary = recorder.summarize(10).get("makeMove");
+
+        assertEquals(1000, summary.count());
+        assertEquals(1, summary.errors());
+        assertEquals(100, summary.perSecond());
+        assertEquals(500, summary.p50Millis());
+        assertEquals(990, summary.p99Millis());
+        assertEquals(999, summary.p999Millis());
+        assertEquals(1000, summary.maxMillis());
+        assertEquals(500.5, summary.meanMillis(), 1e-9);
+        assertEquals("Error: not your turn", summary.firstError());
+    }
+
+    @Test
+    void commandWithOnlyErrorsHasNoLatency() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.error("connect", "No answer within 10 ms");
+
+        LatencyRecorder.CommandSummary summary = recorder.summarize(1).get("connect");
+
+        assertEquals(0, summary.count());
+        assertEquals(1, summary.errors());
+        assertEquals(0, summary.p999Millis());
+        assertEquals("No answer within 10 ms", summary.firstError());
+    }
+
+    @Test
+    void reportSurvivesJsonRoundTrip() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record("createGame", 2_000_000);
+        LoadConfig config = new LoadConfig("http://localhost:8080", 2, 1, 1, 5, 0, 200, 1000, "out.json", 7);
+        LoadReport report = new LoadReport(config, "2026-01-01T00:00:00Z", 5, 2, 1, recorder.summarize(5));
+
+        LoadReport parsed = LoadReport.fromJson(report.toJson());
+
+        assertEquals(report, parsed);
+        assertEquals(Map.of("createGame", recorder.summarize(5).get("createGame")), parsed.commands());
+        assertTrue(report.toTable().contains("createGame"));
+    }
+}
@@ -0,0 +1,42 @@
+package loadtest;
+
+import dataaccess.DataAccess;
+import org.junit.jupiter.api.*;
+import server.Server;
+import server.VirtualThreadPool;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestTest {
+    private static Server server;
+    private static String serverUrl;
+
+    @BeforeAll
+    static void startServer() {
+        server = new Server(DataAccess.inMemory(), new VirtualThreadPool());
+        serverUrl = "http://localhost:" + server.run(0);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void shortRunPlaysMovesAndReportsEveryCommand() throws InterruptedException {
+        LoadConfig config = new LoadConfig(serverUrl, 2, 1, 20, 3, 0, 30, 5000, "unused.json", 1);
+
+        LoadReport report = new LoadTest(config).run();
+
+        Map<String, LatencyRecorder.CommandSummary> commands = report.commands();
+        assertTrue(report.gamesStarted() >= 2);
+        assertEquals(6, commands.get("register").count());
+        assertEquals(2 * report.gamesStarted(), commands.get("joinGame").count());
+        assertTrue(commands.get("makeMove").count() > 10, report.toTable());
+        assertEquals(0, commands.get("makeMove").errors(), report.toTable());
+        assertTrue(commands.get("broadcast").count() > 0, report.toTable());
+        assertTrue(commands.get("makeMove").p99Millis() >= commands.get("makeMove").p50Millis());
+    }
+}
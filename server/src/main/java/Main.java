@@ -1,8 +1,15 @@
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import server.Server;
+import server.VirtualThreadPool;
 
 public class Main {
     public static void main(String[] args) {
-        Server server = new Server();
+        // -Dchess.threads=platform falls back to a fixed pool sized like Spark's default;
+        // -Dchess.storage=memory or =file runs without MySQL;
+        // -Dchess.journal=<file> makes moves durable in a write-ahead journal before the store is updated
+        Server server = "platform".equals(System.getProperty("chess.threads"))
+                ? new Server(new QueuedThreadPool(200, 8, 60_000))
+                : new Server(new VirtualThreadPool());
         server.run(8080);
     }
-}
\ No newline at end of file
+}
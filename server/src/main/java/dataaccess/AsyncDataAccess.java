@@ -0,0 +1,87 @@
+package dataaccess;
+
+import tracing.Tracer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Helpers behind the asynchronous DAO variants: running blocking data access calls on an I/O executor
+ * and turning their results back into checked exceptions once awaited. Calls run in the caller's trace.
+ */
+public final class AsyncDataAccess {
+    public static final int DEFAULT_IO_THREADS = 16;
+
+    private static Executor defaultExecutor;
+
+    private AsyncDataAccess() {
+    }
+
+    /**
+     * A data access call that produces a value.
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws DataAccessException;
+    }
+
+    /**
+     * A data access call that produces nothing.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws DataAccessException;
+    }
+
+    /**
+     * The executor shared by callers that are not given one. It uses platform threads because the
+     * JDBC driver blocks inside synchronized code, which would pin virtual threads; the pool size can be
+     * overridden with the {@code chess.dao.threads} system property.
+     */
+    public static synchronized Executor defaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newFixedThreadPool(Integer.getInteger("chess.dao.threads", DEFAULT_IO_THREADS),
+                    Thread.ofPlatform().name("dao-io-", 0).daemon(true).factory());
+        }
+        return defaultExecutor;
+    }
+
+    public static <T> CompletableFuture<T> supply(Call<T> call, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (DataAccessException e) {
+                throw new CompletionException(e);
+            }
+        }, Tracer.propagating(executor));
+    }
+
+    public static CompletableFuture<Void> run(Action action, Executor executor) {
+        return supply(() -> {
+            action.run();
+            return null;
+        }, executor);
+    }
+
+    /**
+     * Waits for an asynchronous call, rethrowing a {@link DataAccessException} it failed with.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws DataAccessException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataAccessException dataAccessException) {
+                throw dataAccessException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            throw new DataAccessException("Error: data access cancelled");
+        }
+    }
+}
@@ -2,11 +2,27 @@ package dataaccess;
 
 import model.AuthData;
 
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Interface for managing authentication data in the chess application.
  * This interface defines methods for creating, retrieving, and deleting authentication tokens.
  */
 public interface AuthDAO {
+    /**
+     * How long a token stays valid after it was issued or last refreshed, unless overridden with the
+     * {@code chess.auth.ttlMinutes} system property. Signed tokens are never refreshed; see {@link #getAuth}.
+     */
+    long DEFAULT_TOKEN_TTL_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    static long tokenTtlFromSystemProperties() {
+        return TimeUnit.MINUTES.toMillis(Long.getLong("chess.auth.ttlMinutes",
+                TimeUnit.MILLISECONDS.toMinutes(DEFAULT_TOKEN_TTL_MILLIS)));
+    }
+
     /**
      * Clears all stored authentication data.
      * This method is typically used for testing or resetting the system.
@@ -23,7 +39,23 @@ public interface AuthDAO {
     void createAuth(String authToken, String username) throws DataAccessException;
 
     /**
-     * Retrieves the authentication data associated with a given token.
+     * Creates a new authentication token for a user, choosing the token itself.
+     *
+     * @param username The username the token is issued to
+     * @return the new token
+     * @throws DataAccessException if there's an error while accessing the data store
+     */
+    default String issueToken(String username) throws DataAccessException {
+        String authToken = UUID.randomUUID().toString();
+        createAuth(authToken, username);
+        return authToken;
+    }
+
+    /**
+     * Retrieves the authentication data associated with a given token. A stored token that is used after half
+     * its lifetime has passed is given a full lifetime again, so active users stay logged in. Tokens that carry
+     * their own expiry, such as those of {@link SignedTokenAuthDAO}, cannot be extended this way and expire a
+     * fixed lifetime after they were issued, however often they are used.
      *
      * @param authToken The authentication token to look up
      * @return AuthData object if found, or null if not found
@@ -38,4 +70,44 @@ public interface AuthDAO {
      * @throws DataAccessException if there's an error while accessing the data store
      */
     void deleteAuth(String authToken) throws DataAccessException;
-}
\ No newline at end of file
+
+    /**
+     * Deletes up to {@code limit} expired tokens. Expired tokens are already rejected by {@link #getAuth};
+     * this only reclaims their space.
+     *
+     * @return the number of tokens deleted; fewer than {@code limit} means none are left
+     * @throws DataAccessException if there's an error while accessing the data store
+     */
+    default int purgeExpired(int limit) throws DataAccessException {
+        return 0;
+    }
+
+    /**
+     * @return the number of tokens stored, expired or not, or -1 if the store does not keep tokens
+     * @throws DataAccessException if there's an error while accessing the data store
+     */
+    default long countTokens() throws DataAccessException {
+        return -1;
+    }
+
+    /**
+     * Asynchronous variant of {@link #createAuth}, run on the given I/O executor.
+     */
+    default CompletableFuture<Void> createAuthAsync(String authToken, String username, Executor executor) {
+        return AsyncDataAccess.run(() -> createAuth(authToken, username), executor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getAuth}, run on the given I/O executor.
+     */
+    default CompletableFuture<AuthData> getAuthAsync(String authToken, Executor executor) {
+        return AsyncDataAccess.supply(() -> getAuth(authToken), executor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #deleteAuth}, run on the given I/O executor.
+     */
+    default CompletableFuture<Void> deleteAuthAsync(String authToken, Executor executor) {
+        return AsyncDataAccess.run(() -> deleteAuth(authToken), executor);
+    }
+}
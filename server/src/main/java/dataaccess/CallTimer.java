@@ -0,0 +1,38 @@
+package dataaccess;
+
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import tracing.Trace;
+import tracing.Tracer;
+
+/**
+ * Records a data access call both in the {@code dao_call_duration_seconds} histogram and as a span of the
+ * current trace.
+ */
+final class CallTimer {
+    private final Histogram histogram;
+    private final String spanName;
+
+    CallTimer(MetricsRegistry metrics, String dao, String method) {
+        this.histogram = metrics.histogram("dao_call_duration_seconds", "Time spent in data access calls",
+                "dao", dao, "method", method);
+        this.spanName = "dao." + dao + "." + method;
+    }
+
+    void recordSince(long startNanos) {
+        long end = System.nanoTime();
+        histogram.record(end - startNanos);
+        Tracer.record(spanName, startNanos, end);
+    }
+
+    /**
+     * For calls that complete on another thread, recorded in the trace that was current when they started.
+     */
+    void recordSince(long startNanos, Trace trace) {
+        long end = System.nanoTime();
+        histogram.record(end - startNanos);
+        if (trace != null) {
+            trace.record(spanName, startNanos, end);
+        }
+    }
+}
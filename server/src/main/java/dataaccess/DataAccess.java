@@ -0,0 +1,108 @@
+package dataaccess;
+
+import metrics.MetricsRegistry;
+
+import java.nio.file.Path;
+
+/**
+ * The set of DAOs the server runs against, chosen by configuration.
+ *
+ * @param storage where the data lives
+ */
+public record DataAccess(Storage storage, UserDAO userDAO, AuthDAO authDAO, GameDAO gameDAO) {
+    public enum Storage {
+        MYSQL,
+        MEMORY,
+        FILE
+    }
+
+    public static DataAccess mySql() {
+        return new DataAccess(Storage.MYSQL, new MySqlUserDAO(), new MySqlAuthDAO(), new MySqlGameDAO());
+    }
+
+    /**
+     * DAOs that keep everything in memory; data is lost when the server stops.
+     */
+    public static DataAccess inMemory() {
+        MemoryUserDAO users = new MemoryUserDAO();
+        return new DataAccess(Storage.MEMORY, users, new MemoryAuthDAO(users), new MemoryGameDAO(users));
+    }
+
+    /**
+     * Games in segment files under the given directory; users and auth tokens are kept in memory.
+     */
+    public static DataAccess fileBacked(Path directory) throws DataAccessException {
+        MemoryUserDAO users = new MemoryUserDAO();
+        return new DataAccess(Storage.FILE, users, new MemoryAuthDAO(users), new SegmentGameDAO(directory));
+    }
+
+    /**
+     * Chooses the storage named by the {@code chess.storage} system property: {@code memory}, {@code file}
+     * (in the directory named by {@code chess.storage.dir}, default {@code data}), or MySQL otherwise.
+     * With {@code chess.auth.tokens=signed}, auth tokens are signed and checked without the store; see
+     * {@link TokenSigner#fromSystemProperties} for the keys. Signed tokens do not get the sliding refresh of
+     * {@link AuthDAO#getAuth}: users are logged out {@code chess.auth.ttlMinutes} after logging in, even while
+     * active.
+     */
+    public static DataAccess fromSystemProperties() {
+        DataAccess dataAccess = fromStorageProperty();
+        if ("signed".equalsIgnoreCase(System.getProperty("chess.auth.tokens"))) {
+            return dataAccess.withSignedTokens(TokenSigner.fromSystemProperties());
+        }
+        return dataAccess;
+    }
+
+    private static DataAccess fromStorageProperty() {
+        String storage = System.getProperty("chess.storage", "mysql");
+        if ("memory".equalsIgnoreCase(storage)) {
+            return inMemory();
+        }
+        if ("file".equalsIgnoreCase(storage)) {
+            try {
+                return fileBacked(Path.of(System.getProperty("chess.storage.dir", "data")));
+            } catch (DataAccessException e) {
+                throw new IllegalStateException("Unable to open game store. " + e.getMessage());
+            }
+        }
+        return mySql();
+    }
+
+    /**
+     * The same DAOs, but issuing signed tokens that are verified without a lookup in the auth DAO.
+     */
+    public DataAccess withSignedTokens(TokenSigner signer) {
+        return new DataAccess(storage, userDAO, new SignedTokenAuthDAO(authDAO, signer), gameDAO);
+    }
+
+    /**
+     * Prepares the storage for use, creating the database and tables if needed. When the schema is already
+     * current this costs one connection and one query.
+     */
+    public void initialize() throws DataAccessException {
+        if (storage == Storage.MYSQL && !DatabaseManager.schemaIsCurrent()) {
+            DatabaseManager.createDatabase();
+            DatabaseManager.createTables();
+        }
+    }
+
+    /**
+     * The same DAOs, with every call timed into the given registry.
+     */
+    public DataAccess instrumented(MetricsRegistry metrics) {
+        return new DataAccess(storage, new InstrumentedUserDAO(userDAO, metrics),
+                new InstrumentedAuthDAO(authDAO, metrics), new InstrumentedGameDAO(gameDAO, metrics));
+    }
+
+    /**
+     * Flushes pending writes and releases any files held open by the DAOs.
+     */
+    public void close() {
+        if (gameDAO instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                System.err.println("Failed to close game store: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -26,7 +26,8 @@ public class DatabaseManager {
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                // Lets the driver send a batch of game updates as one round trip
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -37,12 +38,10 @@ public class DatabaseManager {
      * Creates the database if it does not already exist.
      */
     public static void createDatabase() throws DataAccessException {
-        try {
-            var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                preparedStatement.executeUpdate();
-            }
+        var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
+        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
@@ -70,88 +69,36 @@ public class DatabaseManager {
         }
     }
 
-    public static void createTables() throws DataAccessException {
+    /**
+     * Checks the recorded schema version with a single query, so a restart against an up-to-date database
+     * runs no DDL at all.
+     *
+     * @return false if the database or its schema is missing or behind, or could not be reached
+     */
+    public static boolean schemaIsCurrent() {
         try (Connection conn = getConnection()) {
-            // Create users table
-            String usersSql = """
-            CREATE TABLE IF NOT EXISTS users (
-                username VARCHAR(255) PRIMARY KEY,
-                password VARCHAR(255) NOT NULL,
-                email VARCHAR(255) NOT NULL
-            )
-            """;
-            try (PreparedStatement stmt = conn.prepareStatement(usersSql)) {
-                stmt.executeUpdate();
-            }
-
-            // Create auth_tokens table
-            String authTokensSql = """
-            CREATE TABLE IF NOT EXISTS auth_tokens (
-                auth_token VARCHAR(255) PRIMARY KEY,
-                username VARCHAR(255) NOT NULL
-            )
-            """;
-            try (PreparedStatement stmt = conn.prepareStatement(authTokensSql)) {
-                stmt.executeUpdate();
-            }
-
-            // Check if the foreign key constraint already exists
-            if (!constraintExists(conn, "auth_tokens", "auth_tokens_ibfk_1")) {
-                // Add foreign key constraint to auth_tokens
-                String alterAuthTokensSql = """
-                ALTER TABLE auth_tokens
-                ADD CONSTRAINT auth_tokens_ibfk_1
-                FOREIGN KEY (username) REFERENCES users(username)
-                ON DELETE CASCADE
-                """;
-                try (PreparedStatement stmt = conn.prepareStatement(alterAuthTokensSql)) {
-                    stmt.executeUpdate();
-                }
-            }
-
-            // Create games table
-            String gamesSql = """
-            CREATE TABLE IF NOT EXISTS games (
-                game_id INT PRIMARY KEY AUTO_INCREMENT,
-                white_username VARCHAR(255),
-                black_username VARCHAR(255),
-                game_name VARCHAR(255) NOT NULL,
-                game_state TEXT,
-                FOREIGN KEY (white_username) REFERENCES users(username),
-                FOREIGN KEY (black_username) REFERENCES users(username)
-            )
-            """;
-            try (PreparedStatement stmt = conn.prepareStatement(gamesSql)) {
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            throw new DataAccessException("Error creating tables: " + e.getMessage());
+            return SchemaMigrator.currentVersion(conn) >= new SchemaMigrator(Migrations.ALL).latestVersion();
+        } catch (DataAccessException | SQLException e) {
+            return false;
         }
     }
 
-    private static boolean constraintExists(Connection conn, String tableName, String constraintName) throws SQLException {
-        String checkConstraintSql = """
-            SELECT COUNT(*)
-            FROM information_schema.table_constraints
-            WHERE table_schema = DATABASE()
-              AND table_name = ?
-              AND constraint_name = ?
-        """;
-        try (PreparedStatement stmt = conn.prepareStatement(checkConstraintSql)) {
-            stmt.setString(1, tableName);
-            stmt.setString(2, constraintName);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
-                }
-            }
+    /**
+     * Brings the schema up to date by applying the migrations it has not seen yet, in order.
+     *
+     * @return the number of migrations applied
+     */
+    public static int createTables() throws DataAccessException {
+        try (Connection conn = getConnection()) {
+            return new SchemaMigrator(Migrations.ALL).migrate(conn);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error creating tables: " + e.getMessage());
         }
-        return false;
     }
 
     public static void clearDatabase() throws DataAccessException {
         try (Connection conn = getConnection()) {
-            String[] tables = {"auth_tokens", "games", "users"};
+            String[] tables = {"auth_tokens", "games", "games_archive", "users"};
             for (String table : tables) {
                 try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table)) {
                     stmt.executeUpdate();
@@ -2,6 +2,8 @@ package dataaccess;
 
 import model.GameData;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Interface for managing game data in the chess application.
@@ -23,7 +25,7 @@ public interface GameDAO {
     void createGame(GameData game) throws DataAccessException;
 
     /**
-     * Retrieves a game by its ID.
+     * Retrieves a game by its ID unless it has been archived; see {@link #getArchivedGame} for those.
      *
      * @param gameID The ID of the game to retrieve
      * @return GameData object if found, or null if not found
@@ -32,7 +34,7 @@ public interface GameDAO {
     GameData getGame(int gameID) throws DataAccessException;
 
     /**
-     * Retrieves a list of all games in the data store.
+     * Retrieves the games that are open or being played. Finished games are left out.
      *
      * @return List of GameData objects
      * @throws DataAccessException if there's an error while accessing the data store
@@ -41,9 +43,62 @@ public interface GameDAO {
 
     /**
      * Updates an existing game in the data store.
+     * The update only applies if the stored version still matches {@code game.version()},
+     * in which case the stored version is incremented.
      *
-     * @param game The updated game data
+     * @param game The updated game data, carrying the version it was read at
+     * @throws VersionConflictException if the game was modified since it was read
      * @throws DataAccessException if there's an error while accessing the data store
      */
     void updateGame(GameData game) throws DataAccessException;
-}
\ No newline at end of file
+
+    /**
+     * Moves finished games out of the games in play into the archive, so lookups and listings of live games
+     * do not have to pass over them. Stores without an archive keep finished games where they are.
+     *
+     * @return the number of games archived
+     * @throws DataAccessException if there's an error while accessing the data store
+     */
+    default int archiveFinishedGames() throws DataAccessException {
+        return 0;
+    }
+
+    /**
+     * Retrieves an archived game by its ID.
+     *
+     * @return GameData object if found in the archive, or null if not found
+     * @throws DataAccessException if there's an error while accessing the data store
+     */
+    default GameData getArchivedGame(int gameID) throws DataAccessException {
+        return null;
+    }
+
+    /**
+     * Asynchronous variant of {@link #createGame}, run on the given I/O executor.
+     */
+    default CompletableFuture<Void> createGameAsync(GameData game, Executor executor) {
+        return AsyncDataAccess.run(() -> createGame(game), executor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getGame}, run on the given I/O executor.
+     */
+    default CompletableFuture<GameData> getGameAsync(int gameID, Executor executor) {
+        return AsyncDataAccess.supply(() -> getGame(gameID), executor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #listGames}, run on the given I/O executor.
+     */
+    default CompletableFuture<List<GameData>> listGamesAsync(Executor executor) {
+        return AsyncDataAccess.supply(this::listGames, executor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #updateGame}, run on the given I/O executor.
+     * The future fails with a {@link VersionConflictException} if the game was modified since it was read.
+     */
+    default CompletableFuture<Void> updateGameAsync(GameData game, Executor executor) {
+        return AsyncDataAccess.run(() -> updateGame(game), executor);
+    }
+}
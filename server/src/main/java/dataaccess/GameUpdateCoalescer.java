@@ -0,0 +1,363 @@
+package dataaccess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects game updates for a short window and hands them to a {@link BatchWriter} together, so many moves
+ * share one connection, one batched statement and one commit.
+ * <p>
+ * A later update to a game that is still waiting supersedes the earlier one: only the newest state is written,
+ * checked against the version the first update was based on, and every caller is told the outcome of that one
+ * write. An update whose version does not follow the pending one is rejected straight away.
+ * <p>
+ * A pending update may still fail or conflict, so readers that must only see committed state call
+ * {@link #awaitWritten} first rather than reading the {@link #pending} state.
+ */
+public class GameUpdateCoalescer implements AutoCloseable {
+    public static final long DEFAULT_WINDOW_MILLIS = 1;
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private final BatchWriter writer;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition submitted = lock.newCondition();
+    private final Map<Integer, Pending> pending = new LinkedHashMap<>();
+    private final Map<Integer, Pending> inFlight = new LinkedHashMap<>();
+    private final Thread flusher;
+    private boolean closed;
+
+    private final AtomicLong submittedUpdates = new AtomicLong();
+    private final AtomicLong supersededUpdates = new AtomicLong();
+    private final AtomicLong writtenUpdates = new AtomicLong();
+    private final AtomicLong batchedUpdates = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    /**
+     * Writes a batch of updates to the store.
+     */
+    @FunctionalInterface
+    interface BatchWriter {
+        /**
+         * @return the outcome of each update, in the order given
+         */
+        List<Outcome> write(List<Update> batch) throws DataAccessException;
+    }
+
+    enum Outcome {
+        WRITTEN,
+        VERSION_CONFLICT,
+        MISSING
+    }
+
+    /**
+     * The newest state of a game, to be written if the stored game is still at {@code expectedVersion}.
+     */
+    record Update(int gameID, String whiteUsername, String blackUsername, String gameName, String gameState,
+                  String status, String result, int expectedVersion, int newVersion) {}
+
+    /**
+     * @param windowMillis how long updates are collected after the first one arrives before they are flushed
+     * @param maxBatch     the most games written by one flush; a full batch is flushed without waiting
+     */
+    GameUpdateCoalescer(BatchWriter writer, long windowMillis, int maxBatch) {
+        if (windowMillis < 0 || maxBatch < 1) {
+            throw new IllegalArgumentException("Window must not be negative and batch size must be positive");
+        }
+        this.writer = writer;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatch = maxBatch;
+        this.flusher = Thread.ofPlatform().name("game-update-flusher").daemon(true).start(this::runFlusher);
+    }
+
+    /**
+     * Queues an update and waits until the batch holding it has been written.
+     *
+     * @param version the version of the game the update was based on
+     * @throws VersionConflictException if the stored game or a pending update moved past {@code version}
+     */
+    void submit(int gameID, String whiteUsername, String blackUsername, String gameName, String gameState,
+                String status, String result, int version) throws DataAccessException {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new DataAccessException("Error: game updates are no longer accepted");
+            }
+            submittedUpdates.incrementAndGet();
+            Pending current = pending.get(gameID);
+            if (current == null) {
+                pending.put(gameID, new Pending(gameID, version,
+                        new State(whiteUsername, blackUsername, gameName, gameState, status, result), written));
+                submitted.signal();
+            } else if (version == current.latestVersion + 1) {
+                current.supersede(new State(whiteUsername, blackUsername, gameName, gameState, status, result),
+                        written);
+                supersededUpdates.incrementAndGet();
+            } else {
+                throw new VersionConflictException(gameID, version);
+            }
+        } finally {
+            lock.unlock();
+        }
+        AsyncDataAccess.await(written);
+    }
+
+    /**
+     * @return the newest state of the game waiting to be written, or null if it has none
+     */
+    Update pending(int gameID) {
+        lock.lock();
+        try {
+            Pending current = pending.get(gameID);
+            if (current == null) {
+                current = inFlight.get(gameID);
+            }
+            return current == null ? null : current.toUpdate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the game has no update pending or in flight that was submitted before this call, whether it
+     * ends up written or rejected.
+     */
+    void awaitWritten(int gameID) {
+        List<CompletableFuture<Void>> outstanding = new ArrayList<>();
+        lock.lock();
+        try {
+            Pending waiting = pending.get(gameID);
+            if (waiting != null) {
+                outstanding.addAll(waiting.waiters);
+                submitted.signal();
+            }
+            Pending writing = inFlight.get(gameID);
+            if (writing != null) {
+                outstanding.addAll(writing.waiters);
+            }
+        } finally {
+            lock.unlock();
+        }
+        CompletableFuture.allOf(outstanding.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+    }
+
+    /**
+     * Waits for every update submitted so far to be written or rejected.
+     */
+    void drain() {
+        List<CompletableFuture<Void>> outstanding = new ArrayList<>();
+        lock.lock();
+        try {
+            pending.values().forEach(update -> outstanding.addAll(update.waiters));
+            inFlight.values().forEach(update -> outstanding.addAll(update.waiters));
+            submitted.signal();
+        } finally {
+            lock.unlock();
+        }
+        CompletableFuture.allOf(outstanding.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+    }
+
+    public long getSubmittedUpdates() {
+        return submittedUpdates.get();
+    }
+
+    /**
+     * @return the updates that were replaced by a newer update to the same game before being written
+     */
+    public long getSupersededUpdates() {
+        return supersededUpdates.get();
+    }
+
+    public long getWrittenUpdates() {
+        return writtenUpdates.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public double getAverageBatchSize() {
+        long count = flushes.get();
+        return count == 0 ? 0 : (double) batchedUpdates.get() / count;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    public double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1e6;
+    }
+
+    /**
+     * Flushes whatever is pending, then stops accepting updates.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            submitted.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runFlusher() {
+        try {
+            while (true) {
+                List<Pending> batch = nextBatch();
+                if (batch == null) {
+                    return;
+                }
+                flush(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the first update, lets the window fill, then moves up to a batch of updates in flight.
+     *
+     * @return the batch, or null once closed with nothing left to write
+     */
+    private List<Pending> nextBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                submitted.await();
+            }
+            long remaining = windowNanos;
+            while (remaining > 0 && pending.size() < maxBatch && !closed) {
+                remaining = submitted.awaitNanos(remaining);
+            }
+
+            List<Pending> batch = new ArrayList<>(Math.min(pending.size(), maxBatch));
+            var iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < maxBatch) {
+                Pending next = iterator.next();
+                iterator.remove();
+                inFlight.put(next.gameID, next);
+                batch.add(next);
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<Update> updates = batch.stream().map(Pending::toUpdate).toList();
+        long start = System.nanoTime();
+        List<Outcome> outcomes = null;
+        DataAccessException failure = null;
+        try {
+            outcomes = writer.write(updates);
+        } catch (DataAccessException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new DataAccessException("Error updating games: " + e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        flushes.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        batchedUpdates.addAndGet(batch.size());
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+
+        lock.lock();
+        try {
+            batch.forEach(update -> inFlight.remove(update.gameID, update));
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Pending update = batch.get(i);
+            Outcome outcome = failure == null ? outcomes.get(i) : null;
+            if (outcome == Outcome.WRITTEN) {
+                writtenUpdates.incrementAndGet();
+                update.complete(null);
+                continue;
+            }
+            if (outcome == Outcome.VERSION_CONFLICT) {
+                update.complete(new VersionConflictException(update.gameID, update.baseVersion));
+            } else if (outcome == Outcome.MISSING) {
+                update.complete(new DataAccessException("Updating game failed, no rows affected."));
+            } else {
+                update.complete(failure);
+            }
+        }
+    }
+
+    private record State(String whiteUsername, String blackUsername, String gameName, String gameState,
+                         String status, String result) {}
+
+    /**
+     * The updates to one game waiting in the same batch, folded into the newest state.
+     */
+    private static final class Pending {
+        private final int gameID;
+        private final int baseVersion;
+        private final List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        private State state;
+        private int latestVersion;
+
+        private Pending(int gameID, int version, State state, CompletableFuture<Void> waiter) {
+            this.gameID = gameID;
+            this.baseVersion = version;
+            this.latestVersion = version;
+            this.state = state;
+            waiters.add(waiter);
+        }
+
+        private void supersede(State newState, CompletableFuture<Void> waiter) {
+            latestVersion++;
+            state = newState;
+            waiters.add(waiter);
+        }
+
+        private Update toUpdate() {
+            return new Update(gameID, state.whiteUsername(), state.blackUsername(), state.gameName(),
+                    state.gameState(), state.status(), state.result(), baseVersion, latestVersion + 1);
+        }
+
+        private void complete(DataAccessException failure) {
+            for (CompletableFuture<Void> waiter : waiters) {
+                if (failure == null) {
+                    waiter.complete(null);
+                } else {
+                    waiter.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dataaccess;
+
+import metrics.MetricsRegistry;
+import model.AuthData;
+import tracing.Trace;
+import tracing.Tracer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Times every call into an {@link AuthDAO} in the {@code dao_call_duration_seconds} histogram and as a span of
+ * the current trace.
+ */
+public class InstrumentedAuthDAO implements AuthDAO {
+    private final AuthDAO delegate;
+    private final CallTimer clear;
+    private final CallTimer createAuth;
+    private final CallTimer issueToken;
+    private final CallTimer getAuth;
+    private final CallTimer deleteAuth;
+    private final CallTimer purgeExpired;
+    private final CallTimer countTokens;
+
+    public InstrumentedAuthDAO(AuthDAO delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.clear = new CallTimer(metrics, "auth", "clear");
+        this.createAuth = new CallTimer(metrics, "auth", "createAuth");
+        this.issueToken = new CallTimer(metrics, "auth", "issueToken");
+        this.getAuth = new CallTimer(metrics, "auth", "getAuth");
+        this.deleteAuth = new CallTimer(metrics, "auth", "deleteAuth");
+        this.purgeExpired = new CallTimer(metrics, "auth", "purgeExpired");
+        this.countTokens = new CallTimer(metrics, "auth", "countTokens");
+    }
+
+    public AuthDAO getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.clear();
+        } finally {
+            clear.recordSince(start);
+        }
+    }
+
+    @Override
+    public void createAuth(String authToken, String username) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.createAuth(authToken, username);
+        } finally {
+            createAuth.recordSince(start);
+        }
+    }
+
+    @Override
+    public String issueToken(String username) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.issueToken(username);
+        } finally {
+            issueToken.recordSince(start);
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAuth(authToken);
+        } finally {
+            getAuth.recordSince(start);
+        }
+    }
+
+    /**
+     * Passed to the delegate, which may answer without the executor; timed until the lookup completes.
+     */
+    @Override
+    public CompletableFuture<AuthData> getAuthAsync(String authToken, Executor executor) {
+        long start = System.nanoTime();
+        Trace trace = Tracer.current();
+        return delegate.getAuthAsync(authToken, executor)
+                .whenComplete((auth, error) -> getAuth.recordSince(start, trace));
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteAuth(authToken);
+        } finally {
+            deleteAuth.recordSince(start);
+        }
+    }
+
+    @Override
+    public int purgeExpired(int limit) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.purgeExpired(limit);
+        } finally {
+            purgeExpired.recordSince(start);
+        }
+    }
+
+    @Override
+    public long countTokens() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.countTokens();
+        } finally {
+            countTokens.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dataaccess;
+
+import metrics.MetricsRegistry;
+import model.GameData;
+
+import java.util.List;
+
+/**
+ * Times every call into a {@link GameDAO}, failed calls included, in the {@code dao_call_duration_seconds}
+ * histogram and as a span of the current trace. The asynchronous variants run these same methods, so they are
+ * timed too.
+ */
+public class InstrumentedGameDAO implements GameDAO, AutoCloseable {
+    private final GameDAO delegate;
+    private final CallTimer clear;
+    private final CallTimer createGame;
+    private final CallTimer getGame;
+    private final CallTimer listGames;
+    private final CallTimer updateGame;
+    private final CallTimer archiveFinishedGames;
+    private final CallTimer getArchivedGame;
+
+    public InstrumentedGameDAO(GameDAO delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.clear = new CallTimer(metrics, "game", "clear");
+        this.createGame = new CallTimer(metrics, "game", "createGame");
+        this.getGame = new CallTimer(metrics, "game", "getGame");
+        this.listGames = new CallTimer(metrics, "game", "listGames");
+        this.updateGame = new CallTimer(metrics, "game", "updateGame");
+        this.archiveFinishedGames = new CallTimer(metrics, "game", "archiveFinishedGames");
+        this.getArchivedGame = new CallTimer(metrics, "game", "getArchivedGame");
+    }
+
+    public GameDAO getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.clear();
+        } finally {
+            clear.recordSince(start);
+        }
+    }
+
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.createGame(game);
+        } finally {
+            createGame.recordSince(start);
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getGame(gameID);
+        } finally {
+            getGame.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.listGames();
+        } finally {
+            listGames.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.updateGame(game);
+        } finally {
+            updateGame.recordSince(start);
+        }
+    }
+
+    @Override
+    public int archiveFinishedGames() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.archiveFinishedGames();
+        } finally {
+            archiveFinishedGames.recordSince(start);
+        }
+    }
+
+    @Override
+    public GameData getArchivedGame(int gameID) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getArchivedGame(gameID);
+        } finally {
+            getArchivedGame.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
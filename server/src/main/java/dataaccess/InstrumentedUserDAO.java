@@ -0,0 +1,52 @@
+package dataaccess;
+
+import metrics.MetricsRegistry;
+import model.UserData;
+
+/**
+ * Times every call into a {@link UserDAO} in the {@code dao_call_duration_seconds} histogram and as a span of
+ * the current trace.
+ */
+public class InstrumentedUserDAO implements UserDAO {
+    private final UserDAO delegate;
+    private final CallTimer clear;
+    private final CallTimer createUser;
+    private final CallTimer getUser;
+
+    public InstrumentedUserDAO(UserDAO delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.clear = new CallTimer(metrics, "user", "clear");
+        this.createUser = new CallTimer(metrics, "user", "createUser");
+        this.getUser = new CallTimer(metrics, "user", "getUser");
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.clear();
+        } finally {
+            clear.recordSince(start);
+        }
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            delegate.createUser(user);
+        } finally {
+            createUser.recordSince(start);
+        }
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getUser(username);
+        } finally {
+            getUser.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps auth tokens in memory, for running without a database.
+ * Like the auth_tokens table, a token can only be created for an existing user, and it expires once it has
+ * gone unused for its lifetime.
+ */
+public class MemoryAuthDAO implements AuthDAO {
+    private final Map<String, StoredToken> tokens = new ConcurrentHashMap<>();
+    private final MemoryUserDAO users;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    public MemoryAuthDAO(MemoryUserDAO users) {
+        this(users, AuthDAO.tokenTtlFromSystemProperties(), System::currentTimeMillis);
+    }
+
+    public MemoryAuthDAO(MemoryUserDAO users, long ttlMillis, LongSupplier clock) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Token lifetime must be positive");
+        }
+        this.users = users;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public void clear() {
+        tokens.clear();
+    }
+
+    @Override
+    public void createAuth(String authToken, String username) throws DataAccessException {
+        if (authToken == null || !users.exists(username)) {
+            throw new DataAccessException("Error creating auth token: unknown user " + username);
+        }
+        StoredToken token = new StoredToken(username, clock.getAsLong() + ttlMillis);
+        if (tokens.putIfAbsent(authToken, token) != null) {
+            throw new DataAccessException("Error creating auth token: duplicate token");
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) {
+        if (authToken == null) {
+            return null;
+        }
+        StoredToken token = tokens.get(authToken);
+        long now = clock.getAsLong();
+        if (token == null || token.expiresAtMillis() <= now) {
+            return null;
+        }
+        if (token.expiresAtMillis() - now < ttlMillis / 2) {
+            // A concurrent logout wins; the refresh only replaces the token it read
+            tokens.replace(authToken, token, new StoredToken(token.username(), now + ttlMillis));
+        }
+        return new AuthData(authToken, token.username());
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (authToken == null || tokens.remove(authToken) == null) {
+            throw new DataAccessException("Deleting auth token failed, no rows affected.");
+        }
+    }
+
+    @Override
+    public int purgeExpired(int limit) {
+        long now = clock.getAsLong();
+        int purged = 0;
+        Iterator<Map.Entry<String, StoredToken>> iterator = tokens.entrySet().iterator();
+        while (iterator.hasNext() && purged < limit) {
+            Map.Entry<String, StoredToken> entry = iterator.next();
+            // Conditional, so a token refreshed since it was read is kept
+            if (entry.getValue().expiresAtMillis() <= now && tokens.remove(entry.getKey(), entry.getValue())) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    @Override
+    public long countTokens() {
+        return tokens.size();
+    }
+
+    private record StoredToken(String username, long expiresAtMillis) {}
+}
@@ -0,0 +1,154 @@
+package dataaccess;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import model.GameData;
+import model.GameResult;
+import model.GameStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterOutputStream;
+
+/**
+ * Keeps games in memory, for running without a database.
+ * <p>
+ * Game state is stored serialized, as in the games table, so callers that modify the game they read
+ * cannot change the stored copy behind the version check. IDs come from an atomic counter and are not
+ * reused after {@link #clear()}. Archived games are kept deflated, since they are rarely read again.
+ */
+public class MemoryGameDAO implements GameDAO {
+    private final Gson gson = new Gson();
+    private final Map<Integer, StoredGame> games = new ConcurrentHashMap<>();
+    private final Map<Integer, byte[]> archive = new ConcurrentHashMap<>();
+    private final AtomicInteger nextID = new AtomicInteger();
+    private final MemoryUserDAO users;
+
+    public MemoryGameDAO(MemoryUserDAO users) {
+        this.users = users;
+    }
+
+    @Override
+    public void clear() {
+        games.clear();
+        archive.clear();
+    }
+
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        checkGame(game, "Error creating game");
+        int gameID = nextID.incrementAndGet();
+        games.put(gameID, StoredGame.of(game, gson, 0));
+    }
+
+    @Override
+    public GameData getGame(int gameID) {
+        StoredGame stored = games.get(gameID);
+        return stored == null ? null : stored.toGameData(gameID, gson);
+    }
+
+    @Override
+    public List<GameData> listGames() {
+        List<GameData> result = new ArrayList<>(games.size());
+        games.forEach((gameID, stored) -> {
+            if (stored.status() != GameStatus.FINISHED) {
+                result.add(stored.toGameData(gameID, gson));
+            }
+        });
+        result.sort(Comparator.comparingInt(GameData::gameID));
+        return result;
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        checkGame(game, "Error updating game");
+        StoredGame updated = StoredGame.of(game, gson, game.version() + 1);
+        while (true) {
+            StoredGame current = games.get(game.gameID());
+            if (current == null) {
+                throw new DataAccessException("Updating game failed, no rows affected.");
+            }
+            if (current.version() != game.version()) {
+                throw new VersionConflictException(game.gameID(), game.version());
+            }
+            if (games.replace(game.gameID(), current, updated)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int archiveFinishedGames() {
+        int archived = 0;
+        for (Map.Entry<Integer, StoredGame> entry : games.entrySet()) {
+            StoredGame stored = entry.getValue();
+            // Finished games are never updated again, so the entry cannot change between the copy and the removal
+            if (stored.status() == GameStatus.FINISHED) {
+                archive.put(entry.getKey(), deflate(gson.toJson(stored)));
+                games.remove(entry.getKey(), stored);
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    @Override
+    public GameData getArchivedGame(int gameID) {
+        byte[] archived = archive.get(gameID);
+        return archived == null ? null : gson.fromJson(inflate(archived), StoredGame.class).toGameData(gameID, gson);
+    }
+
+    private static byte[] deflate(String json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String inflate(byte[] deflated) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InflaterOutputStream out = new InflaterOutputStream(bytes)) {
+            out.write(deflated);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private void checkGame(GameData game, String error) throws DataAccessException {
+        if (game.gameName() == null) {
+            throw new DataAccessException(error + ": game name is required");
+        }
+        // Players must be registered users, as the games table's foreign keys require
+        for (String username : new String[]{game.whiteUsername(), game.blackUsername()}) {
+            if (username != null && !users.exists(username)) {
+                throw new DataAccessException(error + ": unknown user " + username);
+            }
+        }
+    }
+
+    private record StoredGame(String whiteUsername, String blackUsername, String gameName, String state,
+                              int version, GameStatus status, GameResult result) {
+        static StoredGame of(GameData game, Gson gson, int version) {
+            return new StoredGame(game.whiteUsername(), game.blackUsername(), game.gameName(),
+                    gson.toJson(game.game()), version, game.status(), game.result());
+        }
+
+        GameData toGameData(int gameID, Gson gson) {
+            return new GameData(gameID, whiteUsername, blackUsername, gameName,
+                    gson.fromJson(state, ChessGame.class), version, status, result);
+        }
+    }
+}
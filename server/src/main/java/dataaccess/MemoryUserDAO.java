@@ -0,0 +1,37 @@
+package dataaccess;
+
+import model.UserData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps users in memory, for running without a database.
+ */
+public class MemoryUserDAO implements UserDAO {
+    private final Map<String, UserData> users = new ConcurrentHashMap<>();
+
+    @Override
+    public void clear() {
+        users.clear();
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        if (user.username() == null || user.password() == null || user.email() == null) {
+            throw new DataAccessException("Error creating user: missing field");
+        }
+        if (users.putIfAbsent(user.username(), user) != null) {
+            throw new DataAccessException("Error creating user: duplicate username " + user.username());
+        }
+    }
+
+    @Override
+    public UserData getUser(String username) {
+        return username == null ? null : users.get(username);
+    }
+
+    boolean exists(String username) {
+        return username != null && users.containsKey(username);
+    }
+}
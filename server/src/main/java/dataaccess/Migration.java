@@ -0,0 +1,17 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One numbered change to the database schema, applied once by {@link SchemaMigrator}.
+ *
+ * @param version     the schema version the database is at once this migration has been applied
+ * @param description what the migration changes, recorded in the {@code schema_version} table
+ */
+public record Migration(int version, String description, Step step) {
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+}
@@ -0,0 +1,197 @@
+package dataaccess;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import com.google.gson.Gson;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The schema changes, in the order they apply. Add a migration to the end of {@link #ALL} rather than editing
+ * one that has shipped, since databases that already recorded it will never run it again.
+ * <p>
+ * The first two migrations also adopt databases created before schema versions were tracked, so they check for
+ * what they create instead of assuming an empty database.
+ */
+final class Migrations {
+    static final List<Migration> ALL = List.of(
+            new Migration(1, "Create users, auth tokens and games", Migrations::createBaseTables),
+            new Migration(2, "Add game status and the games archive", Migrations::addGameLifecycle),
+            new Migration(3, "Index games by player and status", Migrations::addPlayerIndexes),
+            new Migration(4, "Expire auth tokens", Migrations::addTokenExpiry)
+    );
+
+    private Migrations() {
+    }
+
+    private static void createBaseTables(Connection conn) throws SQLException {
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS users (
+                username VARCHAR(255) PRIMARY KEY,
+                password VARCHAR(255) NOT NULL,
+                email VARCHAR(255) NOT NULL
+            )
+            """);
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS auth_tokens (
+                auth_token VARCHAR(255) PRIMARY KEY,
+                username VARCHAR(255) NOT NULL
+            )
+            """);
+        if (!constraintExists(conn, "auth_tokens", "auth_tokens_ibfk_1")) {
+            execute(conn, """
+                ALTER TABLE auth_tokens
+                ADD CONSTRAINT auth_tokens_ibfk_1
+                FOREIGN KEY (username) REFERENCES users(username)
+                ON DELETE CASCADE
+                """);
+        }
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS games (
+                game_id INT PRIMARY KEY AUTO_INCREMENT,
+                white_username VARCHAR(255),
+                black_username VARCHAR(255),
+                game_name VARCHAR(255) NOT NULL,
+                game_state TEXT,
+                version INT NOT NULL DEFAULT 0,
+                FOREIGN KEY (white_username) REFERENCES users(username),
+                FOREIGN KEY (black_username) REFERENCES users(username)
+            )
+            """);
+        // Tables created before optimistic locking was added have no version column
+        if (!columnExists(conn, "games", "version")) {
+            execute(conn, "ALTER TABLE games ADD COLUMN version INT NOT NULL DEFAULT 0");
+        }
+    }
+
+    private static void addGameLifecycle(Connection conn) throws SQLException {
+        // Seated games in tables created before games had a lifecycle count as active
+        if (!columnExists(conn, "games", "status")) {
+            execute(conn, "ALTER TABLE games ADD COLUMN status VARCHAR(16) NOT NULL DEFAULT 'OPEN', "
+                    + "ADD COLUMN result VARCHAR(16), ADD INDEX games_status (status)");
+            execute(conn, "UPDATE games SET status = 'ACTIVE' "
+                    + "WHERE white_username IS NOT NULL AND black_username IS NOT NULL");
+            finishResignedGames(conn);
+        }
+        // Finished games are moved here; compressed since they are rarely read again. No foreign keys, so
+        // archived games do not hold up deleting users. Game IDs must not be reused by the games table,
+        // which relies on InnoDB keeping its auto-increment counter across restarts (MySQL 8).
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS games_archive (
+                game_id INT PRIMARY KEY,
+                white_username VARCHAR(255),
+                black_username VARCHAR(255),
+                game_name VARCHAR(255) NOT NULL,
+                game_state TEXT,
+                version INT NOT NULL,
+                status VARCHAR(16) NOT NULL,
+                result VARCHAR(16)
+            ) ROW_FORMAT=COMPRESSED
+            """);
+    }
+
+    /**
+     * Before games had a lifecycle, resigning cleared both seats. A game with no players whose board has left the
+     * starting position was resigned rather than never joined, so it is finished; who won was not recorded.
+     */
+    private static void finishResignedGames(Connection conn) throws SQLException {
+        Gson gson = new Gson();
+        ChessBoard startingBoard = new ChessGame().getBoard();
+        List<Integer> resigned = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT game_id, game_state FROM games "
+                + "WHERE white_username IS NULL AND black_username IS NULL");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ChessGame game = gson.fromJson(rs.getString("game_state"), ChessGame.class);
+                if (game != null && !startingBoard.equals(game.getBoard())) {
+                    resigned.add(rs.getInt("game_id"));
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE games SET status = 'FINISHED' WHERE game_id = ?")) {
+            for (int gameID : resigned) {
+                stmt.setInt(1, gameID);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Lets a player's live games be found without scanning every game. The composite indexes also serve the
+     * foreign keys, so InnoDB drops the single-column indexes it created for them.
+     */
+    private static void addPlayerIndexes(Connection conn) throws SQLException {
+        if (!indexExists(conn, "games", "games_white_status")) {
+            execute(conn, "CREATE INDEX games_white_status ON games (white_username, status)");
+        }
+        if (!indexExists(conn, "games", "games_black_status")) {
+            execute(conn, "CREATE INDEX games_black_status ON games (black_username, status)");
+        }
+    }
+
+    /**
+     * Tokens issued before tokens expired are given the configured lifetime from now, rather than being logged out.
+     */
+    private static void addTokenExpiry(Connection conn) throws SQLException {
+        if (!columnExists(conn, "auth_tokens", "expires_at")) {
+            execute(conn, "ALTER TABLE auth_tokens ADD COLUMN expires_at TIMESTAMP(3) NOT NULL "
+                    + "DEFAULT CURRENT_TIMESTAMP(3), ADD INDEX auth_tokens_expires (expires_at)");
+            execute(conn, "UPDATE auth_tokens SET expires_at = TIMESTAMPADD(MICROSECOND, "
+                    + AuthDAO.tokenTtlFromSystemProperties() * 1000 + ", NOW(3))");
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        }
+    }
+
+    private static boolean constraintExists(Connection conn, String tableName, String constraintName)
+            throws SQLException {
+        return exists(conn, """
+            SELECT COUNT(*)
+            FROM information_schema.table_constraints
+            WHERE table_schema = DATABASE()
+              AND table_name = ?
+              AND constraint_name = ?
+            """, tableName, constraintName);
+    }
+
+    private static boolean columnExists(Connection conn, String tableName, String columnName) throws SQLException {
+        return exists(conn, """
+            SELECT COUNT(*)
+            FROM information_schema.columns
+            WHERE table_schema = DATABASE()
+              AND table_name = ?
+              AND column_name = ?
+            """, tableName, columnName);
+    }
+
+    private static boolean indexExists(Connection conn, String tableName, String indexName) throws SQLException {
+        return exists(conn, """
+            SELECT COUNT(*)
+            FROM information_schema.statistics
+            WHERE table_schema = DATABASE()
+              AND table_name = ?
+              AND index_name = ?
+            """, tableName, indexName);
+    }
+
+    private static boolean exists(Connection conn, String countSql, String tableName, String name)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(countSql)) {
+            stmt.setString(1, tableName);
+            stmt.setString(2, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package dataaccess;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import model.GameData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of accepted moves, written ahead of the game store so a move can be acknowledged as soon
+ * as it is on disk rather than once the store has been updated.
+ * <p>
+ * Appends from every game are gathered by a single writer thread and made durable together with one fsync
+ * (group commit). A batch is committed once it holds {@code maxBatch} moves, or once {@code commitIntervalMillis}
+ * has passed since its first move arrived; moves that arrive while an fsync is in progress join the next batch.
+ * <p>
+ * Each record is 16 bytes: the game ID, the game's version before the move, the packed move and a CRC32 of
+ * the three. A record with game ID {@value #CLEAR_MARKER} marks that every game was deleted. After a crash,
+ * {@link #replay} applies the moves the game store is missing.
+ * <p>
+ * Callers report each move once the game store holds it with {@link #markApplied}. When no journaled move is
+ * still waiting for the store and the file has reached {@code checkpointBytes}, the journal is emptied, so it
+ * stays bounded while the server runs rather than only shrinking at the next replay.
+ */
+public class MoveJournal implements AutoCloseable {
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 0;
+    public static final int DEFAULT_MAX_BATCH = 512;
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64 * 1024;
+
+    private static final int RECORD_SIZE = 16;
+    private static final int CLEAR_MARKER = -1;
+    private static final int CHECKPOINT_MARKER = -2;
+    private static final long CLOSE_POLL_MILLIS = 100;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long commitIntervalNanos;
+    private final int maxBatch;
+    private final long checkpointBytes;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong journaledMoves = new AtomicLong();
+    private final AtomicLong unappliedMoves = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private boolean closed;
+
+    public MoveJournal(Path file) throws DataAccessException {
+        this(file, DEFAULT_COMMIT_INTERVAL_MILLIS, DEFAULT_MAX_BATCH);
+    }
+
+    public MoveJournal(Path file, long commitIntervalMillis, int maxBatch) throws DataAccessException {
+        this(file, commitIntervalMillis, maxBatch, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * @param commitIntervalMillis how long a batch waits for more moves before it is committed; 0 commits
+     *                             whatever has queued up as soon as the previous fsync finishes
+     * @param maxBatch             the most moves made durable by one fsync
+     * @param checkpointBytes      how large the file must be before it is emptied once every move is applied
+     */
+    public MoveJournal(Path file, long commitIntervalMillis, int maxBatch, long checkpointBytes)
+            throws DataAccessException {
+        if (commitIntervalMillis < 0 || maxBatch < 1 || checkpointBytes < 0) {
+            throw new IllegalArgumentException(
+                    "Commit interval and checkpoint size must not be negative and batch size must be positive");
+        }
+        this.file = file;
+        this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        this.maxBatch = maxBatch;
+        this.checkpointBytes = checkpointBytes;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            // Drop a torn record left by a crash so new appends follow the last complete one
+            channel.truncate(validLength());
+            channel.position(channel.size());
+        } catch (IOException e) {
+            throw new DataAccessException("Error: unable to open move journal " + file + ": " + e.getMessage());
+        }
+        this.writer = Thread.ofPlatform().name("move-journal").daemon(true).start(this::runWriter);
+    }
+
+    /**
+     * Opens the journal named by the {@code chess.journal} system property, with the commit interval, batch
+     * size and checkpoint size taken from {@code chess.journal.commitMillis}, {@code chess.journal.batch} and
+     * {@code chess.journal.checkpointBytes}.
+     *
+     * @return the journal, or null if no journal file is configured
+     */
+    public static MoveJournal fromSystemProperties() throws DataAccessException {
+        String file = System.getProperty("chess.journal");
+        if (file == null || file.isBlank()) {
+            return null;
+        }
+        return new MoveJournal(Path.of(file),
+                Long.getLong("chess.journal.commitMillis", DEFAULT_COMMIT_INTERVAL_MILLIS),
+                Integer.getInteger("chess.journal.batch", DEFAULT_MAX_BATCH),
+                Long.getLong("chess.journal.checkpointBytes", DEFAULT_CHECKPOINT_BYTES));
+    }
+
+    /**
+     * Queues a move for the next group commit. Once the future completes, the move must be reported with
+     * {@link #markApplied} when the game store holds it.
+     *
+     * @param version the game's version before the move
+     * @return a future that completes once the move is durable, or fails with a {@link DataAccessException}
+     */
+    public CompletableFuture<Void> append(int gameID, int version, ChessMove move) {
+        // Counted before it is queued so a checkpoint never empties the file while the move is on its way in
+        unappliedMoves.incrementAndGet();
+        CompletableFuture<Void> durable = enqueue(new Append(gameID, version, pack(move), new CompletableFuture<>()));
+        if (durable.isCompletedExceptionally()) {
+            unappliedMoves.decrementAndGet();
+        }
+        return durable;
+    }
+
+    /**
+     * Records that every game was deleted, so a later replay ignores the moves journaled before it.
+     */
+    public CompletableFuture<Void> appendClear() {
+        return enqueue(new Append(CLEAR_MARKER, 0, 0, new CompletableFuture<>()));
+    }
+
+    /**
+     * Applies journaled moves the game store is missing, then empties the journal since the store now holds
+     * everything in it. A move is applied only if the stored game is at exactly the version it was journaled
+     * against; games that are further along already have it. Call this before any moves are appended.
+     *
+     * @return the number of moves applied
+     */
+    public int replay(GameDAO gameDAO) throws DataAccessException {
+        try {
+            long end = validLength();
+            long start = lastClearEnd(end);
+            int applied = 0;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            for (long position = start; position < end; position += RECORD_SIZE) {
+                readRecord(record, position);
+                if (applyRecord(gameDAO, record.getInt(0), record.getInt(4), record.getInt(8))) {
+                    applied++;
+                }
+            }
+            channel.truncate(0);
+            channel.force(true);
+            return applied;
+        } catch (IOException e) {
+            throw new DataAccessException("Error: unable to replay move journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records that the game store now holds a move appended earlier. When it was the last move the store was
+     * missing, the journal is checkpointed after the commit in progress.
+     */
+    public void markApplied() {
+        if (unappliedMoves.decrementAndGet() == 0) {
+            enqueue(new Append(CHECKPOINT_MARKER, 0, 0, new CompletableFuture<>()));
+        }
+    }
+
+    /**
+     * Records that a move appended earlier will never be written to the game store, either because it was not
+     * acknowledged or because the store has moved past its version. A replay skips it by its version.
+     */
+    public void markDiscarded() {
+        markApplied();
+    }
+
+    public long commits() {
+        return commits.get();
+    }
+
+    public long journaledMoves() {
+        return journaledMoves.get();
+    }
+
+    public long checkpoints() {
+        return checkpoints.get();
+    }
+
+    public long sizeBytes() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Commits everything already appended, then closes the file.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Failed to close move journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Append append) {
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new DataAccessException("Error: move journal is closed"));
+            }
+            queue.add(append);
+        }
+        return append.durable();
+    }
+
+    private void runWriter() {
+        List<Append> batch = new ArrayList<>(maxBatch);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(maxBatch * RECORD_SIZE);
+        try {
+            while (true) {
+                Append first = queue.poll(CLOSE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (isClosed() && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                commit(batch, buffer);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fillBatch(List<Append> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatch - batch.size());
+        long deadline = System.nanoTime() + commitIntervalNanos;
+        while (batch.size() < maxBatch) {
+            long remaining = deadline - System.nanoTime();
+            Append next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatch - batch.size());
+        }
+    }
+
+    private void commit(List<Append> batch, ByteBuffer buffer) {
+        buffer.clear();
+        int records = 0;
+        int moves = 0;
+        boolean checkpointRequested = false;
+        for (Append append : batch) {
+            if (append.gameID() == CHECKPOINT_MARKER) {
+                checkpointRequested = true;
+                continue;
+            }
+            putRecord(buffer, append.gameID(), append.version(), append.packedMove());
+            records++;
+            if (append.gameID() != CLEAR_MARKER) {
+                moves++;
+            }
+        }
+        buffer.flip();
+        try {
+            // Any move in this batch is still counted as unapplied, so only records the store holds are dropped
+            if (checkpointRequested && unappliedMoves.get() == 0 && channel.size() >= checkpointBytes) {
+                checkpoint();
+            }
+            if (records > 0) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            DataAccessException failure = new DataAccessException("Error: unable to write move journal: " + e.getMessage());
+            unappliedMoves.addAndGet(-moves);
+            batch.forEach(append -> append.durable().completeExceptionally(failure));
+            return;
+        }
+        if (records > 0) {
+            commits.incrementAndGet();
+        }
+        journaledMoves.addAndGet(moves);
+        batch.forEach(append -> append.durable().complete(null));
+    }
+
+    /**
+     * Empties the file. Only safe from the writer thread once the game store holds every move in it.
+     */
+    private void checkpoint() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        checkpoints.incrementAndGet();
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the length of the run of complete, uncorrupted records at the start of the file
+     */
+    private long validLength() throws IOException {
+        long size = channel.size() - channel.size() % RECORD_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        for (long position = 0; position < size; position += RECORD_SIZE) {
+            readRecord(record, position);
+            if (crc(record.getInt(0), record.getInt(4), record.getInt(8)) != record.getInt(12)) {
+                return position;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the position just after the last clear marker before {@code end}, or 0 if there is none
+     */
+    private long lastClearEnd(long end) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        for (long position = end - RECORD_SIZE; position >= 0; position -= RECORD_SIZE) {
+            readRecord(record, position);
+            if (record.getInt(0) == CLEAR_MARKER) {
+                return position + RECORD_SIZE;
+            }
+        }
+        return 0;
+    }
+
+    private void readRecord(ByteBuffer record, long position) throws IOException {
+        record.clear();
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new IOException("Unexpected end of move journal");
+            }
+        }
+    }
+
+    private static boolean applyRecord(GameDAO gameDAO, int gameID, int version, int packedMove)
+            throws DataAccessException {
+        GameData game = gameDAO.getGame(gameID);
+        if (game == null || game.version() != version) {
+            return false;
+        }
+        try {
+            game.game().makeMove(unpack(packedMove));
+        } catch (InvalidMoveException e) {
+            System.err.println("Skipping journaled move for game " + gameID + ": " + e.getMessage());
+            return false;
+        }
+        gameDAO.updateGame(game.withBoardOutcome());
+        return true;
+    }
+
+    private static void putRecord(ByteBuffer buffer, int gameID, int version, int packedMove) {
+        buffer.putInt(gameID).putInt(version).putInt(packedMove).putInt(crc(gameID, version, packedMove));
+    }
+
+    private static int crc(int gameID, int version, int packedMove) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(12).putInt(gameID).putInt(version).putInt(packedMove).flip());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Packs a move into the low 20 bits of an int: four bits each for the start row and column, the end row
+     * and column, and the promotion piece (0 for none, otherwise its ordinal plus one).
+     */
+    static int pack(ChessMove move) {
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        return move.getStartPosition().getRow() << 16
+                | move.getStartPosition().getColumn() << 12
+                | move.getEndPosition().getRow() << 8
+                | move.getEndPosition().getColumn() << 4
+                | (promotion == null ? 0 : promotion.ordinal() + 1);
+    }
+
+    static ChessMove unpack(int packedMove) {
+        int promotion = packedMove & 0xF;
+        return new ChessMove(
+                new ChessPosition(packedMove >> 16 & 0xF, packedMove >> 12 & 0xF),
+                new ChessPosition(packedMove >> 8 & 0xF, packedMove >> 4 & 0xF),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1]);
+    }
+
+    private record Append(int gameID, int version, int packedMove, CompletableFuture<Void> durable) {}
+}
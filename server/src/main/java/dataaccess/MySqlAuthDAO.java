@@ -3,7 +3,23 @@ package dataaccess;
 import model.AuthData;
 import java.sql.*;
 
+/**
+ * Stores auth tokens in the auth_tokens table. Expiry times are computed by the database clock, so servers with
+ * drifting clocks agree on when a token expires.
+ */
 public class MySqlAuthDAO implements AuthDAO {
+    private final long ttlMicros;
+
+    public MySqlAuthDAO() {
+        this(AuthDAO.tokenTtlFromSystemProperties());
+    }
+
+    public MySqlAuthDAO(long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Token lifetime must be positive");
+        }
+        this.ttlMicros = ttlMillis * 1000;
+    }
 
     @Override
     public void clear() throws DataAccessException {
@@ -13,10 +29,12 @@ public class MySqlAuthDAO implements AuthDAO {
     @Override
     public void createAuth(String authToken, String username) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            String sql = "INSERT INTO auth_tokens (auth_token, username) VALUES (?, ?)";
+            String sql = "INSERT INTO auth_tokens (auth_token, username, expires_at) "
+                    + "VALUES (?, ?, TIMESTAMPADD(MICROSECOND, ?, NOW(3)))";
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, authToken);
                 stmt.setString(2, username);
+                stmt.setLong(3, ttlMicros);
                 stmt.executeUpdate();
             }
         } catch (SQLException e) {
@@ -27,11 +45,15 @@ public class MySqlAuthDAO implements AuthDAO {
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            String sql = "SELECT auth_token, username FROM auth_tokens WHERE auth_token = ?";
+            String sql = "SELECT auth_token, username, TIMESTAMPDIFF(MICROSECOND, NOW(3), expires_at) AS remaining "
+                    + "FROM auth_tokens WHERE auth_token = ? AND expires_at > NOW(3)";
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, authToken);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
+                        if (rs.getLong("remaining") < ttlMicros / 2) {
+                            refresh(conn, authToken);
+                        }
                         return new AuthData(rs.getString("auth_token"), rs.getString("username"));
                     }
                 }
@@ -57,4 +79,42 @@ public class MySqlAuthDAO implements AuthDAO {
             throw new DataAccessException("Error deleting auth token: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Deletes the oldest expired tokens first, through the expiry index, in a statement of its own so row
+     * locks are held only for one batch.
+     */
+    @Override
+    public int purgeExpired(int limit) throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String sql = "DELETE FROM auth_tokens WHERE expires_at <= NOW(3) ORDER BY expires_at LIMIT ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, limit);
+                return stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error purging auth tokens: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long countTokens() throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM auth_tokens");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error counting auth tokens: " + e.getMessage());
+        }
+    }
+
+    private void refresh(Connection conn, String authToken) throws SQLException {
+        String sql = "UPDATE auth_tokens SET expires_at = TIMESTAMPADD(MICROSECOND, ?, NOW(3)) WHERE auth_token = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, ttlMicros);
+            stmt.setString(2, authToken);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -3,28 +3,72 @@ package dataaccess;
 import chess.ChessGame;
 import com.google.gson.Gson;
 import model.GameData;
+import model.GameResult;
+import model.GameStatus;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class MySqlGameDAO implements GameDAO {
+/**
+ * Games stored in MySQL. Updates go through a {@link GameUpdateCoalescer}, which writes the updates that arrive
+ * within a short window as one JDBC batch in one transaction. Reads only ever return committed state: a read of
+ * a game with an update still waiting first waits for that batch, since the update may yet fail or conflict and
+ * must not reach clients before it is in the database.
+ * <p>
+ * Games in play live in the {@code games} table. Finished games are moved to {@code games_archive}, a compressed
+ * table, by {@link #archiveFinishedGames()}, so the hot table and its indexes only hold games that are still
+ * being looked up and updated.
+ */
+public class MySqlGameDAO implements GameDAO, AutoCloseable {
     private final Gson gson = new Gson();
+    private final GameUpdateCoalescer coalescer;
+
+    /**
+     * Uses the batching window and size from the {@code chess.db.batchMillis} and {@code chess.db.batchSize}
+     * system properties.
+     */
+    public MySqlGameDAO() {
+        this(Long.getLong("chess.db.batchMillis", GameUpdateCoalescer.DEFAULT_WINDOW_MILLIS),
+                Integer.getInteger("chess.db.batchSize", GameUpdateCoalescer.DEFAULT_MAX_BATCH));
+    }
+
+    /**
+     * @param batchWindowMillis how long updates are collected before they are written together
+     * @param maxBatch          the most games written by one batch
+     */
+    public MySqlGameDAO(long batchWindowMillis, int maxBatch) {
+        this.coalescer = new GameUpdateCoalescer(this::writeBatch, batchWindowMillis, maxBatch);
+    }
+
+    /**
+     * @return the counters for batch sizes and flush latency of game updates
+     */
+    public GameUpdateCoalescer getUpdateCoalescer() {
+        return coalescer;
+    }
 
     @Override
     public void clear() throws DataAccessException {
+        coalescer.drain();
         DatabaseManager.clearDatabase();
     }
 
     @Override
     public void createGame(GameData game) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            String sql = "INSERT INTO games (white_username, black_username, game_name, game_state) VALUES (?, ?, ?, ?)";
+            String sql = "INSERT INTO games (white_username, black_username, game_name, game_state, status, result) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)";
             try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                 stmt.setString(1, game.whiteUsername());
                 stmt.setString(2, game.blackUsername());
                 stmt.setString(3, game.gameName());
                 stmt.setString(4, gson.toJson(game.game()));
+                stmt.setString(5, game.status().name());
+                stmt.setString(6, game.result() == null ? null : game.result().name());
                 stmt.executeUpdate();
 
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
@@ -43,19 +87,14 @@ public class MySqlGameDAO implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
+        coalescer.awaitWritten(gameID);
         try (Connection conn = DatabaseManager.getConnection()) {
             String sql = "SELECT * FROM games WHERE game_id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, gameID);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        return new GameData(
-                                rs.getInt("game_id"),
-                                rs.getString("white_username"),
-                                rs.getString("black_username"),
-                                rs.getString("game_name"),
-                                gson.fromJson(rs.getString("game_state"), ChessGame.class)
-                        );
+                        return readGame(rs);
                     }
                 }
             }
@@ -67,19 +106,15 @@ public class MySqlGameDAO implements GameDAO {
 
     @Override
     public List<GameData> listGames() throws DataAccessException {
+        coalescer.drain();
         List<GameData> games = new ArrayList<>();
         try (Connection conn = DatabaseManager.getConnection()) {
-            String sql = "SELECT * FROM games";
+            // Only open and active games; the status index keeps this from reading finished games not yet archived
+            String sql = "SELECT * FROM games WHERE status IN ('OPEN', 'ACTIVE')";
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
-                        games.add(new GameData(
-                                rs.getInt("game_id"),
-                                rs.getString("white_username"),
-                                rs.getString("black_username"),
-                                rs.getString("game_name"),
-                                gson.fromJson(rs.getString("game_state"), ChessGame.class)
-                        ));
+                        games.add(readGame(rs));
                     }
                 }
             }
@@ -91,21 +126,152 @@ public class MySqlGameDAO implements GameDAO {
 
     @Override
     public void updateGame(GameData game) throws DataAccessException {
+        coalescer.submit(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                gson.toJson(game.game()), game.status().name(), game.result() == null ? null : game.result().name(),
+                game.version());
+    }
+
+    /**
+     * Copies finished games into the archive table and deletes them from the games table in one transaction.
+     * The copy locks the range of finished rows in the status index, so a game that finishes meanwhile is
+     * left for the next run rather than deleted without being copied.
+     */
+    @Override
+    public int archiveFinishedGames() throws DataAccessException {
+        coalescer.drain();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            String copySql = "INSERT INTO games_archive (game_id, white_username, black_username, game_name, "
+                    + "game_state, version, status, result) SELECT game_id, white_username, black_username, "
+                    + "game_name, game_state, version, status, result FROM games WHERE status = 'FINISHED'";
+            int archived;
+            try (PreparedStatement stmt = conn.prepareStatement(copySql)) {
+                archived = stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM games WHERE status = 'FINISHED'")) {
+                stmt.executeUpdate();
+            }
+            conn.commit();
+            return archived;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error archiving games: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public GameData getArchivedGame(int gameID) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            String sql = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, game_state = ? WHERE game_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM games_archive WHERE game_id = ?")) {
+                stmt.setInt(1, gameID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return readGame(rs);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error getting archived game: " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        coalescer.close();
+    }
+
+    /**
+     * Writes a batch of game updates with one batched statement in one transaction. With
+     * {@code rewriteBatchedStatements} on the connection the driver sends the batch in a single round trip, but
+     * then reports {@link Statement#SUCCESS_NO_INFO} instead of a row count, which cannot tell a written update
+     * from one whose version check failed. So the games are locked and their versions read first, and only the
+     * updates whose version still matches are sent; the locks keep those versions from changing before the write.
+     */
+    private List<GameUpdateCoalescer.Outcome> writeBatch(List<GameUpdateCoalescer.Update> batch)
+            throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            Map<Integer, Integer> storedVersions = lockVersions(conn, batch);
+            List<GameUpdateCoalescer.Outcome> outcomes = new ArrayList<>(batch.size());
+            String sql = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, game_state = ?, "
+                    + "status = ?, result = ?, version = ? WHERE game_id = ? AND version = ?";
+            int[] rowsAffected;
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, game.whiteUsername());
-                stmt.setString(2, game.blackUsername());
-                stmt.setString(3, game.gameName());
-                stmt.setString(4, gson.toJson(game.game()));
-                stmt.setInt(5, game.gameID());
-                int rowsAffected = stmt.executeUpdate();
-                if (rowsAffected == 0) {
-                    throw new DataAccessException("Updating game failed, no rows affected.");
+                for (GameUpdateCoalescer.Update update : batch) {
+                    Integer stored = storedVersions.get(update.gameID());
+                    if (stored == null) {
+                        outcomes.add(GameUpdateCoalescer.Outcome.MISSING);
+                        continue;
+                    }
+                    if (stored != update.expectedVersion()) {
+                        outcomes.add(GameUpdateCoalescer.Outcome.VERSION_CONFLICT);
+                        continue;
+                    }
+                    outcomes.add(GameUpdateCoalescer.Outcome.WRITTEN);
+                    stmt.setString(1, update.whiteUsername());
+                    stmt.setString(2, update.blackUsername());
+                    stmt.setString(3, update.gameName());
+                    stmt.setString(4, update.gameState());
+                    stmt.setString(5, update.status());
+                    stmt.setString(6, update.result());
+                    stmt.setInt(7, update.newVersion());
+                    stmt.setInt(8, update.gameID());
+                    stmt.setInt(9, update.expectedVersion());
+                    stmt.addBatch();
                 }
+                rowsAffected = stmt.executeBatch();
             }
+            for (int count : rowsAffected) {
+                // Every row sent was locked at the version checked, so each must have been written
+                if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                    conn.rollback();
+                    throw new DataAccessException("Error updating game: batch wrote " + count + " rows for one game");
+                }
+            }
+            conn.commit();
+            return outcomes;
         } catch (SQLException e) {
             throw new DataAccessException("Error updating game: " + e.getMessage());
         }
     }
+
+    /**
+     * Locks the batch's games until the transaction ends.
+     *
+     * @return the stored version of each game that exists
+     */
+    private static Map<Integer, Integer> lockVersions(Connection conn, List<GameUpdateCoalescer.Update> batch)
+            throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+        String sql = "SELECT game_id, version FROM games WHERE game_id IN (" + placeholders + ") FOR UPDATE";
+        Map<Integer, Integer> versions = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < batch.size(); i++) {
+                stmt.setInt(i + 1, batch.get(i).gameID());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    versions.put(rs.getInt("game_id"), rs.getInt("version"));
+                }
+            }
+        }
+        return versions;
+    }
+
+    private GameData readGame(ResultSet rs) throws SQLException {
+        return new GameData(
+                rs.getInt("game_id"),
+                rs.getString("white_username"),
+                rs.getString("black_username"),
+                rs.getString("game_name"),
+                gson.fromJson(rs.getString("game_state"), ChessGame.class),
+                rs.getInt("version"),
+                GameStatus.valueOf(rs.getString("status")),
+                parseResult(rs.getString("result"))
+        );
+    }
+
+    private static GameResult parseResult(String result) {
+        return result == null ? null : GameResult.valueOf(result);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Brings a database schema up to date by applying, in order, the migrations newer than the version recorded in
+ * its {@code schema_version} table, and recording each one as it completes.
+ * <p>
+ * Servers starting together take a named MySQL lock first, so each migration is applied by only one of them.
+ * MySQL commits DDL as it runs, so a migration that fails part way is not rolled back; migrations that may be
+ * retried must check for what they create.
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "chess_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+    private final List<Migration> migrations;
+
+    /**
+     * @param migrations the migrations in the order they apply, with strictly increasing versions starting above 0
+     */
+    public SchemaMigrator(List<Migration> migrations) {
+        int previous = 0;
+        for (Migration migration : migrations) {
+            if (migration.version() <= previous) {
+                throw new IllegalArgumentException("Migration " + migration.version() + " (" + migration.description()
+                        + ") must have a higher version than " + previous);
+            }
+            previous = migration.version();
+        }
+        this.migrations = List.copyOf(migrations);
+    }
+
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+    }
+
+    /**
+     * @return the number of migrations applied
+     */
+    public int migrate(Connection conn) throws SQLException {
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INT PRIMARY KEY,
+                description VARCHAR(255) NOT NULL,
+                applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """);
+        acquireLock(conn);
+        try {
+            int current = currentVersion(conn);
+            int applied = 0;
+            for (Migration migration : migrations) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+                migration.step().apply(conn);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                    stmt.setInt(1, migration.version());
+                    stmt.setString(2, migration.description());
+                    stmt.executeUpdate();
+                }
+                applied++;
+            }
+            return applied;
+        } finally {
+            releaseLock(conn);
+        }
+    }
+
+    /**
+     * @return the highest migration version applied to the database, or 0 if there is none
+     */
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(version), 0) FROM schema_version");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package dataaccess;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import model.GameData;
+import model.GameResult;
+import model.GameStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Stores games in append-only segment files on local disk, for deployments without a database.
+ * <p>
+ * Every create or update appends the whole game as a checksummed record to the active segment, which is
+ * memory-mapped, so a write is a memory copy rather than a network round trip. An in-memory index maps each
+ * game ID to its latest record. When the active segment fills up a new one is started; a background task
+ * periodically copies the live records out of mostly-dead segments and deletes them.
+ * <p>
+ * On startup the segments are replayed oldest first to rebuild the index. Replay of a segment stops at the
+ * first record whose length or checksum does not check out, which is where a write was torn by a crash.
+ * <p>
+ * Unlike the games table, player names are not checked against registered users. There is no archive tier:
+ * finished games stay in the segments and are only left out of {@link #listGames()}.
+ */
+public class SegmentGameDAO implements GameDAO, AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final long DEFAULT_COMPACTION_INTERVAL_MILLIS = 60_000;
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.seg");
+    private static final int HEADER_SIZE = 8;
+    private static final int TERMINATOR_SIZE = 4;
+    private static final byte PUT = 1;
+    private static final byte CLEAR = 2;
+
+    private final Gson gson = new Gson();
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceOnWrite;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Integer, Location> index = new HashMap<>();
+    private final ScheduledExecutorService maintenance;
+    private Segment active;
+    private int lastGameID;
+
+    public SegmentGameDAO(Path directory) throws DataAccessException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACTION_INTERVAL_MILLIS, false);
+    }
+
+    /**
+     * @param segmentSize               size each segment file is mapped at; a game record must fit in one
+     * @param compactionIntervalMillis  how often dead records are compacted away, or 0 to only compact on request
+     * @param forceOnWrite              flush every write to disk before returning, rather than once a second;
+     *                                  without it a crash of the process loses nothing, but a crash of the
+     *                                  machine can lose the last second of writes
+     */
+    public SegmentGameDAO(Path directory, int segmentSize, long compactionIntervalMillis, boolean forceOnWrite)
+            throws DataAccessException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceOnWrite = forceOnWrite;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new DataAccessException("Error opening game store: " + e.getMessage());
+        }
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("segment-maintenance").daemon(true).factory());
+        if (!forceOnWrite) {
+            maintenance.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+        if (compactionIntervalMillis > 0) {
+            maintenance.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalMillis,
+                    compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            // The marker makes replay forget everything before it, should the old segments survive a crash
+            roll();
+            append(encode(CLEAR, 0, 0, null, null, null, null, null, null));
+            index.clear();
+            Iterator<Segment> older = segments.headMap(active.sequence).values().iterator();
+            while (older.hasNext()) {
+                older.next().delete();
+                older.remove();
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Error clearing games: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        if (game.gameName() == null) {
+            throw new DataAccessException("Error creating game: game name is required");
+        }
+        String state = gson.toJson(game.game());
+        lock.writeLock().lock();
+        try {
+            int gameID = lastGameID + 1;
+            write(gameID, encode(PUT, gameID, 0, game.whiteUsername(), game.blackUsername(), game.gameName(), state,
+                    game.status(), game.result()));
+            lastGameID = gameID;
+        } catch (IOException e) {
+            throw new DataAccessException("Error creating game: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) {
+        byte[] payload;
+        lock.readLock().lock();
+        try {
+            Location location = index.get(gameID);
+            if (location == null) {
+                return null;
+            }
+            payload = location.read();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return decode(payload);
+    }
+
+    @Override
+    public List<GameData> listGames() {
+        List<byte[]> payloads = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Location location : index.values()) {
+                payloads.add(location.read());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<GameData> games = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            GameData game = decode(payload);
+            // Finished games stay in the segments but are left out of listings
+            if (!game.isFinished()) {
+                games.add(game);
+            }
+        }
+        games.sort(Comparator.comparingInt(GameData::gameID));
+        return games;
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        if (game.gameName() == null) {
+            throw new DataAccessException("Error updating game: game name is required");
+        }
+        byte[] payload = encode(PUT, game.gameID(), game.version() + 1, game.whiteUsername(), game.blackUsername(),
+                game.gameName(), gson.toJson(game.game()), game.status(), game.result());
+        lock.writeLock().lock();
+        try {
+            Location current = index.get(game.gameID());
+            if (current == null) {
+                throw new DataAccessException("Updating game failed, no rows affected.");
+            }
+            if (current.version() != game.version()) {
+                throw new VersionConflictException(game.gameID(), game.version());
+            }
+            write(game.gameID(), payload);
+        } catch (IOException e) {
+            throw new DataAccessException("Error updating game: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the live records out of sealed segments that are mostly dead, then deletes those segments.
+     */
+    public void compact() throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            List<Segment> victims = new ArrayList<>();
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.liveBytes * 2 <= segment.writePosition) {
+                    victims.add(segment);
+                }
+            }
+            if (victims.isEmpty()) {
+                return;
+            }
+
+            for (Map.Entry<Integer, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                if (victims.contains(location.segment())) {
+                    Location copy = append(location.read()).withVersion(location.version());
+                    copy.segment().liveBytes += copy.length();
+                    location.segment().liveBytes -= location.length();
+                    entry.setValue(copy);
+                }
+            }
+            // The copies must be on disk before the only other copy is deleted
+            active.buffer.force();
+            for (Segment victim : victims) {
+                segments.remove(victim.sequence);
+                victim.delete();
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Error compacting games: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return where the next record will be written in the active segment
+     */
+    long activeWritePosition() {
+        lock.readLock().lock();
+        try {
+            return active.writePosition;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Path activeSegmentPath() {
+        return active.path;
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches()).toList();
+        }
+        for (Path file : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+            matcher.matches();
+            long sequence = Long.parseLong(matcher.group(1));
+            segments.put(sequence, Segment.open(file, sequence, segmentSize));
+        }
+
+        long lastClear = -1;
+        for (Segment segment : segments.values()) {
+            if (replay(segment)) {
+                lastClear = segment.sequence;
+            }
+        }
+        // Segments older than a clear hold only dead games; a crash during the clear may have left them behind
+        Iterator<Segment> older = segments.headMap(lastClear).values().iterator();
+        while (older.hasNext()) {
+            older.next().delete();
+            older.remove();
+        }
+
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    /**
+     * Applies a segment's records to the index, stopping at the end of the written data.
+     *
+     * @return whether the segment contains a clear marker
+     */
+    private boolean replay(Segment segment) {
+        boolean cleared = false;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER_SIZE <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_SIZE, payload);
+            if (checksum(payload) != buffer.getInt(position + 4)) {
+                break;
+            }
+
+            if (payload[0] == CLEAR) {
+                index.clear();
+                for (Segment older : segments.values()) {
+                    older.liveBytes = 0;
+                }
+                cleared = true;
+            } else {
+                GameData game = decode(payload);
+                Location location = new Location(segment, position, HEADER_SIZE + length, game.version());
+                replace(game.gameID(), location);
+                lastGameID = Math.max(lastGameID, game.gameID());
+            }
+            position += HEADER_SIZE + length;
+        }
+        segment.writePosition = position;
+        // Anything past this point is a torn write; make sure a later replay stops here too
+        if (position + TERMINATOR_SIZE <= segmentSize) {
+            buffer.putInt(position, 0);
+        }
+        return cleared;
+    }
+
+    private void write(int gameID, byte[] payload) throws IOException {
+        Location location = append(payload);
+        replace(gameID, location.withVersion(versionOf(payload)));
+    }
+
+    private void replace(int gameID, Location location) {
+        location.segment().liveBytes += location.length();
+        Location previous = index.put(gameID, location);
+        if (previous != null) {
+            previous.segment().liveBytes -= previous.length();
+        }
+    }
+
+    private Location append(byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (recordSize + TERMINATOR_SIZE > segmentSize) {
+            throw new IOException("record of " + recordSize + " bytes does not fit in a segment");
+        }
+        if (active.writePosition + recordSize + TERMINATOR_SIZE > segmentSize) {
+            roll();
+        }
+
+        int position = active.writePosition;
+        ByteBuffer buffer = active.buffer.duplicate();
+        // The length goes first and the checksum covers the payload, so a torn record is detected on replay
+        buffer.putInt(position, payload.length);
+        buffer.putInt(position + 4, checksum(payload));
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position + recordSize, 0);
+        active.writePosition = position + recordSize;
+        if (forceOnWrite) {
+            active.buffer.force(position, recordSize + TERMINATOR_SIZE);
+        }
+        return new Location(active, position, recordSize, 0);
+    }
+
+    private void roll() throws IOException {
+        if (active != null && !forceOnWrite) {
+            // The flusher only ever forces the active segment, so a sealed one must be on disk before it stops
+            // being active, or the writes of up to its last second would be lost in a crash
+            active.buffer.force();
+        }
+        long sequence = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path path = directory.resolve(String.format("segment-%06d.seg", sequence));
+        active = Segment.open(path, sequence, segmentSize);
+        segments.put(sequence, active);
+    }
+
+    private void flush() {
+        lock.readLock().lock();
+        try {
+            active.buffer.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (DataAccessException e) {
+            System.err.println("Game store compaction failed: " + e.getMessage());
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(byte type, int gameID, int version, String whiteUsername, String blackUsername,
+                                 String gameName, String state, GameStatus status, GameResult result) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (state == null ? 0 : state.length()));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeInt(gameID);
+            out.writeInt(version);
+            writeString(out, whiteUsername);
+            writeString(out, blackUsername);
+            writeString(out, gameName);
+            writeString(out, state);
+            writeString(out, status == null ? null : status.name());
+            writeString(out, result == null ? null : result.name());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int versionOf(byte[] payload) {
+        return ByteBuffer.wrap(payload, 5, 4).getInt();
+    }
+
+    private GameData decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        buffer.get();
+        int gameID = buffer.getInt();
+        int version = buffer.getInt();
+        String whiteUsername = readString(buffer);
+        String blackUsername = readString(buffer);
+        String gameName = readString(buffer);
+        String state = readString(buffer);
+        ChessGame game = gson.fromJson(state, ChessGame.class);
+        if (!buffer.hasRemaining()) {
+            // Written before games had a status
+            return new GameData(gameID, whiteUsername, blackUsername, gameName, game, version);
+        }
+        String status = readString(buffer);
+        String result = readString(buffer);
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, version, GameStatus.valueOf(status),
+                result == null ? null : GameResult.valueOf(result));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private record Location(Segment segment, int offset, int length, int version) {
+        Location withVersion(int newVersion) {
+            return new Location(segment, offset, length, newVersion);
+        }
+
+        byte[] read() {
+            byte[] payload = new byte[length - HEADER_SIZE];
+            segment.buffer.get(offset + HEADER_SIZE, payload);
+            return payload;
+        }
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private long liveBytes;
+
+        private Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, long sequence, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+}
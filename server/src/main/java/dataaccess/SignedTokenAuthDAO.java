@@ -0,0 +1,154 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Issues signed tokens from {@link TokenSigner} and checks them without touching the underlying store, so
+ * authenticating a request costs an HMAC rather than a database round trip.
+ * <p>
+ * Logging out adds the token's ID to an in-memory revocation list, kept only until the token would have expired
+ * anyway; clearing the store revokes every token issued so far. The list is per server, so a token revoked on one
+ * server is still accepted by others sharing its keys until it expires. A signed token's expiry is fixed when it
+ * is issued; unlike the stores behind {@link AuthDAO#getAuth}, there is no sliding refresh, since that would mean
+ * issuing a new token and clients have no way to pick one up mid-session. Tokens that are not signed,
+ * such as ones created directly with {@link #createAuth}, are passed through to the underlying DAO.
+ */
+public class SignedTokenAuthDAO implements AuthDAO {
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private final AuthDAO delegate;
+    private final TokenSigner signer;
+    private final LongSupplier clock;
+    private final Map<Long, Long> revokedUntil = new ConcurrentHashMap<>();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile long revokedBeforeMillis = Long.MIN_VALUE;
+
+    public SignedTokenAuthDAO(AuthDAO delegate, TokenSigner signer) {
+        this(delegate, signer, System::currentTimeMillis);
+    }
+
+    SignedTokenAuthDAO(AuthDAO delegate, TokenSigner signer, LongSupplier clock) {
+        this.delegate = delegate;
+        this.signer = signer;
+        this.clock = clock;
+    }
+
+    public TokenSigner getSigner() {
+        return signer;
+    }
+
+    @Override
+    public String issueToken(String username) {
+        // Never date a token before the last clear, or it would count as revoked
+        return signer.issue(username, Math.max(clock.getAsLong(), revokedBeforeMillis));
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        delegate.clear();
+        // Everything issued so far is dated before this; tokens issued from now on are not
+        revokedBeforeMillis = clock.getAsLong() + 1;
+        revokedUntil.clear();
+    }
+
+    @Override
+    public void createAuth(String authToken, String username) throws DataAccessException {
+        delegate.createAuth(authToken, username);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (!isSigned(authToken)) {
+            return delegate.getAuth(authToken);
+        }
+        TokenSigner.VerifiedToken token = verify(authToken);
+        return token == null ? null : new AuthData(authToken, token.username());
+    }
+
+    /**
+     * Checks a signed token in place rather than on the I/O executor, since no I/O is involved.
+     */
+    @Override
+    public CompletableFuture<AuthData> getAuthAsync(String authToken, Executor executor) {
+        if (!isSigned(authToken)) {
+            return delegate.getAuthAsync(authToken, executor);
+        }
+        TokenSigner.VerifiedToken token = verify(authToken);
+        return CompletableFuture.completedFuture(token == null ? null : new AuthData(authToken, token.username()));
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (!isSigned(authToken)) {
+            delegate.deleteAuth(authToken);
+            return;
+        }
+        TokenSigner.VerifiedToken token = verify(authToken);
+        if (token == null || revokedUntil.putIfAbsent(token.tokenID(), token.expiresAtMillis()) != null) {
+            throw new DataAccessException("Deleting auth token failed, no rows affected.");
+        }
+        if (revokedUntil.size() > PURGE_THRESHOLD) {
+            long now = clock.getAsLong();
+            revokedUntil.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+    }
+
+    /**
+     * Purges the underlying DAO and forgets revoked tokens that have expired.
+     */
+    @Override
+    public int purgeExpired(int limit) throws DataAccessException {
+        long now = clock.getAsLong();
+        revokedUntil.values().removeIf(expiresAt -> expiresAt <= now);
+        return delegate.purgeExpired(limit);
+    }
+
+    @Override
+    public long countTokens() throws DataAccessException {
+        return delegate.countTokens();
+    }
+
+    /**
+     * @return the revoked tokens still being remembered because they have not expired
+     */
+    public int revokedTokens() {
+        return revokedUntil.size();
+    }
+
+    public long verifiedTokens() {
+        return verified.get();
+    }
+
+    /**
+     * @return signed tokens turned away for a bad signature, an unknown key, expiry or revocation
+     */
+    public long rejectedTokens() {
+        return rejected.get();
+    }
+
+    private TokenSigner.VerifiedToken verify(String authToken) {
+        TokenSigner.VerifiedToken token = signer.verify(authToken);
+        if (token == null || token.issuedAtMillis() < revokedBeforeMillis
+                || revokedUntil.containsKey(token.tokenID())) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        verified.incrementAndGet();
+        return token;
+    }
+
+    /**
+     * Signed tokens are the only ones containing a dot; UUID tokens never do.
+     */
+    private static boolean isSigned(String authToken) {
+        return authToken != null && authToken.indexOf('.') > 0;
+    }
+}
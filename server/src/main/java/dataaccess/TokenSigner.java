@@ -0,0 +1,212 @@
+package dataaccess;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Issues and checks self-describing auth tokens, so a token can be verified without looking it up.
+ * <p>
+ * A token is two base64url parts joined by a dot: a payload holding the signing key's ID, a random token ID,
+ * the issue and expiry times in epoch milliseconds and the username, then an HMAC-SHA256 of the payload.
+ * Keys are numbered; new tokens are signed with the newest key, and tokens signed with an older key are
+ * accepted until that key is retired, so keys can be rotated without logging everyone out.
+ */
+public class TokenSigner {
+    public static final long DEFAULT_TTL_MILLIS = AuthDAO.DEFAULT_TOKEN_TTL_MILLIS;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int KEY_BYTES = 32;
+    private static final int HEADER_BYTES = Integer.BYTES + 3 * Long.BYTES;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private volatile Keyring keyring;
+
+    /**
+     * The parts of a token whose signature checked out and which has not expired.
+     */
+    public record VerifiedToken(String username, long tokenID, long issuedAtMillis, long expiresAtMillis,
+                                int keyID) {}
+
+    /**
+     * @param keys      signing keys by ID; new tokens are signed with the highest ID
+     * @param ttlMillis how long a new token stays valid
+     */
+    public TokenSigner(Map<Integer, byte[]> keys, long ttlMillis, LongSupplier clock) {
+        if (keys.isEmpty() || ttlMillis <= 0) {
+            throw new IllegalArgumentException("At least one key and a positive lifetime are required");
+        }
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        TreeMap<Integer, Mac> macs = new TreeMap<>();
+        keys.forEach((id, key) -> macs.put(id, mac(key)));
+        this.keyring = new Keyring(macs);
+    }
+
+    /**
+     * Signs with a random key that lives only as long as this process, so tokens stop working on restart.
+     */
+    public static TokenSigner withRandomKey() {
+        return new TokenSigner(Map.of(1, randomKey()), DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    /**
+     * Reads keys from the {@code chess.auth.keys} system property, a comma-separated list of
+     * {@code id:base64key} pairs, and the token lifetime from {@code chess.auth.ttlMinutes}. Every server
+     * that should accept the same tokens needs the same keys; without the property a random key is used.
+     */
+    public static TokenSigner fromSystemProperties() {
+        long ttlMillis = AuthDAO.tokenTtlFromSystemProperties();
+        String configured = System.getProperty("chess.auth.keys");
+        if (configured == null || configured.isBlank()) {
+            return new TokenSigner(Map.of(1, randomKey()), ttlMillis, System::currentTimeMillis);
+        }
+        Map<Integer, byte[]> keys = new TreeMap<>();
+        for (String entry : configured.split(",")) {
+            String[] parts = entry.trim().split(":", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Auth keys must be id:base64key pairs");
+            }
+            keys.put(Integer.parseInt(parts[0]), Base64.getDecoder().decode(parts[1]));
+        }
+        return new TokenSigner(keys, ttlMillis, System::currentTimeMillis);
+    }
+
+    public static byte[] randomKey() {
+        byte[] key = new byte[KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    public String issue(String username) {
+        return issue(username, clock.getAsLong());
+    }
+
+    String issue(String username, long now) {
+        Keyring current = keyring;
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = ByteBuffer.allocate(HEADER_BYTES + name.length)
+                .putInt(current.currentID())
+                .putLong(random.nextLong())
+                .putLong(now)
+                .putLong(now + ttlMillis)
+                .put(name)
+                .array();
+        byte[] signature = sign(current.macs().get(current.currentID()), payload);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(signature);
+    }
+
+    /**
+     * @return the token's contents, or null if it is malformed, signed with an unknown key, tampered with or
+     * expired
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length <= HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer fields = ByteBuffer.wrap(payload);
+        int keyID = fields.getInt();
+        Mac mac = keyring.macs().get(keyID);
+        if (mac == null || !MessageDigest.isEqual(sign(mac, payload), signature)) {
+            return null;
+        }
+        long tokenID = fields.getLong();
+        long issuedAt = fields.getLong();
+        long expiresAt = fields.getLong();
+        if (clock.getAsLong() >= expiresAt) {
+            return null;
+        }
+        String username = new String(payload, HEADER_BYTES, payload.length - HEADER_BYTES, StandardCharsets.UTF_8);
+        return new VerifiedToken(username, tokenID, issuedAt, expiresAt, keyID);
+    }
+
+    /**
+     * Adds a key and signs new tokens with it from now on.
+     *
+     * @return the new key's ID
+     */
+    public synchronized int rotate(byte[] key) {
+        TreeMap<Integer, Mac> macs = new TreeMap<>(keyring.macs());
+        int id = keyring.currentID() + 1;
+        macs.put(id, mac(key));
+        keyring = new Keyring(macs);
+        return id;
+    }
+
+    /**
+     * Stops accepting tokens signed with the given key. The current key cannot be retired; rotate first.
+     */
+    public synchronized void retire(int keyID) {
+        if (keyID == keyring.currentID()) {
+            throw new IllegalArgumentException("The current signing key cannot be retired");
+        }
+        TreeMap<Integer, Mac> macs = new TreeMap<>(keyring.macs());
+        macs.remove(keyID);
+        keyring = new Keyring(macs);
+    }
+
+    public int currentKeyID() {
+        return keyring.currentID();
+    }
+
+    public long ttlMillis() {
+        return ttlMillis;
+    }
+
+    private static Mac mac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Unusable signing key: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Signs with a clone of the key's initialized Mac, since a Mac cannot be shared between threads.
+     */
+    private static byte[] sign(Mac prototype, byte[] payload) {
+        try {
+            return ((Mac) prototype.clone()).doFinal(payload);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " cannot be cloned", e);
+        }
+    }
+
+    /**
+     * The keys in use, replaced rather than changed so verification never needs a lock.
+     */
+    private record Keyring(TreeMap<Integer, Mac> macs) {
+        private int currentID() {
+            return macs.lastKey();
+        }
+    }
+}
@@ -2,6 +2,9 @@ package dataaccess;
 
 import model.UserData;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * Interface for managing user data in the chess application.
  * This interface defines methods for creating and retrieving user information.
@@ -30,4 +33,18 @@ public interface UserDAO {
      * @throws DataAccessException if there's an error while accessing the data store
      */
     UserData getUser(String username) throws DataAccessException;
-}
\ No newline at end of file
+
+    /**
+     * Asynchronous variant of {@link #createUser}, run on the given I/O executor.
+     */
+    default CompletableFuture<Void> createUserAsync(UserData user, Executor executor) {
+        return AsyncDataAccess.run(() -> createUser(user), executor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getUser}, run on the given I/O executor.
+     */
+    default CompletableFuture<UserData> getUserAsync(String username, Executor executor) {
+        return AsyncDataAccess.supply(() -> getUser(username), executor);
+    }
+}
@@ -0,0 +1,24 @@
+package dataaccess;
+
+/**
+ * Thrown when an update is rejected because the stored game row has changed since it was read.
+ * Callers are expected to reload the game and retry their change against the newer version.
+ */
+public class VersionConflictException extends DataAccessException {
+    private final int gameID;
+    private final int expectedVersion;
+
+    public VersionConflictException(int gameID, int expectedVersion) {
+        super("Error: conflict, game " + gameID + " was modified concurrently");
+        this.gameID = gameID;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public int getGameID() {
+        return gameID;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+}
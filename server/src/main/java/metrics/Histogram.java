@@ -0,0 +1,123 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations into log-linear buckets, the layout HdrHistogram uses: every power of two is split into
+ * {@value #SUB_BUCKETS} equal buckets, so any recorded value is known to within about 6% whatever its size.
+ * Recording is a few lock-free increments; quantiles are only worked out when read.
+ * <p>
+ * Values are nanoseconds. Anything above about 68 seconds is counted in the last bucket.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 36;
+    private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+    private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sumNanos.add(value);
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a value from {@link System#nanoTime}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return the value at the quantile in nanoseconds, to within a bucket's width, or 0 if nothing was recorded
+     */
+    public long valueAtQuantile(double quantile) {
+        return snapshot().valueAtQuantile(quantile);
+    }
+
+    /**
+     * Copies the bucket counts, so several quantiles can be read from one consistent pass.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the middle of the range of values that fall into the bucket
+     */
+    static long bucketMidpoint(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        long lowest = (1L << magnitude) + subBucket * width;
+        return lowest + width / 2;
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        private Snapshot(long[] counts, long total) {
+            this.counts = counts;
+            this.total = total;
+        }
+
+        public long count() {
+            return total;
+        }
+
+        public long valueAtQuantile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketMidpoint(i);
+                }
+            }
+            return bucketMidpoint(counts.length - 1);
+        }
+
+        public double secondsAtQuantile(double quantile) {
+            return valueAtQuantile(quantile) / (double) TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Holds a server's counters, gauges and latency histograms and writes them in the Prometheus text exposition
+ * format.
+ * <p>
+ * Metrics are looked up by name and labels when they are registered, which is meant to happen once; callers
+ * keep the returned {@link Counter} or {@link Histogram} and update it directly, so recording never touches
+ * the registry. Labels are given as alternating names and values. Histograms are exported as summaries with
+ * the {@link #QUANTILES} in seconds.
+ */
+public class MetricsRegistry {
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").children.computeIfAbsent(labelString(labels),
+                key -> new Counter());
+    }
+
+    /**
+     * Exports a count kept elsewhere, such as one of the existing {@code AtomicLong} statistics, as a counter.
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "counter").children.put(labelString(labels), value);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").children.put(labelString(labels), value);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, "summary").children.computeIfAbsent(labelString(labels),
+                key -> new Histogram());
+    }
+
+    /**
+     * @return every metric in the text exposition format, version 0.0.4
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        families.forEach((name, family) -> family.write(name, out));
+        return out.toString();
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labelString(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            escape(labels[i + 1], out);
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    /**
+     * The metrics sharing a name, keyed by their label string.
+     */
+    private static final class Family {
+        private final String help;
+        private final String type;
+        private final Map<String, Object> children = new ConcurrentSkipListMap<>();
+
+        private Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+
+        private void write(String name, StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            children.forEach((labels, metric) -> {
+                switch (metric) {
+                    case Counter counter -> sample(out, name, labels, counter.get());
+                    case Histogram histogram -> writeSummary(out, name, labels, histogram);
+                    case DoubleSupplier supplier -> writeSupplied(out, name, labels, supplier);
+                    default -> throw new IllegalStateException("Unknown metric " + metric);
+                }
+            });
+        }
+
+        private static void writeSummary(StringBuilder out, String name, String labels, Histogram histogram) {
+            Histogram.Snapshot snapshot = histogram.snapshot();
+            String separator = labels.isEmpty() ? "" : ",";
+            for (double quantile : QUANTILES) {
+                sample(out, name, labels + separator + "quantile=\"" + quantile + "\"",
+                        snapshot.secondsAtQuantile(quantile));
+            }
+            sample(out, name + "_sum", labels, histogram.sumNanos() / 1e9);
+            sample(out, name + "_count", labels, snapshot.count());
+        }
+
+        private static void writeSupplied(StringBuilder out, String name, String labels, DoubleSupplier supplier) {
+            double value;
+            try {
+                value = supplier.getAsDouble();
+            } catch (RuntimeException e) {
+                // A source that cannot be read right now is left out of this scrape
+                return;
+            }
+            sample(out, name, labels, value);
+        }
+
+        private static void sample(StringBuilder out, String name, String labels, double value) {
+            out.append(name);
+            if (!labels.isEmpty()) {
+                out.append('{').append(labels).append('}');
+            }
+            out.append(' ');
+            if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+                out.append((long) value);
+            } else {
+                out.append(value);
+            }
+            out.append('\n');
+        }
+    }
+}
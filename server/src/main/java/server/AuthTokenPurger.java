@@ -0,0 +1,134 @@
+package server;
+
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes expired auth tokens in the background so the token store stops growing with every login.
+ * <p>
+ * Each run deletes in batches of a bounded size, one statement each, so no delete holds its locks for long. A run
+ * stops after a fixed number of batches; a large backlog is worked off over several runs rather than in one.
+ */
+public class AuthTokenPurger implements AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_MAX_BATCHES_PER_RUN = 100;
+    public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    private final AuthDAO authDAO;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long createdNanos = System.nanoTime();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong purgedTokens = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long storedTokens = -1;
+    private volatile long lastRunNanos;
+    private ScheduledExecutorService scheduler;
+
+    public AuthTokenPurger(AuthDAO authDAO, int batchSize, int maxBatchesPerRun) {
+        if (batchSize < 1 || maxBatchesPerRun < 1) {
+            throw new IllegalArgumentException("Batch size and batches per run must be positive");
+        }
+        this.authDAO = authDAO;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * Uses the batch size from the {@code chess.auth.purgeBatch} system property.
+     */
+    public static AuthTokenPurger fromSystemProperties(AuthDAO authDAO) {
+        return new AuthTokenPurger(authDAO, Integer.getInteger("chess.auth.purgeBatch", DEFAULT_BATCH_SIZE),
+                DEFAULT_MAX_BATCHES_PER_RUN);
+    }
+
+    void start(long intervalSeconds) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("auth-token-purger").daemon(true).factory());
+        scheduler.scheduleWithFixedDelay(this::run, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Deletes expired tokens until a batch comes back short or the run's batch limit is reached, then samples
+     * the number of tokens left.
+     *
+     * @return the number of tokens deleted
+     */
+    int purge() throws DataAccessException {
+        long start = System.nanoTime();
+        int purged = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int deleted = authDAO.purgeExpired(batchSize);
+                batches.incrementAndGet();
+                purged += deleted;
+                purgedTokens.addAndGet(deleted);
+                if (deleted < batchSize) {
+                    break;
+                }
+            }
+            storedTokens = authDAO.countTokens();
+            return purged;
+        } finally {
+            runs.incrementAndGet();
+            lastRunNanos = System.nanoTime() - start;
+        }
+    }
+
+    public long runs() {
+        return runs.get();
+    }
+
+    public long batches() {
+        return batches.get();
+    }
+
+    public long purgedTokens() {
+        return purgedTokens.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    /**
+     * @return the token count sampled at the end of the last run, or -1 if unknown
+     */
+    public long storedTokens() {
+        return storedTokens;
+    }
+
+    public double lastRunMillis() {
+        return lastRunNanos / 1e6;
+    }
+
+    /**
+     * @return tokens deleted per second since the purger was created
+     */
+    public double purgeRatePerSecond() {
+        double seconds = (System.nanoTime() - createdNanos) / 1e9;
+        return seconds <= 0 ? 0 : purgedTokens.get() / seconds;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void run() {
+        try {
+            purge();
+        } catch (DataAccessException e) {
+            failures.incrementAndGet();
+            System.err.println("Failed to purge expired auth tokens: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package server;
+
+import dataaccess.DataAccess;
+import dataaccess.GameUpdateCoalescer;
+import dataaccess.MoveJournal;
+import dataaccess.MySqlGameDAO;
+import dataaccess.SignedTokenAuthDAO;
+import metrics.MetricsRegistry;
+import service.PasswordHasher;
+import tracing.Tracer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Exports the statistics the server's components already keep, read when the registry is scraped.
+ */
+final class ComponentMetrics {
+    private ComponentMetrics() {
+    }
+
+    /**
+     * @param dataAccess the DAOs as configured, before any instrumentation is wrapped around them
+     * @param journal    the move journal, or null if there is none
+     */
+    static void register(MetricsRegistry metrics, DataAccess dataAccess, MoveJournal journal,
+                         WebSocketHandler webSocket, AuthTokenPurger tokenPurger, Tracer tracer) {
+        registerWebSocket(metrics, webSocket);
+        registerPasswordHasher(metrics, PasswordHasher.defaultHasher());
+
+        metrics.counter("auth_tokens_purged_total", "Expired auth tokens deleted", tokenPurger::purgedTokens);
+        metrics.counter("auth_token_purge_runs_total", "Auth token purge runs", tokenPurger::runs);
+        metrics.counter("auth_token_purge_failures_total", "Auth token purge runs that failed",
+                tokenPurger::failures);
+        metrics.gauge("auth_tokens_stored", "Auth tokens stored, sampled after each purge",
+                tokenPurger::storedTokens);
+        metrics.gauge("auth_token_purge_last_run_seconds", "Duration of the last purge run",
+                () -> tokenPurger.lastRunMillis() / 1000);
+
+        if (dataAccess.authDAO() instanceof SignedTokenAuthDAO signed) {
+            metrics.counter("auth_signed_tokens_verified_total", "Signed tokens accepted", signed::verifiedTokens);
+            metrics.counter("auth_signed_tokens_rejected_total", "Signed tokens turned away",
+                    signed::rejectedTokens);
+            metrics.gauge("auth_signed_tokens_revoked", "Revoked signed tokens not yet expired",
+                    signed::revokedTokens);
+        }
+        metrics.counter("traces_finished_total", "Requests and commands traced", tracer::finishedTraces);
+        metrics.counter("traces_slow_total", "Traces slower than the slow threshold", tracer::slowTracesRecorded);
+        if (journal != null) {
+            registerJournal(metrics, journal);
+        }
+        if (dataAccess.gameDAO() instanceof MySqlGameDAO mySql) {
+            registerCoalescer(metrics, mySql.getUpdateCoalescer());
+        }
+    }
+
+    private static void registerWebSocket(MetricsRegistry metrics, WebSocketHandler webSocket) {
+        OutboundMetrics outbound = webSocket.getOutboundMetrics();
+        metrics.gauge("websocket_sessions", "Open WebSocket sessions", webSocket::trackedSessions);
+        metrics.gauge("websocket_outbound_queue_depth", "Frames waiting in every session's outbound queue",
+                webSocket::outboundQueueDepth);
+        metrics.gauge("websocket_outbound_max_queue_depth", "Deepest any outbound queue has been",
+                outbound::getMaxQueueDepth);
+        metrics.counter("websocket_frames_sent_total", "Frames written to WebSocket sessions",
+                outbound::getSentFrames);
+        metrics.counter("websocket_frames_dropped_total", "Frames dropped for slow consumers",
+                outbound::getDroppedFrames);
+        metrics.counter("websocket_write_failures_total", "Frames that failed to write",
+                outbound::getFailedWrites);
+        metrics.counter("websocket_slow_consumer_disconnects_total", "Sessions closed for falling behind",
+                outbound::getSlowConsumerDisconnects);
+        metrics.counter("websocket_heartbeat_pings_total", "Pings sent to quiet sessions",
+                webSocket::heartbeatPingsSent);
+        metrics.counter("websocket_idle_sessions_reaped_total", "Sessions evicted for not answering pings",
+                webSocket::idleSessionsReaped);
+        metrics.gauge("websocket_game_mailboxes", "Games with commands queued or running",
+                () -> webSocket.getCommandExecutor().activeMailboxes());
+        metrics.gauge("websocket_mailbox_queue_depth", "Commands waiting or running across every game's mailbox",
+                () -> webSocket.getCommandExecutor().totalQueueDepth());
+        metrics.gauge("websocket_mailbox_max_queue_depth", "Commands waiting or running in the busiest game's mailbox",
+                () -> webSocket.getCommandExecutor().deepestQueueDepth());
+        metrics.counter("websocket_command_failures_total", "Commands that threw instead of completing",
+                () -> webSocket.getCommandExecutor().failedCommands());
+    }
+
+    private static void registerPasswordHasher(MetricsRegistry metrics, PasswordHasher hasher) {
+        metrics.counter("bcrypt_operations_total", "Passwords hashed or verified",
+                () -> hasher.hashTiming().count(), "operation", "hash");
+        metrics.counter("bcrypt_operations_total", "Passwords hashed or verified",
+                () -> hasher.verifyTiming().count(), "operation", "verify");
+        metrics.gauge("bcrypt_queue_depth", "Password checks waiting for a worker", hasher::queueDepth);
+        metrics.counter("bcrypt_rejected_total", "Password checks refused because the queue was full",
+                hasher::rejected);
+    }
+
+    private static void registerJournal(MetricsRegistry metrics, MoveJournal journal) {
+        metrics.counter("journal_commits_total", "Group commits to the move journal", journal::commits);
+        metrics.counter("journal_moves_total", "Moves made durable in the journal", journal::journaledMoves);
+        metrics.counter("journal_checkpoints_total", "Times the move journal was emptied after every move was applied",
+                journal::checkpoints);
+        metrics.gauge("journal_size_bytes", "Size of the move journal file", () -> {
+            try {
+                return journal.sizeBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void registerCoalescer(MetricsRegistry metrics, GameUpdateCoalescer coalescer) {
+        metrics.counter("game_updates_submitted_total", "Game updates submitted for batched writing",
+                coalescer::getSubmittedUpdates);
+        metrics.counter("game_updates_superseded_total", "Game updates replaced by a newer one before writing",
+                coalescer::getSupersededUpdates);
+        metrics.counter("game_updates_written_total", "Game updates written", coalescer::getWrittenUpdates);
+        metrics.counter("game_update_flushes_total", "Batches of game updates written", coalescer::getFlushes);
+        metrics.gauge("game_update_batch_size_avg", "Mean game updates per batch", coalescer::getAverageBatchSize);
+        metrics.gauge("game_update_flush_seconds_max", "Slowest batch write",
+                () -> coalescer.getMaxFlushMillis() / 1000);
+    }
+}
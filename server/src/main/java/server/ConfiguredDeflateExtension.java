@@ -0,0 +1,131 @@
+package server;
+
+import org.eclipse.jetty.util.DecoratedObjectFactory;
+import org.eclipse.jetty.util.Decorator;
+import org.eclipse.jetty.util.compression.CompressionPool;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionFactory;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.common.OpCode;
+import org.eclipse.jetty.websocket.common.extensions.compress.PerMessageDeflateExtension;
+import org.eclipse.jetty.websocket.server.WebSocketServerFactory;
+
+/**
+ * Jetty's permessage-deflate, tuned by {@link WebSocketConfig.Compression}.
+ * <p>
+ * Jetty creates one instance per session by reflection, so {@link #install} registers this class in place of
+ * Jetty's own and a decorator hands each new instance its settings before the handshake is negotiated.
+ */
+public class ConfiguredDeflateExtension extends PerMessageDeflateExtension {
+    static final String NAME = "permessage-deflate";
+
+    private WebSocketConfig.Compression compression = WebSocketConfig.Compression.defaults();
+    private DeflaterPool deflaterPool;
+    // Guarded by this; compressed messages the deflater has not finished sending
+    private int compressing;
+
+    /**
+     * Replaces the compression extensions of a WebSocket factory with this one, or removes them all if
+     * compression is disabled. Must be called before the factory starts.
+     *
+     * @param decorators the object factory Jetty creates the factory's extensions with
+     */
+    static void install(WebSocketServerFactory factory, DecoratedObjectFactory decorators,
+                        WebSocketConfig.Compression compression) {
+        ExtensionFactory extensions = factory.getExtensionFactory();
+        // The older per-frame variants are dropped so clients only ever get the configured compression
+        extensions.unregister("deflate-frame");
+        extensions.unregister("x-webkit-deflate-frame");
+        if (!compression.enabled()) {
+            extensions.unregister(NAME);
+            return;
+        }
+
+        DeflaterPool deflaterPool = new DeflaterPool(CompressionPool.INFINITE_CAPACITY, compression.level(), true);
+        decorators.addDecorator(new Decorator() {
+            @Override
+            public <T> T decorate(T o) {
+                if (o instanceof ConfiguredDeflateExtension extension) {
+                    extension.configure(compression, deflaterPool);
+                }
+                return o;
+            }
+
+            @Override
+            public void destroy(Object o) {
+            }
+        });
+        extensions.register(NAME, ConfiguredDeflateExtension.class);
+    }
+
+    void configure(WebSocketConfig.Compression compression, DeflaterPool deflaterPool) {
+        this.compression = compression;
+        this.deflaterPool = deflaterPool;
+    }
+
+    @Override
+    public void setConfig(ExtensionConfig config) {
+        if (!compression.contextTakeover()) {
+            // The server may reset its context even when the client did not ask, as long as it says so
+            config = new ExtensionConfig(config);
+            config.setParameter("server_no_context_takeover");
+        }
+        super.setConfig(config);
+    }
+
+    @Override
+    public void setDeflaterPool(DeflaterPool deflaterPool) {
+        // Jetty's pool always deflates at the default level
+        super.setDeflaterPool(this.deflaterPool != null ? this.deflaterPool : deflaterPool);
+    }
+
+    @Override
+    public void outgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+        boolean wholeMessage = frame.isFin()
+                && (frame.getOpCode() == OpCode.TEXT || frame.getOpCode() == OpCode.BINARY);
+        synchronized (this) {
+            // A message below the threshold goes out as is, unless it would land between the frames of a
+            // compressed message still being sent
+            if (wholeMessage && frame.getPayloadLength() < compression.minMessageBytes() && compressing == 0) {
+                nextOutgoingFrame(frame, callback, batchMode);
+                return;
+            }
+            if (OpCode.isDataFrame(frame.getOpCode())) {
+                compressing++;
+                callback = new CompressedCallback(callback);
+            }
+        }
+        super.outgoingFrame(frame, callback, batchMode);
+    }
+
+    private synchronized void compressed() {
+        compressing--;
+    }
+
+    private class CompressedCallback implements WriteCallback {
+        private final WriteCallback callback;
+
+        CompressedCallback(WriteCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void writeFailed(Throwable x) {
+            compressed();
+            if (callback != null) {
+                callback.writeFailed(x);
+            }
+        }
+
+        @Override
+        public void writeSuccess() {
+            compressed();
+            if (callback != null) {
+                callback.writeSuccess();
+            }
+        }
+    }
+}
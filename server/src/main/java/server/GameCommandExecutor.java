@@ -0,0 +1,166 @@
+package server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs WebSocket commands through a mailbox per game.
+ * Commands for the same game are processed strictly in submission order, one at a time,
+ * while commands for different games run in parallel on virtual threads.
+ */
+public class GameCommandExecutor implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Map<Integer, Mailbox> mailboxes;
+    private final AtomicLong failedCommands = new AtomicLong();
+
+    public GameCommandExecutor() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public GameCommandExecutor(ExecutorService executor) {
+        this.executor = executor;
+        this.mailboxes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Queues a task on the given game's mailbox, starting a drain if the mailbox is idle.
+     */
+    public void submit(int gameID, Runnable task) {
+        Mailbox mailbox = mailboxes.compute(gameID, (id, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox(id);
+            target.enqueue(task);
+            return target;
+        });
+        if (mailbox.running.compareAndSet(false, true)) {
+            executor.execute(mailbox::drain);
+        }
+    }
+
+    /**
+     * @return the number of commands waiting or running for the game, or 0 if it has no mailbox
+     */
+    public int queueDepth(int gameID) {
+        Mailbox mailbox = mailboxes.get(gameID);
+        return mailbox == null ? 0 : mailbox.depth.get();
+    }
+
+    /**
+     * @return the deepest the game's queue has been since its mailbox was created
+     */
+    public int maxQueueDepth(int gameID) {
+        Mailbox mailbox = mailboxes.get(gameID);
+        return mailbox == null ? 0 : mailbox.maxDepth.get();
+    }
+
+    /**
+     * @return a snapshot of the current queue depth of every game with a live mailbox
+     */
+    public Map<Integer, Integer> queueDepths() {
+        Map<Integer, Integer> depths = new HashMap<>();
+        mailboxes.forEach((gameID, mailbox) -> depths.put(gameID, mailbox.depth.get()));
+        return depths;
+    }
+
+    /**
+     * @return the number of commands waiting or running across every game
+     */
+    public int totalQueueDepth() {
+        int total = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            total += mailbox.depth.get();
+        }
+        return total;
+    }
+
+    /**
+     * @return the current queue depth of the game with the most commands waiting or running, which stays high
+     * while a game's commands are stuck
+     */
+    public int deepestQueueDepth() {
+        int deepest = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            deepest = Math.max(deepest, mailbox.depth.get());
+        }
+        return deepest;
+    }
+
+    public int activeMailboxes() {
+        return mailboxes.size();
+    }
+
+    /**
+     * @return the number of commands that threw instead of completing
+     */
+    public long failedCommands() {
+        return failedCommands.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reclaim(Mailbox mailbox) {
+        // Enqueueing also happens inside compute, so an idle mailbox cannot receive work while it is removed
+        mailboxes.compute(mailbox.gameID, (id, existing) ->
+                existing == mailbox && mailbox.isIdle() ? null : existing);
+    }
+
+    private final class Mailbox {
+        private final int gameID;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private Mailbox(int gameID) {
+            this.gameID = gameID;
+        }
+
+        private void enqueue(Runnable task) {
+            tasks.add(task);
+            int current = depth.incrementAndGet();
+            maxDepth.accumulateAndGet(current, Math::max);
+        }
+
+        private boolean isIdle() {
+            return !running.get() && tasks.isEmpty();
+        }
+
+        private void drain() {
+            do {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        failedCommands.incrementAndGet();
+                        System.err.println("Command for game " + gameID + " failed: " + e.getMessage());
+                    } finally {
+                        depth.decrementAndGet();
+                    }
+                }
+                running.set(false);
+                // A task may have been queued after the last poll but before running was cleared
+            } while (!tasks.isEmpty() && running.compareAndSet(false, true));
+            reclaim(this);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package server;
+
+import websocket.messages.ServerMessage;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Numbers the messages broadcast to one game and keeps the most recent ones in a ring buffer,
+ * so a client that reconnects can be sent just the messages it missed.
+ */
+class GameReplayBuffer {
+    private final Entry[] ring;
+    private long sequence;
+    private long lastActivityMillis;
+
+    GameReplayBuffer(int capacity) {
+        this.ring = new Entry[capacity];
+        this.lastActivityMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Assigns the next sequence number to a broadcast, encodes it once and records the encoded payload.
+     *
+     * @param excludedUsername user the broadcast is not meant for, or null if it goes to everyone
+     * @return the encoded payload to send
+     */
+    synchronized String publish(ServerMessage message, Function<ServerMessage, String> encoder,
+                                String excludedUsername) {
+        sequence++;
+        message.setSequence(sequence);
+        String payload = encoder.apply(message);
+        ring[(int) (sequence % ring.length)] =
+                new Entry(sequence, message.getServerMessageType(), payload, excludedUsername);
+        lastActivityMillis = System.currentTimeMillis();
+        return payload;
+    }
+
+    synchronized long currentSequence() {
+        return sequence;
+    }
+
+    synchronized long lastActivityMillis() {
+        return lastActivityMillis;
+    }
+
+    /**
+     * @return the entries after {@code lastSequence} meant for the user, oldest first,
+     * or null if some of them have already been overwritten
+     */
+    synchronized List<Entry> since(long lastSequence, String username) {
+        if (lastSequence > sequence || sequence - lastSequence > ring.length) {
+            return null;
+        }
+        List<Entry> missed = new ArrayList<>();
+        for (long seq = lastSequence + 1; seq <= sequence; seq++) {
+            Entry entry = ring[(int) (seq % ring.length)];
+            if (!Objects.equals(entry.excludedUsername(), username)) {
+                missed.add(entry);
+            }
+        }
+        return missed;
+    }
+
+    record Entry(long sequence, ServerMessageType type, String payload, String excludedUsername) {}
+}
@@ -0,0 +1,92 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which WebSocket sessions are connected to which games, in both directions.
+ * The reverse index lets a disconnect touch only the games the session joined rather than every live game,
+ * and a game's entry is removed as soon as its last session leaves.
+ * <p>
+ * Updates for one session are serialized on that session so a disconnect racing a CONNECT
+ * cannot leave the session in one index but not the other.
+ */
+public class GameSubscriptions {
+    private final Map<Integer, Set<Session>> gameSessions = new ConcurrentHashMap<>();
+    private final Map<Session, Set<Integer>> sessionGames = new ConcurrentHashMap<>();
+
+    public void subscribe(int gameID, Session session) {
+        synchronized (session) {
+            gameSessions.compute(gameID, (id, sessions) -> {
+                Set<Session> target = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+                target.add(session);
+                return target;
+            });
+            sessionGames.compute(session, (s, games) -> {
+                Set<Integer> target = games != null ? games : ConcurrentHashMap.newKeySet();
+                target.add(gameID);
+                return target;
+            });
+        }
+    }
+
+    public void unsubscribe(int gameID, Session session) {
+        synchronized (session) {
+            removeFromGame(gameID, session);
+            sessionGames.computeIfPresent(session, (s, games) -> {
+                games.remove(gameID);
+                return games.isEmpty() ? null : games;
+            });
+        }
+    }
+
+    /**
+     * Removes a session from every game it was subscribed to.
+     *
+     * @return the IDs of the games the session was connected to
+     */
+    public Set<Integer> removeSession(Session session) {
+        synchronized (session) {
+            Set<Integer> games = sessionGames.remove(session);
+            if (games == null) {
+                return Set.of();
+            }
+            for (int gameID : games) {
+                removeFromGame(gameID, session);
+            }
+            return games;
+        }
+    }
+
+    /**
+     * @return a live view of the sessions connected to a game, or an empty set if there are none
+     */
+    public Set<Session> sessions(int gameID) {
+        Set<Session> sessions = gameSessions.get(gameID);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+
+    public Set<Integer> games(Session session) {
+        Set<Integer> games = sessionGames.get(session);
+        return games != null ? games : Collections.emptySet();
+    }
+
+    public int gameCount() {
+        return gameSessions.size();
+    }
+
+    public int sessionCount() {
+        return sessionGames.size();
+    }
+
+    private void removeFromGame(int gameID, Session session) {
+        gameSessions.computeIfPresent(gameID, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
@@ -2,36 +2,136 @@ package server;
 
 import com.google.gson.Gson;
 import dataaccess.*;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 import spark.*;
+import tracing.Trace;
+import tracing.Tracer;
 import service.*;
 import request.*;
 import result.*;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class HTTPHandler {
     private final UserService userService;
     private final AuthService authService;
     private final GameService gameService;
     private final Gson gson;
+    private final MetricsRegistry metrics;
+    private final Tracer tracer;
+    private final boolean tracesEndpoint;
 
-    public HTTPHandler() {
-        UserDAO userDAO = new MySqlUserDAO();
-        AuthDAO authDAO = new MySqlAuthDAO();
-        GameDAO gameDAO = new MySqlGameDAO();
+    public HTTPHandler(DataAccess dataAccess, GameService gameService) {
+        this(dataAccess, gameService, new MetricsRegistry(), Tracer.fromSystemProperties());
+    }
 
-        this.userService = new UserService(userDAO, authDAO);
-        this.authService = new AuthService(userDAO, authDAO);
-        this.gameService = new GameService(gameDAO, authDAO);
+    /**
+     * The {@code GET /metrics} scrape is served without authentication so monitoring can reach it. Slow traces
+     * show request details, so {@code GET /debug/traces} is only served when {@code chess.trace.endpoint} is true.
+     *
+     * @param metrics where request timings are recorded, and what {@code GET /metrics} serves
+     * @param tracer  traces every request; {@code GET /debug/traces} shows the slow ones it kept
+     */
+    public HTTPHandler(DataAccess dataAccess, GameService gameService, MetricsRegistry metrics, Tracer tracer) {
+        this.userService = new UserService(dataAccess.userDAO(), dataAccess.authDAO());
+        this.authService = new AuthService(dataAccess.userDAO(), dataAccess.authDAO());
+        this.gameService = gameService;
         this.gson = new Gson();
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.tracesEndpoint = Boolean.getBoolean("chess.trace.endpoint");
     }
 
     public void registerEndpoints() {
-        Spark.delete("/db", this::handleClearDatabase);
-        Spark.post("/user", this::handleRegisterUser);
-        Spark.post("/session", this::handleLoginUser);
-        Spark.delete("/session", this::handleLogoutUser);
-        Spark.get("/game", this::handleListGames);
-        Spark.post("/game", this::handleCreateGame);
-        Spark.put("/game", this::handleJoinGame);
+        Spark.delete("/db", timed("DELETE /db", this::handleClearDatabase));
+        Spark.post("/user", timed("POST /user", this::handleRegisterUser));
+        Spark.post("/session", timed("POST /session", this::handleLoginUser));
+        Spark.delete("/session", timed("DELETE /session", this::handleLogoutUser));
+        Spark.get("/game", timed("GET /game", this::handleListGames));
+        Spark.get("/game/:id", timed("GET /game/:id", this::handleGetGame));
+        Spark.post("/game", timed("POST /game", this::handleCreateGame));
+        Spark.put("/game", timed("PUT /game", this::handleJoinGame));
+        Spark.get("/metrics", this::handleMetrics);
+        if (tracesEndpoint) {
+            Spark.get("/debug/traces", this::handleSlowTraces);
+        }
+    }
+
+    /**
+     * Builds the JSON adapters for every request and result up front, so the first requests after a restart
+     * do not pay for reflecting over them.
+     */
+    void warmUp() {
+        Class<?>[] types = {RegisterRequest.class, LoginRequest.class, CreateGameRequest.class,
+            JoinGameRequest.class, RegisterResult.class, LoginResult.class, ListGamesResult.class,
+            GetGameResult.class, CreateGameResult.class, ErrorResult.class};
+        for (Class<?> type : types) {
+            gson.getAdapter(type);
+        }
+    }
+
+    /**
+     * Wraps a route so it is traced, its latency is recorded and its responses are counted by status. A route
+     * that throws is counted as a 500, which is what the global exception handler sends.
+     */
+    private Route timed(String route, Route handler) {
+        Histogram latency = metrics.histogram("http_request_duration_seconds", "Time spent handling HTTP requests",
+                "route", route);
+        Map<Integer, Counter> responses = new ConcurrentHashMap<>();
+        return (request, response) -> {
+            long start = System.nanoTime();
+            Trace trace = tracer.start(route);
+            int status = 500;
+            try (Trace.Scope active = trace.activate()) {
+                Object body = handler.handle(request, response);
+                status = response.raw().getStatus();
+                return body;
+            } finally {
+                latency.recordSince(start);
+                trace.outcome("status " + status);
+                tracer.finish(trace);
+                responses.computeIfAbsent(status, code -> metrics.counter("http_responses_total",
+                        "HTTP responses by route and status", "route", route, "status", Integer.toString(code)))
+                        .increment();
+            }
+        };
+    }
+
+    private Object handleMetrics(Request request, Response response) {
+        response.type("text/plain; version=0.0.4; charset=utf-8");
+        return metrics.scrape();
+    }
+
+    private Object handleSlowTraces(Request request, Response response) {
+        response.type("text/plain; charset=utf-8");
+        return tracer.describeSlowTraces();
+    }
+
+    /**
+     * Parses a request body, timed as a span of the request's trace.
+     */
+    private <T> T fromJson(Request request, Class<T> type) {
+        long start = System.nanoTime();
+        try {
+            return gson.fromJson(request.body(), type);
+        } finally {
+            Tracer.record("json.parse", start);
+        }
+    }
+
+    /**
+     * Encodes a response body, timed as a span of the request's trace.
+     */
+    private String toJson(Object result) {
+        long start = System.nanoTime();
+        try {
+            return gson.toJson(result);
+        } finally {
+            Tracer.record("json.write", start);
+        }
     }
 
     private Object handleClearDatabase(Request request, Response response) {
@@ -48,10 +148,10 @@ public class HTTPHandler {
 
     private Object handleRegisterUser(Request request, Response response) {
         try {
-            var registerRequest = gson.fromJson(request.body(), RegisterRequest.class);
+            var registerRequest = fromJson(request, RegisterRequest.class);
             RegisterResult result = userService.register(registerRequest);
             response.status(200);
-            return gson.toJson(result);
+            return toJson(result);
         } catch (DataAccessException e) {
             return handleException(e, response);
         }
@@ -59,10 +159,10 @@ public class HTTPHandler {
 
     private Object handleLoginUser(Request request, Response response) {
         try {
-            var loginRequest = gson.fromJson(request.body(), LoginRequest.class);
+            var loginRequest = fromJson(request, LoginRequest.class);
             LoginResult result = authService.login(loginRequest);
             response.status(200);
-            return gson.toJson(result);
+            return toJson(result);
         } catch (DataAccessException e) {
             return handleException(e, response);
         }
@@ -84,19 +184,34 @@ public class HTTPHandler {
             String authToken = request.headers("Authorization");
             ListGamesResult result = gameService.listGames(authToken);
             response.status(200);
-            return gson.toJson(result);
+            return toJson(result);
         } catch (DataAccessException e) {
             return handleException(e, response);
         }
     }
 
+    private Object handleGetGame(Request request, Response response) {
+        try {
+            String authToken = request.headers("Authorization");
+            int gameID = Integer.parseInt(request.params(":id"));
+            GetGameResult result = gameService.getGame(gameID, authToken);
+            response.status(200);
+            return toJson(result);
+        } catch (DataAccessException e) {
+            return handleException(e, response);
+        } catch (NumberFormatException e) {
+            response.status(400);
+            return gson.toJson(new ErrorResult("Error: bad request"));
+        }
+    }
+
     private Object handleCreateGame(Request request, Response response) {
         try {
             String authToken = request.headers("Authorization");
-            var createGameRequest = gson.fromJson(request.body(), CreateGameRequest.class);
+            var createGameRequest = fromJson(request, CreateGameRequest.class);
             CreateGameResult result = gameService.createGame(createGameRequest, authToken);
             response.status(200);
-            return gson.toJson(result);
+            return toJson(result);
         } catch (DataAccessException e) {
             return handleException(e, response);
         }
@@ -105,7 +220,7 @@ public class HTTPHandler {
     private Object handleJoinGame(Request request, Response response) {
         try {
             String authToken = request.headers("Authorization");
-            var joinGameRequest = gson.fromJson(request.body(), JoinGameRequest.class);
+            var joinGameRequest = fromJson(request, JoinGameRequest.class);
             gameService.joinGame(joinGameRequest, authToken);
             response.status(200);
             return "{}";
@@ -119,7 +234,11 @@ public class HTTPHandler {
 
     private Object handleException(DataAccessException e, Response response) {
         ErrorResult errorResult = new ErrorResult(e.getMessage());
-        response.status(determineHttpStatus(e));
+        int status = determineHttpStatus(e);
+        response.status(status);
+        if (status == 503) {
+            response.header("Retry-After", "1");
+        }
         return gson.toJson(errorResult);
     }
 
@@ -134,6 +253,15 @@ public class HTTPHandler {
         if (message.contains("already taken")) {
             return 403;
         }
+        if (message.contains("not found")) {
+            return 404;
+        }
+        if (message.contains("conflict")) {
+            return 409;
+        }
+        if (message.contains("server busy")) {
+            return 503;
+        }
         return 500;
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters shared by every session outbox on a WebSocket endpoint.
+ */
+public class OutboundMetrics {
+    private final AtomicLong sentFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    void recordSent() {
+        sentFrames.incrementAndGet();
+    }
+
+    void recordDropped(int frames) {
+        droppedFrames.addAndGet(frames);
+    }
+
+    void recordFailedWrite() {
+        failedWrites.incrementAndGet();
+    }
+
+    void recordSlowConsumerDisconnect() {
+        slowConsumerDisconnects.incrementAndGet();
+    }
+
+    void recordQueueDepth(int depth) {
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    public long getSentFrames() {
+        return sentFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.get();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+}
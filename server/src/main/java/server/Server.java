@@ -1,46 +1,116 @@
 package server;
 
 import com.google.gson.Gson;
-import dataaccess.AuthDAO;
-import dataaccess.GameDAO;
-import dataaccess.MySqlAuthDAO;
-import dataaccess.MySqlGameDAO;
-import dataaccess.DatabaseManager;
+import dataaccess.AsyncDataAccess;
+import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
+import dataaccess.MoveJournal;
+import metrics.MetricsRegistry;
 import result.ErrorResult;
 import service.GameService;
+import service.PasswordHasher;
+import tracing.Tracer;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import spark.*;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Server {
+    public static final long DEFAULT_ARCHIVE_INTERVAL_SECONDS = 60;
+
     private final HTTPHandler httpHandler;
     private final WebSocketHandler webSocketHandler;
+    private final WebSocketConfig webSocketConfig;
     private final GameService gameService;
     private final Gson gson;
+    private final DataAccess dataAccess;
+    private final MoveJournal moveJournal;
+    private final ThreadPool threadPool;
+    private final AuthTokenPurger tokenPurger;
+    private final MetricsRegistry metrics;
+    private final Tracer tracer;
+    private ScheduledExecutorService archiver;
+    private StartupTimings startupTimings;
 
     public Server() {
-        GameDAO gameDAO = new MySqlGameDAO();
-        AuthDAO authDAO = new MySqlAuthDAO();
-        this.gameService = new GameService(gameDAO, authDAO);
-        this.httpHandler = new HTTPHandler();
-        this.webSocketHandler = new WebSocketHandler(gameService);
+        this(new VirtualThreadPool());
+    }
+
+    public Server(ThreadPool threadPool) {
+        this(DataAccess.fromSystemProperties(), threadPool);
+    }
+
+    /**
+     * @param dataAccess the DAOs to store users, auth tokens and games in
+     * @param threadPool the pool Jetty runs HTTP and WebSocket handlers on
+     */
+    public Server(DataAccess dataAccess, ThreadPool threadPool) {
+        this.metrics = new MetricsRegistry();
+        this.tracer = Tracer.fromSystemProperties();
+        this.dataAccess = dataAccess.instrumented(metrics);
+        try {
+            // -Dchess.journal=<file> acknowledges moves once they are durable in a write-ahead journal
+            this.moveJournal = MoveJournal.fromSystemProperties();
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Unable to open move journal. " + e.getMessage());
+        }
+        this.gameService = new GameService(this.dataAccess.gameDAO(), this.dataAccess.authDAO(),
+                AsyncDataAccess.defaultExecutor(), moveJournal, metrics);
+        this.httpHandler = new HTTPHandler(this.dataAccess, gameService, metrics, tracer);
+        this.webSocketConfig = WebSocketConfig.fromSystemProperties();
+        this.webSocketHandler = new WebSocketHandler(gameService, webSocketConfig, metrics, tracer);
         this.gson = new Gson();
+        this.threadPool = threadPool;
+        this.tokenPurger = AuthTokenPurger.fromSystemProperties(this.dataAccess.authDAO());
+        ComponentMetrics.register(metrics, dataAccess, moveJournal, webSocketHandler, tokenPurger, tracer);
     }
 
     public int run(int desiredPort) {
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory(new WebSocketJettyServerFactory(webSocketConfig.compression()))
+                        .withThreadPool(threadPool));
         Spark.port(desiredPort);
 
+        // Caches are warmed while storage is prepared; neither depends on the other
+        startupTimings = new StartupTimings();
+        CompletableFuture<Void> warmUp = CompletableFuture.allOf(
+                startupTimings.timeAsync("json adapters", () -> {
+                    httpHandler.warmUp();
+                    webSocketHandler.warmUp();
+                }),
+                startupTimings.timeAsync("password hasher", () -> PasswordHasher.defaultHasher().warmUp()));
         try {
-            DatabaseManager.createDatabase();
-            DatabaseManager.createTables();
+            startupTimings.time("storage", dataAccess::initialize);
+            if (moveJournal != null) {
+                startupTimings.time("journal replay", () -> {
+                    int replayed = moveJournal.replay(dataAccess.gameDAO());
+                    if (replayed > 0) {
+                        System.err.println("Replayed " + replayed + " journaled moves");
+                    }
+                });
+            }
         } catch (DataAccessException e) {
             System.err.println("Failed to initialize database: " + e.getMessage());
             return -1;
         }
 
+        // Finished games are moved out of the hot store every -Dchess.archive.intervalSeconds
+        long archiveInterval = Long.getLong("chess.archive.intervalSeconds", DEFAULT_ARCHIVE_INTERVAL_SECONDS);
+        archiver = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("game-archiver").daemon(true).factory());
+        archiver.scheduleWithFixedDelay(this::archiveFinishedGames, archiveInterval, archiveInterval, TimeUnit.SECONDS);
+        // Expired auth tokens are deleted every -Dchess.auth.purgeIntervalSeconds
+        tokenPurger.start(Long.getLong("chess.auth.purgeIntervalSeconds", AuthTokenPurger.DEFAULT_INTERVAL_SECONDS));
+
         // Configure static file location
         Spark.staticFiles.location("/web");
 
-        // Set up WebSocket endpoint
+        // Set up WebSocket endpoint; permessage-deflate is negotiated as set by -Dchess.ws.compression*
         Spark.webSocket("/ws", webSocketHandler);
 
         // Set up HTTP endpoints
@@ -53,12 +123,60 @@ public class Server {
             res.body(gson.toJson(new ErrorResult("Internal server error: " + e.getMessage())));
         });
 
-        Spark.awaitInitialization();
+        startupTimings.time("http", Spark::awaitInitialization);
+        warmUp.join();
+        startupTimings.finish();
+        System.err.println(startupTimings);
         return Spark.port();
     }
 
+    /**
+     * @return how long each step of the last {@link #run} took, or null if the server has not been run
+     */
+    public StartupTimings getStartupTimings() {
+        return startupTimings;
+    }
+
+    /**
+     * @return the registry served at {@code GET /metrics}
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    public AuthTokenPurger getTokenPurger() {
+        return tokenPurger;
+    }
+
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        if (archiver != null) {
+            archiver.shutdownNow();
+        }
+        tokenPurger.close();
+        webSocketHandler.close();
+        if (moveJournal != null) {
+            try {
+                gameService.awaitPendingWrites();
+            } catch (DataAccessException e) {
+                // The moves are still in the journal and are replayed on the next start
+                System.err.println("Failed to write journaled moves: " + e.getMessage());
+            }
+            moveJournal.close();
+        }
+        dataAccess.close();
+    }
+
+    private void archiveFinishedGames() {
+        try {
+            gameService.archiveFinishedGames();
+        } catch (DataAccessException e) {
+            System.err.println("Failed to archive finished games: " + e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded outbound queue for one WebSocket session.
+ * Frames are written with Jetty's asynchronous send, one at a time and in order,
+ * so a slow client only ever backs up its own queue and never the thread broadcasting to a game.
+ */
+class SessionOutbox {
+    private final Session session;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final OutboundMetrics metrics;
+    private final Deque<Frame> queue = new ArrayDeque<>();
+    private boolean writing;
+    private boolean closed;
+
+    SessionOutbox(Session session, int capacity, SlowConsumerPolicy policy, OutboundMetrics metrics) {
+        this.session = session;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Queues a frame and starts writing if no write is in flight. Never blocks on the network.
+     */
+    void enqueue(ServerMessageType type, String payload) {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= capacity && !makeRoom(type)) {
+                closed = true;
+                disconnect = true;
+                metrics.recordDropped(queue.size() + 1);
+                queue.clear();
+            } else {
+                queue.add(new Frame(type, payload));
+                metrics.recordQueueDepth(queue.size());
+                if (writing) {
+                    return;
+                }
+                writing = true;
+            }
+        }
+
+        if (disconnect) {
+            metrics.recordSlowConsumerDisconnect();
+            session.close(StatusCode.POLICY_VIOLATION, "Slow consumer");
+            return;
+        }
+        writeNext();
+    }
+
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private boolean makeRoom(ServerMessageType incoming) {
+        if (policy == SlowConsumerPolicy.DISCONNECT) {
+            return false;
+        }
+
+        int dropped = 0;
+        if (incoming == ServerMessageType.LOAD_GAME) {
+            // A newer board makes every queued board obsolete
+            Iterator<Frame> frames = queue.iterator();
+            while (frames.hasNext()) {
+                if (frames.next().type() == ServerMessageType.LOAD_GAME) {
+                    frames.remove();
+                    dropped++;
+                }
+            }
+        }
+        while (queue.size() >= capacity) {
+            queue.poll();
+            dropped++;
+        }
+        metrics.recordDropped(dropped);
+        return true;
+    }
+
+    private void writeNext() {
+        while (true) {
+            Frame frame;
+            synchronized (this) {
+                frame = closed ? null : queue.poll();
+                if (frame == null) {
+                    writing = false;
+                    return;
+                }
+            }
+
+            Write write = new Write();
+            try {
+                session.getRemote().sendString(frame.payload(), write);
+            } catch (RuntimeException e) {
+                // Jetty throws rather than calling back when the connection is already gone
+                onWriteFailed(e);
+                return;
+            }
+            if (!write.returnedToCaller()) {
+                // Still in flight; its callback picks up the next frame
+                return;
+            }
+            if (write.failed) {
+                return;
+            }
+        }
+    }
+
+    private void onWriteFailed(Throwable cause) {
+        metrics.recordFailedWrite();
+        synchronized (this) {
+            metrics.recordDropped(queue.size());
+            closed = true;
+            writing = false;
+            queue.clear();
+        }
+        System.err.println("WebSocket write failed: " + cause.getMessage());
+    }
+
+    private record Frame(ServerMessageType type, String payload) {}
+
+    /**
+     * Callback for a single write. Jetty may complete the write before sendString returns,
+     * so whichever of the caller or the callback finishes second moves on to the next frame.
+     */
+    private final class Write implements WriteCallback {
+        private final AtomicInteger arrivals = new AtomicInteger();
+        private volatile boolean failed;
+
+        boolean returnedToCaller() {
+            return arrivals.incrementAndGet() == 2;
+        }
+
+        @Override
+        public void writeSuccess() {
+            metrics.recordSent();
+            if (arrivals.incrementAndGet() == 2) {
+                writeNext();
+            }
+        }
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            failed = true;
+            onWriteFailed(cause);
+            arrivals.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects half-open WebSocket connections by pinging quiet sessions and evicting those that stay silent.
+ * <p>
+ * Sessions sit in the slots of a hashed timer wheel keyed by when they next need checking, so each tick
+ * only looks at the sessions due in that slot. Activity just stamps a timestamp; a session is moved to a
+ * later slot when its slot comes round and it turns out to have been active in the meantime.
+ */
+class SessionReaper implements AutoCloseable {
+    private static final int WHEEL_SIZE = 512;
+
+    private final long tickMillis;
+    private final long heartbeatIntervalMillis;
+    private final long idleTimeoutMillis;
+    private final Consumer<Session> pinger;
+    private final Consumer<List<Session>> evictor;
+    private final LongSupplier clock;
+    private final Map<Session, Activity> activity = new ConcurrentHashMap<>();
+    private final List<Set<Session>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final AtomicLong pingsSent = new AtomicLong();
+    private final AtomicLong sessionsReaped = new AtomicLong();
+    private long cursorTick;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param pinger  sends a heartbeat ping to a session that has been quiet for a heartbeat interval
+     * @param evictor closes and cleans up the sessions that exceeded the idle timeout on a tick
+     */
+    SessionReaper(long heartbeatIntervalMillis, long idleTimeoutMillis, Consumer<Session> pinger,
+                  Consumer<List<Session>> evictor, LongSupplier clock) {
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.tickMillis = Math.max(10, Math.min(heartbeatIntervalMillis, idleTimeoutMillis) / 10);
+        this.pinger = pinger;
+        this.evictor = evictor;
+        this.clock = clock;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+        this.cursorTick = clock.getAsLong() / tickMillis;
+    }
+
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "websocket-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void register(Session session) {
+        long now = clock.getAsLong();
+        activity.put(session, new Activity(now));
+        schedule(session, now + heartbeatIntervalMillis);
+    }
+
+    /**
+     * Records that the session showed signs of life, such as a command or a pong.
+     */
+    void touch(Session session) {
+        Activity current = activity.get(session);
+        if (current != null) {
+            current.lastSeenMillis = clock.getAsLong();
+        }
+    }
+
+    void unregister(Session session) {
+        // The wheel slot entry is dropped when its slot is next processed
+        activity.remove(session);
+    }
+
+    int trackedSessions() {
+        return activity.size();
+    }
+
+    long pingsSent() {
+        return pingsSent.get();
+    }
+
+    long sessionsReaped() {
+        return sessionsReaped.get();
+    }
+
+    void tick() {
+        List<Session> expired = sweep(clock.getAsLong());
+        if (!expired.isEmpty()) {
+            sessionsReaped.addAndGet(expired.size());
+            // Evict outside the lock; closing a session calls back into unregister
+            evictor.accept(expired);
+        }
+    }
+
+    private synchronized List<Session> sweep(long now) {
+        long targetTick = now / tickMillis;
+        // Never sweep more than one full turn; every slot is covered by then
+        long firstTick = Math.max(cursorTick + 1, targetTick - WHEEL_SIZE + 1);
+        // Advance first so sessions rescheduled below land in a later slot rather than the one being swept
+        cursorTick = Math.max(cursorTick, targetTick);
+
+        List<Session> expired = new ArrayList<>();
+        for (long tick = firstTick; tick <= targetTick; tick++) {
+            Set<Session> slot = wheel.get((int) (tick % WHEEL_SIZE));
+            List<Session> due = new ArrayList<>(slot);
+            slot.removeAll(due);
+            for (Session session : due) {
+                check(session, now, expired);
+            }
+        }
+        expired.forEach(activity::remove);
+        return expired;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void check(Session session, long now, List<Session> expired) {
+        Activity current = activity.get(session);
+        if (current == null) {
+            return;
+        }
+
+        long idle = now - current.lastSeenMillis;
+        if (idle >= idleTimeoutMillis) {
+            expired.add(session);
+            return;
+        }
+        if (idle >= heartbeatIntervalMillis) {
+            pingsSent.incrementAndGet();
+            pinger.accept(session);
+        }
+        long nextCheck = Math.min(current.lastSeenMillis + idleTimeoutMillis, now + heartbeatIntervalMillis);
+        schedule(session, nextCheck);
+    }
+
+    private void schedule(Session session, long dueMillis) {
+        long dueTick;
+        synchronized (this) {
+            dueTick = Math.max(dueMillis / tickMillis, cursorTick + 1);
+        }
+        wheel.get((int) (dueTick % WHEEL_SIZE)).add(session);
+    }
+
+    private static final class Activity {
+        private volatile long lastSeenMillis;
+
+        private Activity(long lastSeenMillis) {
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+}
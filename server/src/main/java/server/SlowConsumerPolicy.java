@@ -0,0 +1,15 @@
+package server;
+
+/**
+ * What a session's outbound queue does when a client reads more slowly than the game produces messages.
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * Discard queued LOAD_GAME frames that a newer board supersedes, then the oldest frames if still full.
+     */
+    DROP_STALE_BOARDS,
+    /**
+     * Close the connection once its queue is full.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,78 @@
+package server;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long each step of server startup took. Steps started with {@link #timeAsync} run alongside the others,
+ * so the steps can add up to more than the total.
+ */
+public class StartupTimings {
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stepNanos = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile long totalNanos = -1;
+
+    @FunctionalInterface
+    interface Step<E extends Exception> {
+        void run() throws E;
+    }
+
+    <E extends Exception> void time(String step, Step<E> work) throws E {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            stepNanos.put(step, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs a step on its own virtual thread. A step that fails is logged rather than failing startup, so only
+     * work the server can run without, such as warming caches, belongs here.
+     */
+    CompletableFuture<Void> timeAsync(String step, Runnable work) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                time(step, work::run);
+            } catch (RuntimeException e) {
+                System.err.println("Startup step " + step + " failed: " + e.getMessage());
+            }
+        }, runnable -> Thread.ofVirtual().name("startup-" + step).start(runnable));
+    }
+
+    void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return each step's duration in milliseconds, in the order the steps finished
+     */
+    public Map<String, Long> stepMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        synchronized (stepNanos) {
+            stepNanos.forEach((step, nanos) -> millis.put(step, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        }
+        return millis;
+    }
+
+    /**
+     * @return the time from construction to {@link #finish}, or -1 if startup has not finished
+     */
+    public long totalMillis() {
+        return totalNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("Started in ").append(totalMillis()).append(" ms (");
+        String separator = "";
+        for (Map.Entry<String, Long> step : stepMillis().entrySet()) {
+            summary.append(separator).append(step.getKey()).append(' ').append(step.getValue()).append(" ms");
+            separator = ", ";
+        }
+        return summary.append(')').toString();
+    }
+}
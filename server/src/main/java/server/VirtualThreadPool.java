@@ -0,0 +1,96 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A Jetty thread pool that runs request handling on virtual threads.
+ * <p>
+ * Handlers spend most of their time blocked on JDBC and bcrypt; on a virtual thread that blocking only
+ * parks the thread, so concurrency is no longer capped by a fixed number of platform threads.
+ * <p>
+ * Jetty's acceptor and selector loops cannot move: a virtual thread blocked in {@code Selector.select}
+ * pins its carrier and stalls every other virtual thread scheduled on it. Those loops are the jobs
+ * submitted from outside the pool while the server starts, so they get platform threads; everything the
+ * loops submit in turn, such as reading and handling a request, gets a virtual thread.
+ * The pool deliberately does not offer {@code tryExecute}, which keeps Jetty from handing the selector
+ * loop itself to a pooled thread.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final Thread.Builder loopThreads = Thread.ofPlatform().name("jetty-loop-", 0).daemon(true);
+    private final Thread.Builder virtualThreads = Thread.ofVirtual().name("jetty-virtual-", 0);
+    private final Set<Thread> platformThreads = ConcurrentHashMap.newKeySet();
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private volatile CountDownLatch stopped = new CountDownLatch(1);
+
+    public VirtualThreadPool() {
+        setStopTimeout(5_000);
+    }
+
+    @Override
+    protected void doStart() {
+        stopped = new CountDownLatch(1);
+    }
+
+    @Override
+    protected void doStop() throws InterruptedException {
+        // Give in-flight requests a chance to finish before interrupting whatever is left
+        long deadline = System.currentTimeMillis() + getStopTimeout();
+        for (Thread thread : threads) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !thread.join(Duration.ofMillis(remaining))) {
+                thread.interrupt();
+            }
+        }
+        stopped.countDown();
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        if (!isRunning()) {
+            throw new RejectedExecutionException("Thread pool is " + getState());
+        }
+        Thread caller = Thread.currentThread();
+        boolean fromPool = caller.isVirtual() || platformThreads.contains(caller);
+        Thread thread = (fromPool ? virtualThreads : loopThreads).unstarted(() -> {
+            try {
+                job.run();
+            } finally {
+                threads.remove(Thread.currentThread());
+                platformThreads.remove(Thread.currentThread());
+            }
+        });
+        threads.add(thread);
+        if (!fromPool) {
+            platformThreads.add(thread);
+        }
+        thread.start();
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public int getThreads() {
+        return threads.size();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        // Threads are created per job and never sit idle
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
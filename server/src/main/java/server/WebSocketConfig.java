@@ -0,0 +1,116 @@
+package server;
+
+import java.util.zip.Deflater;
+
+/**
+ * Tuning for the WebSocket endpoint.
+ *
+ * @param outboundQueueCapacity   frames a session may have waiting before the slow-consumer policy applies
+ * @param slowConsumerPolicy      what to do when a session's outbound queue is full
+ * @param heartbeatIntervalMillis how long a session may be quiet before it is pinged
+ * @param idleTimeoutMillis       how long a session may be quiet before it is evicted as dead
+ * @param compression             how permessage-deflate is negotiated with clients that offer it
+ */
+public record WebSocketConfig(int outboundQueueCapacity, SlowConsumerPolicy slowConsumerPolicy,
+                              long heartbeatIntervalMillis, long idleTimeoutMillis, Compression compression) {
+    public static final int DEFAULT_OUTBOUND_QUEUE_CAPACITY = 64;
+    public static final SlowConsumerPolicy DEFAULT_SLOW_CONSUMER_POLICY = SlowConsumerPolicy.DROP_STALE_BOARDS;
+    public static final long DEFAULT_HEARTBEAT_INTERVAL_MILLIS = 30_000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 90_000;
+
+    public WebSocketConfig {
+        if (outboundQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Outbound queue capacity must be positive");
+        }
+        if (heartbeatIntervalMillis <= 0 || idleTimeoutMillis <= heartbeatIntervalMillis) {
+            throw new IllegalArgumentException("Idle timeout must be longer than a positive heartbeat interval");
+        }
+        if (compression == null) {
+            throw new IllegalArgumentException("Compression settings are required");
+        }
+    }
+
+    public WebSocketConfig(int outboundQueueCapacity, SlowConsumerPolicy slowConsumerPolicy,
+                           long heartbeatIntervalMillis, long idleTimeoutMillis) {
+        this(outboundQueueCapacity, slowConsumerPolicy, heartbeatIntervalMillis, idleTimeoutMillis,
+                Compression.defaults());
+    }
+
+    public static WebSocketConfig defaults() {
+        return new WebSocketConfig(DEFAULT_OUTBOUND_QUEUE_CAPACITY, DEFAULT_SLOW_CONSUMER_POLICY,
+                DEFAULT_HEARTBEAT_INTERVAL_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS, Compression.defaults());
+    }
+
+    /**
+     * Reads the queue capacity from {@code chess.ws.queueCapacity}, the policy from
+     * {@code chess.ws.slowConsumerPolicy} (a {@link SlowConsumerPolicy} name), the heartbeat interval from
+     * {@code chess.ws.heartbeatMillis}, the idle timeout from {@code chess.ws.idleTimeoutMillis} and the
+     * compression settings as in {@link Compression#fromSystemProperties}, falling back to the
+     * {@linkplain #defaults defaults} for any that are unset.
+     */
+    public static WebSocketConfig fromSystemProperties() {
+        String policy = System.getProperty("chess.ws.slowConsumerPolicy");
+        return new WebSocketConfig(
+                Integer.getInteger("chess.ws.queueCapacity", DEFAULT_OUTBOUND_QUEUE_CAPACITY),
+                policy == null || policy.isBlank() ? DEFAULT_SLOW_CONSUMER_POLICY
+                        : SlowConsumerPolicy.valueOf(policy.trim().toUpperCase()),
+                Long.getLong("chess.ws.heartbeatMillis", DEFAULT_HEARTBEAT_INTERVAL_MILLIS),
+                Long.getLong("chess.ws.idleTimeoutMillis", DEFAULT_IDLE_TIMEOUT_MILLIS),
+                Compression.fromSystemProperties());
+    }
+
+    /**
+     * The server side of permessage-deflate (RFC 7692). The JDK's deflater always uses a 32 KB window, so the
+     * window size cannot be tuned; keeping the context trades that window's memory per session for smaller
+     * messages, since consecutive boards of a game mostly repeat each other.
+     *
+     * @param enabled         whether the extension is offered back to clients at all
+     * @param level           the deflate level, from 0 to 9, or -1 for the JDK's default
+     * @param contextTakeover whether the server keeps its compression context between messages; if not, every
+     *                        session is told {@code server_no_context_takeover}
+     * @param minMessageBytes messages shorter than this are sent uncompressed
+     */
+    public record Compression(boolean enabled, int level, boolean contextTakeover, int minMessageBytes) {
+        public static final boolean DEFAULT_ENABLED = true;
+        public static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+        public static final boolean DEFAULT_CONTEXT_TAKEOVER = true;
+        public static final int DEFAULT_MIN_MESSAGE_BYTES = 0;
+
+        public Compression {
+            if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("Compression level must be between -1 and 9");
+            }
+            if (minMessageBytes < 0) {
+                throw new IllegalArgumentException("Minimum compressed message size must not be negative");
+            }
+        }
+
+        public static Compression defaults() {
+            return new Compression(DEFAULT_ENABLED, DEFAULT_LEVEL, DEFAULT_CONTEXT_TAKEOVER,
+                    DEFAULT_MIN_MESSAGE_BYTES);
+        }
+
+        public static Compression disabled() {
+            return new Compression(false, DEFAULT_LEVEL, DEFAULT_CONTEXT_TAKEOVER, DEFAULT_MIN_MESSAGE_BYTES);
+        }
+
+        /**
+         * Reads whether compression is on from {@code chess.ws.compression}, the level from
+         * {@code chess.ws.compressionLevel}, context takeover from {@code chess.ws.compressionContextTakeover}
+         * and the minimum size from {@code chess.ws.compressionMinBytes}, falling back to the
+         * {@linkplain #defaults defaults} for any that are unset.
+         */
+        public static Compression fromSystemProperties() {
+            return new Compression(
+                    booleanProperty("chess.ws.compression", DEFAULT_ENABLED),
+                    Integer.getInteger("chess.ws.compressionLevel", DEFAULT_LEVEL),
+                    booleanProperty("chess.ws.compressionContextTakeover", DEFAULT_CONTEXT_TAKEOVER),
+                    Integer.getInteger("chess.ws.compressionMinBytes", DEFAULT_MIN_MESSAGE_BYTES));
+        }
+
+        private static boolean booleanProperty(String name, boolean defaultValue) {
+            String value = System.getProperty(name);
+            return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+        }
+    }
+}
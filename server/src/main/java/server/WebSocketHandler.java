@@ -5,60 +5,274 @@ import chess.ChessMove;
 import com.google.gson.Gson;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.*;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 import service.GameService;
+import tracing.Trace;
+import tracing.Tracer;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ServerMessage;
 import model.GameData;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @WebSocket
 public class WebSocketHandler {
+    public static final int REPLAY_BUFFER_CAPACITY = 64;
+
     private final GameService gameService;
     private final Gson gson;
-    private final Map<Integer, Set<Session>> gameSessions;
+    private final GameSubscriptions subscriptions;
+    private final Set<Session> moveDeltaSessions;
+    private final GameCommandExecutor commandExecutor;
+    private final Map<Session, SessionOutbox> outboxes;
+    private final WebSocketConfig config;
+    private final OutboundMetrics outboundMetrics;
+    private final Map<Integer, GameReplayBuffer> replayBuffers;
+    private final ScheduledExecutorService replayBufferReleaser;
+    private final SessionReaper reaper;
+    private final Map<UserGameCommand.CommandType, Histogram> commandTimers;
+    private final Tracer tracer;
 
     public WebSocketHandler(GameService gameService) {
+        this(gameService, WebSocketConfig.defaults());
+    }
+
+    public WebSocketHandler(GameService gameService, WebSocketConfig config) {
+        this(gameService, config, new MetricsRegistry(), Tracer.fromSystemProperties());
+    }
+
+    /**
+     * @param metrics where the time spent handling each command type is recorded
+     * @param tracer  traces every command, from parsing it to queueing the messages it sends
+     */
+    public WebSocketHandler(GameService gameService, WebSocketConfig config, MetricsRegistry metrics,
+                            Tracer tracer) {
         this.gameService = gameService;
         this.gson = new Gson();
-        this.gameSessions = new ConcurrentHashMap<>();
+        this.subscriptions = new GameSubscriptions();
+        this.moveDeltaSessions = ConcurrentHashMap.newKeySet();
+        this.commandExecutor = new GameCommandExecutor();
+        this.outboxes = new ConcurrentHashMap<>();
+        this.config = config;
+        this.outboundMetrics = new OutboundMetrics();
+        this.replayBuffers = new ConcurrentHashMap<>();
+        this.replayBufferReleaser = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replay-buffer-releaser").daemon(true).factory());
+        // Also catches buffers of games broadcast to while nobody was subscribed, which no leave ever releases
+        this.replayBufferReleaser.scheduleWithFixedDelay(this::evictIdleReplayBuffers, config.idleTimeoutMillis(),
+                config.idleTimeoutMillis(), TimeUnit.MILLISECONDS);
+        this.reaper = new SessionReaper(config.heartbeatIntervalMillis(), config.idleTimeoutMillis(),
+                this::sendPing, this::evictIdleSessions, System::currentTimeMillis);
+        this.reaper.start();
+        this.tracer = tracer;
+        this.commandTimers = new EnumMap<>(UserGameCommand.CommandType.class);
+        for (UserGameCommand.CommandType type : UserGameCommand.CommandType.values()) {
+            commandTimers.put(type, metrics.histogram("websocket_command_duration_seconds",
+                    "Time spent handling WebSocket commands", "command", type.name()));
+        }
+    }
+
+    public GameSubscriptions getSubscriptions() {
+        return subscriptions;
+    }
+
+    public GameCommandExecutor getCommandExecutor() {
+        return commandExecutor;
+    }
+
+    public OutboundMetrics getOutboundMetrics() {
+        return outboundMetrics;
+    }
+
+    /**
+     * @return the total number of frames waiting in every session's outbound queue
+     */
+    public int outboundQueueDepth() {
+        return outboxes.values().stream().mapToInt(SessionOutbox::depth).sum();
+    }
+
+    public int trackedSessions() {
+        return reaper.trackedSessions();
+    }
+
+    public long heartbeatPingsSent() {
+        return reaper.pingsSent();
+    }
+
+    public long idleSessionsReaped() {
+        return reaper.sessionsReaped();
+    }
+
+    /**
+     * Builds the JSON adapters for commands and messages up front, including the game state they carry.
+     */
+    void warmUp() {
+        gson.getAdapter(UserGameCommand.class);
+        gson.getAdapter(ServerMessage.class);
+        gson.getAdapter(GameData.class);
+        gson.getAdapter(ChessGame.class);
+    }
+
+    /**
+     * @return whether the game has a replay buffer, kept while it is watched and for the resume window after
+     */
+    boolean hasReplayBuffer(int gameID) {
+        return replayBuffers.containsKey(gameID);
+    }
+
+    public void close() {
+        reaper.close();
+        replayBufferReleaser.shutdownNow();
+        commandExecutor.close();
     }
 
     @OnWebSocketConnect
     public void onConnect(Session session) {
-        // Connection is handled when a CONNECT command is received
+        // Joining a game is handled when a CONNECT command is received; here we only start watching for silence
+        reaper.register(session);
     }
 
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
-        // Remove the session from all games it was connected to
-        gameSessions.values().forEach(sessions -> sessions.remove(session));
+        reaper.unregister(session);
+        releaseSession(session);
+    }
+
+    @OnWebSocketFrame
+    public void onFrame(Session session, Frame frame) {
+        if (frame.getType() == Frame.Type.PONG) {
+            reaper.touch(session);
+        }
     }
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) {
+        reaper.touch(session);
+        Trace trace = tracer.start("WS");
         try {
+            long start = System.nanoTime();
             UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
-            handleCommand(session, command);
+            trace.record("json.parse", start);
+            trace.rename("WS " + command.getCommandType());
+            if (command.getGameID() == null) {
+                handleCommand(session, command, trace);
+                return;
+            }
+            // Commands for one game run in order on that game's mailbox, off the Jetty thread
+            long queued = System.nanoTime();
+            commandExecutor.submit(command.getGameID(), () -> {
+                trace.record("mailbox.wait", queued);
+                handleCommand(session, command, trace);
+            });
         } catch (Exception e) {
+            trace.outcome(e.getMessage());
+            tracer.finish(trace);
             sendErrorMessage(session, "Error processing message: " + e.getMessage());
         }
     }
 
-    private void handleCommand(Session session, UserGameCommand command) {
+    private void releaseSession(Session session) {
+        // Remove the session from all games it was connected to
+        for (int gameID : subscriptions.removeSession(session)) {
+            releaseReplayBufferWhenUnwatched(gameID);
+        }
+        moveDeltaSessions.remove(session);
+        SessionOutbox outbox = outboxes.remove(session);
+        if (outbox != null) {
+            outbox.close();
+        }
+    }
+
+    private void sendPing(Session session) {
+        try {
+            session.getRemote().sendPing(ByteBuffer.allocate(0));
+        } catch (IOException | RuntimeException e) {
+            // A failed ping means the connection is already gone; the next check will evict it
+        }
+    }
+
+    private void evictIdleSessions(List<Session> sessions) {
+        for (Session session : sessions) {
+            releaseSession(session);
+            try {
+                // A half-open peer will never answer a close handshake, so drop the connection outright
+                session.disconnect();
+            } catch (IOException | RuntimeException e) {
+                // Already gone
+            }
+        }
+    }
+
+    private void evictIdleReplayBuffers() {
+        long cutoff = System.currentTimeMillis() - config.idleTimeoutMillis();
+        replayBuffers.entrySet().removeIf(entry ->
+                subscriptions.sessions(entry.getKey()).isEmpty() && entry.getValue().lastActivityMillis() < cutoff);
+    }
+
+    /**
+     * Drops the game's replay buffer once nobody has watched the game for the resume window, since only a client
+     * resuming within that window can use it.
+     */
+    private void releaseReplayBufferWhenUnwatched(int gameID) {
+        if (subscriptions.sessions(gameID).isEmpty() && replayBuffers.containsKey(gameID)) {
+            scheduleReplayBufferRelease(gameID, config.idleTimeoutMillis());
+        }
+    }
+
+    private void scheduleReplayBufferRelease(int gameID, long delayMillis) {
         try {
+            replayBufferReleaser.schedule(() -> releaseReplayBuffer(gameID), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, so every buffer is about to go anyway
+        }
+    }
+
+    private void releaseReplayBuffer(int gameID) {
+        GameReplayBuffer buffer = replayBuffers.get(gameID);
+        if (buffer == null || !subscriptions.sessions(gameID).isEmpty()) {
+            return;
+        }
+        // A broadcast after the last subscriber left, such as its leave notice, restarts the window
+        long idle = System.currentTimeMillis() - buffer.lastActivityMillis();
+        if (idle < config.idleTimeoutMillis()) {
+            scheduleReplayBufferRelease(gameID, config.idleTimeoutMillis() - idle);
+            return;
+        }
+        replayBuffers.remove(gameID, buffer);
+    }
+
+    private void handleCommand(Session session, UserGameCommand command, Trace trace) {
+        long start = System.nanoTime();
+        try (Trace.Scope active = trace.activate()) {
             switch (command.getCommandType()) {
                 case CONNECT -> handleConnect(session, command);
                 case MAKE_MOVE -> handleMakeMove(session, command);
                 case LEAVE -> handleLeave(session, command);
                 case RESIGN -> handleResign(session, command);
+                case SYNC -> handleSync(session, command);
+                case RESUME -> handleResume(session, command);
                 default -> sendErrorMessage(session, "Unknown command type");
             }
         } catch (Exception e) {
             sendErrorMessage(session, "Error: " + e.getMessage());
+        } finally {
+            Histogram timer = commandTimers.get(command.getCommandType());
+            if (timer != null) {
+                timer.recordSince(start);
+            }
+            tracer.finish(trace);
         }
     }
 
@@ -82,14 +296,22 @@ public class WebSocketHandler {
         }
 
         // Add the session to the game's session set
-        gameSessions.computeIfAbsent(gameID, k -> ConcurrentHashMap.newKeySet()).add(session);
+        subscriptions.subscribe(gameID, session);
+        if (!session.isOpen()) {
+            // The socket closed while this CONNECT was queued, after onClose already cleaned up
+            subscriptions.removeSession(session);
+            return;
+        }
+        if (command.acceptsMoveDeltas()) {
+            moveDeltaSessions.add(session);
+        }
 
         // Send a LOAD_GAME message to the connected client
         sendLoadGame(session, game);
 
         // Send a NOTIFICATION to other clients in the game
         String username = gameService.getUsernameFromAuthToken(authToken);
-        sendNotificationToOthers(gameID, session, username + " has joined the game.");
+        sendNotificationToOthers(gameID, session, username, username + " has joined the game.");
     }
 
     private void handleMakeMove(Session session, UserGameCommand command) throws Exception {
@@ -107,24 +329,24 @@ public class WebSocketHandler {
         try {
             GameData updatedGame = gameService.makeMove(gameID, authToken, move);
 
-            // Send LOAD_GAME message to all clients in the game
-            ServerMessage loadGameMessage = createLoadGameMessage(updatedGame);
-            sendToGame(gameID, loadGameMessage);
+            // Send the move to all clients in the game
+            ChessGame chess = updatedGame.game();
+            ChessGame.GameStatus status = chess.getStatus();
+            sendMoveToGame(gameID, updatedGame, move, status);
 
             // Get the username of the player who made the move
             String username = gameService.getUsernameFromAuthToken(authToken);
 
             // Send NOTIFICATION to other players
-            sendNotificationToOthers(gameID, session, username + " made a move: " + move.toString());
+            sendNotificationToOthers(gameID, session, username, username + " made a move: " + move.toString());
 
             // Check for checkmate, stalemate, or check
-            ChessGame chess = updatedGame.game();
-            if (chess.isInCheckmate(chess.getTeamTurn())) {
-                sendNotificationToAll(gameID, "Checkmate! " + username + " wins!");
-            } else if (chess.isInStalemate(chess.getTeamTurn())) {
-                sendNotificationToAll(gameID, "Stalemate! The game is a draw.");
-            } else if (chess.isInCheck(chess.getTeamTurn())) {
-                sendNotificationToAll(gameID, "Check!");
+            switch (status) {
+                case CHECKMATE -> sendNotificationToAll(gameID, "Checkmate! " + username + " wins!");
+                case STALEMATE -> sendNotificationToAll(gameID, "Stalemate! The game is a draw.");
+                case CHECK -> sendNotificationToAll(gameID, "Check!");
+                default -> {
+                }
             }
         } catch (Exception e) {
             sendErrorMessage(session, "Error: " + e.getMessage());
@@ -165,28 +387,98 @@ public class WebSocketHandler {
         }
     }
 
+    private void handleSync(Session session, UserGameCommand command) throws Exception {
+        // A delta client that lost track of the board asks for the full game, without re-announcing itself
+        try {
+            gameService.getUsernameFromAuthToken(command.getAuthToken());
+        } catch (Exception e) {
+            sendErrorMessage(session, "Error: unauthorized");
+            return;
+        }
+
+        GameData game = gameService.getGame(command.getGameID());
+        if (game == null) {
+            sendErrorMessage(session, "Invalid game ID");
+            return;
+        }
+        sendLoadGame(session, game);
+    }
+
+    private void handleResume(Session session, UserGameCommand command) throws Exception {
+        int gameID = command.getGameID();
+        String username;
+        try {
+            username = gameService.getUsernameFromAuthToken(command.getAuthToken());
+        } catch (Exception e) {
+            sendErrorMessage(session, "Error: unauthorized");
+            return;
+        }
+
+        GameData game = gameService.getGame(gameID);
+        if (game == null) {
+            sendErrorMessage(session, "Invalid game ID");
+            return;
+        }
+
+        // Rejoin quietly; unlike CONNECT, the rest of the game is not told about a reconnect
+        subscriptions.subscribe(gameID, session);
+        if (!session.isOpen()) {
+            subscriptions.removeSession(session);
+            return;
+        }
+        if (command.acceptsMoveDeltas()) {
+            moveDeltaSessions.add(session);
+        }
+
+        GameReplayBuffer buffer = replayBuffers.get(gameID);
+        Long lastSequence = command.getLastSequence();
+        List<GameReplayBuffer.Entry> missed =
+                buffer == null || lastSequence == null ? null : buffer.since(lastSequence, username);
+        if (missed == null) {
+            // Too far behind for the buffer, so fall back to the full game
+            sendLoadGame(session, game);
+            return;
+        }
+
+        boolean acceptsDeltas = moveDeltaSessions.contains(session);
+        boolean missedMove = false;
+        for (GameReplayBuffer.Entry entry : missed) {
+            if (entry.type() == ServerMessage.ServerMessageType.MOVE && !acceptsDeltas) {
+                missedMove = true;
+            } else {
+                sendPayload(session, entry.type(), entry.payload());
+            }
+        }
+        if (missedMove) {
+            sendLoadGame(session, game);
+        }
+    }
+
     private void handleLeave(Session session, UserGameCommand command) throws Exception {
         int gameID = command.getGameID();
         String authToken = command.getAuthToken();
 
         // Remove the session from the game's session set
-        Set<Session> sessions = gameSessions.get(gameID);
-        if (sessions != null) {
-            sessions.remove(session);
-        }
+        subscriptions.unsubscribe(gameID, session);
+        moveDeltaSessions.remove(session);
+        releaseReplayBufferWhenUnwatched(gameID);
 
         // Update the game state (this won't throw an exception for observers now)
         gameService.leaveGame(gameID, authToken);
 
         // Send NOTIFICATION messages to other clients in the game
         String username = gameService.getUsernameFromAuthToken(authToken);
-        sendNotificationToOthers(gameID, session, username + " has left the game.");
+        sendNotificationToOthers(gameID, session, username, username + " has left the game.");
     }
 
     private void sendLoadGame(Session session, GameData game) {
+        long start = System.nanoTime();
         ServerMessage loadGameMessage = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
         loadGameMessage.setGame(game);
+        // Tells the client which point in the game's stream this board reflects
+        loadGameMessage.setSequence(replayBuffer(game.gameID()).currentSequence());
         sendMessage(session, loadGameMessage);
+        Tracer.record("send.loadGame", start);
     }
 
     private ServerMessage createLoadGameMessage(GameData game) {
@@ -195,43 +487,82 @@ public class WebSocketHandler {
         return loadGameMessage;
     }
 
+    /**
+     * Sends a MOVE delta to sessions that asked for them and a full LOAD_GAME to everyone else,
+     * encoding each form at most once.
+     */
+    private void sendMoveToGame(int gameID, GameData game, ChessMove move, ChessGame.GameStatus status) {
+        long start = System.nanoTime();
+        ServerMessage moveMessage = new ServerMessage(ServerMessage.ServerMessageType.MOVE);
+        moveMessage.setMoveDelta(move, game.game().getPly(), game.game().positionHash(), status);
+        String movePayload = replayBuffer(gameID).publish(moveMessage, gson::toJson, null);
+        String loadGamePayload = null;
+        for (Session session : subscriptions.sessions(gameID)) {
+            if (moveDeltaSessions.contains(session)) {
+                sendPayload(session, ServerMessage.ServerMessageType.MOVE, movePayload);
+            } else {
+                if (loadGamePayload == null) {
+                    ServerMessage loadGameMessage = createLoadGameMessage(game);
+                    loadGameMessage.setSequence(moveMessage.getSequence());
+                    loadGamePayload = gson.toJson(loadGameMessage);
+                }
+                sendPayload(session, ServerMessage.ServerMessageType.LOAD_GAME, loadGamePayload);
+            }
+        }
+        Tracer.record("broadcast.move", start);
+    }
+
     private void sendNotificationToAll(int gameID, String message) {
         ServerMessage notificationMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
         notificationMessage.setMessage(message);
         sendToGame(gameID, notificationMessage);
     }
 
-    private void sendNotificationToOthers(int gameID, Session excludeSession, String message) {
+    private void sendNotificationToOthers(int gameID, Session excludeSession, String excludeUsername, String message) {
+        long start = System.nanoTime();
         ServerMessage notificationMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
         notificationMessage.setMessage(message);
-        Set<Session> sessions = gameSessions.get(gameID);
-        if (sessions != null) {
-            for (Session session : sessions) {
-                if (session != excludeSession) {
-                    sendMessage(session, notificationMessage);
-                }
+        String payload = replayBuffer(gameID).publish(notificationMessage, gson::toJson, excludeUsername);
+        for (Session session : subscriptions.sessions(gameID)) {
+            if (session != excludeSession) {
+                sendPayload(session, notificationMessage.getServerMessageType(), payload);
             }
         }
+        Tracer.record("broadcast.notification", start);
     }
 
     private void sendToGame(int gameID, ServerMessage message) {
-        Set<Session> sessions = gameSessions.get(gameID);
-        if (sessions != null) {
-            for (Session session : sessions) {
-                sendMessage(session, message);
-            }
+        long start = System.nanoTime();
+        // Encode once and share the same immutable payload with every session in the game
+        String payload = replayBuffer(gameID).publish(message, gson::toJson, null);
+        for (Session session : subscriptions.sessions(gameID)) {
+            sendPayload(session, message.getServerMessageType(), payload);
         }
+        Tracer.record("broadcast.notification", start);
+    }
+
+    private GameReplayBuffer replayBuffer(int gameID) {
+        return replayBuffers.computeIfAbsent(gameID, id -> new GameReplayBuffer(REPLAY_BUFFER_CAPACITY));
     }
 
     private void sendMessage(Session session, ServerMessage message) {
-        try {
-            session.getRemote().sendString(gson.toJson(message));
-        } catch (IOException e) {
-            e.printStackTrace();
+        sendPayload(session, message.getServerMessageType(), gson.toJson(message));
+    }
+
+    private void sendPayload(Session session, ServerMessage.ServerMessageType type, String payload) {
+        if (!session.isOpen()) {
+            return;
         }
+        outboxes.computeIfAbsent(session, s ->
+                new SessionOutbox(s, config.outboundQueueCapacity(), config.slowConsumerPolicy(), outboundMetrics))
+                .enqueue(type, payload);
     }
 
     private void sendErrorMessage(Session session, String errorMessage) {
+        Trace trace = Tracer.current();
+        if (trace != null) {
+            trace.outcome(errorMessage);
+        }
         ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
         error.setErrorMessage(errorMessage);
         sendMessage(session, error);
@@ -0,0 +1,46 @@
+package server;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.websocket.server.NativeWebSocketConfiguration;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * Builds the Jetty server Spark runs on, so the WebSocket endpoint's extensions can be configured once Spark has
+ * added it and before the server accepts connections.
+ */
+class WebSocketJettyServerFactory implements JettyServerFactory {
+    private final WebSocketConfig.Compression compression;
+
+    WebSocketJettyServerFactory(WebSocketConfig.Compression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public org.eclipse.jetty.server.Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        // Spark passes zeros for whatever was not set; these are Jetty's own defaults
+        return create(new QueuedThreadPool(maxThreads > 0 ? maxThreads : 200, minThreads > 0 ? minThreads : 8,
+                threadTimeoutMillis > 0 ? threadTimeoutMillis : 60_000));
+    }
+
+    @Override
+    public org.eclipse.jetty.server.Server create(ThreadPool threadPool) {
+        return new org.eclipse.jetty.server.Server(threadPool) {
+            @Override
+            protected void doStart() throws Exception {
+                for (Handler handler : getChildHandlersByClass(ServletContextHandler.class)) {
+                    ServletContextHandler context = (ServletContextHandler) handler;
+                    Object attribute = context.getServletContext()
+                            .getAttribute(NativeWebSocketConfiguration.class.getName());
+                    if (attribute instanceof NativeWebSocketConfiguration webSockets) {
+                        ConfiguredDeflateExtension.install(webSockets.getFactory(), context.getObjectFactory(),
+                                compression);
+                    }
+                }
+                super.doStart();
+            }
+        };
+    }
+}
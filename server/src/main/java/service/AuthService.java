@@ -4,27 +4,29 @@ import dataaccess.*;
 import model.UserData;
 import request.LoginRequest;
 import result.LoginResult;
-import org.mindrot.jbcrypt.BCrypt;
-
-import java.util.UUID;
 
 public class AuthService {
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
+    private final PasswordHasher passwordHasher;
 
     public AuthService(UserDAO userDAO, AuthDAO authDAO) {
+        this(userDAO, authDAO, PasswordHasher.defaultHasher());
+    }
+
+    public AuthService(UserDAO userDAO, AuthDAO authDAO, PasswordHasher passwordHasher) {
         this.userDAO = userDAO;
         this.authDAO = authDAO;
+        this.passwordHasher = passwordHasher;
     }
 
     public LoginResult login(LoginRequest request) throws DataAccessException {
         UserData user = userDAO.getUser(request.username());
-        if (user == null || !BCrypt.checkpw(request.password(), user.password())) {
+        if (user == null || !passwordHasher.verify(request.password(), user.password())) {
             throw new DataAccessException("Error: unauthorized");
         }
 
-        String authToken = UUID.randomUUID().toString();
-        authDAO.createAuth(authToken, request.username());
+        String authToken = authDAO.issueToken(request.username());
 
         return new LoginResult(request.username(), authToken);
     }
@@ -2,24 +2,89 @@ package service;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import com.google.gson.Gson;
 import dataaccess.*;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 import model.AuthData;
 import model.GameData;
+import model.GameResult;
 import request.CreateGameRequest;
 import request.JoinGameRequest;
 import result.CreateGameResult;
+import result.GetGameResult;
 import result.ListGamesResult;
+import tracing.Tracer;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class GameService {
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    private static final int GAME_LOCK_STRIPES = 64;
+    private static final long INITIAL_WRITE_BACKOFF_MILLIS = 10;
+    private static final long MAX_WRITE_BACKOFF_MILLIS = 5000;
+
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
+    private final Executor ioExecutor;
+    private final MoveJournal journal;
+    private final Map<Integer, PendingWrite> pendingWrites;
+    private final Gson gson;
+    private final ReentrantLock[] gameLocks;
+    private final Histogram moveValidation;
+    private final Histogram outcomeCheck;
+    private final Histogram gameOverCheck;
 
     public GameService(GameDAO gameDAO, AuthDAO authDAO) {
+        this(gameDAO, authDAO, AsyncDataAccess.defaultExecutor());
+    }
+
+    /**
+     * @param ioExecutor runs the lookups that are issued in parallel
+     */
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, Executor ioExecutor) {
+        this(gameDAO, authDAO, ioExecutor, null);
+    }
+
+    /**
+     * With a journal, a move is acknowledged once it is durable in the journal and written to the game store
+     * in the background, retrying until the store takes it. Later moves of that game build on it without waiting;
+     * any other read or update of the game waits for the write to land first.
+     *
+     * @param journal the write-ahead journal for moves, or null to write every move to the store before returning
+     */
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, Executor ioExecutor, MoveJournal journal) {
+        this(gameDAO, authDAO, ioExecutor, journal, new MetricsRegistry());
+    }
+
+    /**
+     * @param metrics where the time spent in the chess rules is recorded
+     */
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, Executor ioExecutor, MoveJournal journal,
+                       MetricsRegistry metrics) {
         this.gameDAO = gameDAO;
         this.authDAO = authDAO;
+        this.ioExecutor = ioExecutor;
+        this.journal = journal;
+        this.pendingWrites = new ConcurrentHashMap<>();
+        this.gson = new Gson();
+        this.gameLocks = new ReentrantLock[GAME_LOCK_STRIPES];
+        for (int i = 0; i < gameLocks.length; i++) {
+            gameLocks[i] = new ReentrantLock();
+        }
+        String help = "Time spent applying the chess rules";
+        this.moveValidation = metrics.histogram("chess_rules_duration_seconds", help, "call", "makeMove");
+        this.outcomeCheck = metrics.histogram("chess_rules_duration_seconds", help, "call", "boardOutcome");
+        this.gameOverCheck = metrics.histogram("chess_rules_duration_seconds", help, "call", "isGameOver");
     }
 
     public CreateGameResult createGame(CreateGameRequest request, String authToken) throws DataAccessException {
@@ -41,57 +106,75 @@ public class GameService {
     }
 
     public void joinGame(JoinGameRequest request, String authToken) throws DataAccessException {
+        CompletableFuture<GameData> prefetchedGame = gameDAO.getGameAsync(request.gameID(), ioExecutor);
         AuthData authData = authDAO.getAuth(authToken);
         if (authData == null) {
             throw new DataAccessException("Error: unauthorized");
         }
 
-        GameData game = gameDAO.getGame(request.gameID());
-        if (game == null) {
-            throw new DataAccessException("Error: bad request");
-        }
-
-        if (request.checkIfObserver()) {
-            return;
-        }
-
-        ChessGame.TeamColor color = request.getTeamColor();
-        if (color == null) {
-            throw new DataAccessException("Error: bad request");
-        }
-
-        GameData updatedGame;
-        if (color == ChessGame.TeamColor.WHITE && game.whiteUsername() == null) {
-            updatedGame = new GameData(game.gameID(), authData.username(), game.blackUsername(), game.gameName(), game.game());
-        } else if (color == ChessGame.TeamColor.BLACK && game.blackUsername() == null) {
-            updatedGame = new GameData(game.gameID(), game.whiteUsername(), authData.username(), game.gameName(), game.game());
-        } else {
+        updateWithRetry(request.gameID(), "Error: bad request", prefetchedGame, game -> {
+            if (request.checkIfObserver()) {
+                return null;
+            }
+            if (game.isFinished()) {
+                throw new DataAccessException("Error: bad request");
+            }
+
+            ChessGame.TeamColor color = request.getTeamColor();
+            if (color == null) {
+                throw new DataAccessException("Error: bad request");
+            }
+
+            if (color == ChessGame.TeamColor.WHITE && game.whiteUsername() == null) {
+                return new GameData(game.gameID(), authData.username(), game.blackUsername(), game.gameName(),
+                        game.game(), game.version());
+            } else if (color == ChessGame.TeamColor.BLACK && game.blackUsername() == null) {
+                return new GameData(game.gameID(), game.whiteUsername(), authData.username(), game.gameName(),
+                        game.game(), game.version());
+            }
             throw new DataAccessException("Error: already taken");
-        }
-
-        gameDAO.updateGame(updatedGame);
+        });
     }
 
     public void leaveGame(int gameID, String authToken) throws DataAccessException {
+        CompletableFuture<GameData> prefetchedGame = gameDAO.getGameAsync(gameID, ioExecutor);
         AuthData authData = authDAO.getAuth(authToken);
         if (authData == null) {
             throw new DataAccessException("Error: unauthorized");
         }
 
-        GameData game = gameDAO.getGame(gameID);
-        if (game == null) {
-            throw new DataAccessException("Error: game not found");
+        if (AsyncDataAccess.await(prefetchedGame) == null && gameDAO.getArchivedGame(gameID) != null) {
+            // Archived games are finished; there is nothing to leave
+            return;
+        }
+        updateWithRetry(gameID, "Error: game not found", prefetchedGame, game -> {
+            if (game.isFinished()) {
+                // Players stay on a finished game's record
+                return null;
+            }
+            if (authData.username().equals(game.whiteUsername())) {
+                return new GameData(game.gameID(), null, game.blackUsername(), game.gameName(), game.game(),
+                        game.version());
+            } else if (authData.username().equals(game.blackUsername())) {
+                return new GameData(game.gameID(), game.whiteUsername(), null, game.gameName(), game.game(),
+                        game.version());
+            }
+            // If the user is neither white nor black player, they're an observer, so we don't need to update the game
+            // Just let them leave without throwing an exception
+            return null;
+        });
+    }
+
+    public GetGameResult getGame(int gameID, String authToken) throws DataAccessException {
+        if (authDAO.getAuth(authToken) == null) {
+            throw new DataAccessException("Error: unauthorized");
         }
 
-        if (authData.username().equals(game.whiteUsername())) {
-            GameData updatedGame = new GameData(game.gameID(), null, game.blackUsername(), game.gameName(), game.game());
-            gameDAO.updateGame(updatedGame);
-        } else if (authData.username().equals(game.blackUsername())) {
-            GameData updatedGame = new GameData(game.gameID(), game.whiteUsername(), null, game.gameName(), game.game());
-            gameDAO.updateGame(updatedGame);
+        GameData game = findGame(gameID);
+        if (game == null) {
+            throw new DataAccessException("Error: game not found");
         }
-        // If the user is neither white nor black player, they're an observer, so we don't need to update the game
-        // Just let them leave without throwing an exception
+        return new GetGameResult(game);
     }
 
     public ListGamesResult listGames(String authToken) throws DataAccessException {
@@ -99,18 +182,43 @@ public class GameService {
             throw new DataAccessException("Error: unauthorized");
         }
 
+        awaitPendingWrites();
         List<GameData> games = gameDAO.listGames();
         return new ListGamesResult(games);
     }
 
     public void clear() throws DataAccessException {
+        if (journal != null) {
+            awaitPendingWrites();
+            // Mark the journal first so a replay after a crash never applies old moves to new games
+            AsyncDataAccess.await(journal.appendClear());
+        }
         gameDAO.clear();
     }
 
+    /**
+     * Moves finished games to the archive once any journaled moves for them have been written.
+     *
+     * @return the number of games archived
+     */
+    public int archiveFinishedGames() throws DataAccessException {
+        awaitPendingWrites();
+        return gameDAO.archiveFinishedGames();
+    }
+
+    /**
+     * Waits until every journaled move has been written to the game store.
+     */
+    public void awaitPendingWrites() throws DataAccessException {
+        for (int gameID : pendingWrites.keySet()) {
+            awaitPendingWrite(gameID);
+        }
+    }
+
     // New methods to support WebSocket functionality
 
     public GameData getGame(int gameID) throws DataAccessException {
-        return gameDAO.getGame(gameID);
+        return findGame(gameID);
     }
 
     public String getUsernameFromAuthToken(String authToken) throws DataAccessException {
@@ -122,64 +230,300 @@ public class GameService {
     }
 
     public GameData makeMove(int gameID, String authToken, ChessMove move) throws DataAccessException {
+        // A journaled move must read the game under its lock, so there is nothing to prefetch
+        CompletableFuture<GameData> prefetchedGame = journal == null ? gameDAO.getGameAsync(gameID, ioExecutor) : null;
         AuthData authData = authDAO.getAuth(authToken);
         if (authData == null) {
             throw new DataAccessException("Error: unauthorized");
         }
 
-        GameData game = gameDAO.getGame(gameID);
+        GameUpdate update = game -> {
+            // Checked on the game as read under its lock, since a resignation may have landed after the caller's check
+            if (game.isFinished()) {
+                throw new DataAccessException("Error: The game is already over");
+            }
+
+            // Check if it's the player's turn
+            ChessGame.TeamColor currentTurn = game.game().getTeamTurn();
+            boolean isWhiteTurn = currentTurn == ChessGame.TeamColor.WHITE;
+            if ((isWhiteTurn && !Objects.equals(game.whiteUsername(), authData.username())) ||
+                    (!isWhiteTurn && !Objects.equals(game.blackUsername(), authData.username()))) {
+                throw new DataAccessException("Error: not your turn");
+            }
+
+            // Make the move
+            long start = System.nanoTime();
+            try {
+                game.game().makeMove(move);
+            } catch (chess.InvalidMoveException e) {
+                throw new DataAccessException("Error: invalid move");
+            } finally {
+                record(moveValidation, "rules.makeMove", start);
+            }
+            start = System.nanoTime();
+            try {
+                return game.withBoardOutcome();
+            } finally {
+                record(outcomeCheck, "rules.boardOutcome", start);
+            }
+        };
+        if (journal == null) {
+            return updateWithRetry(gameID, "Error: game not found", prefetchedGame, update);
+        }
+        PendingWrite pending = journalMove(gameID, move, update);
+        long start = System.nanoTime();
+        AsyncDataAccess.await(pending.durable());
+        Tracer.record("journal.durable", start);
+        return pending.game();
+    }
+
+    public void resignGame(int gameID, String authToken) throws DataAccessException {
+        CompletableFuture<GameData> prefetchedGame = gameDAO.getGameAsync(gameID, ioExecutor);
+        AuthData authData = authDAO.getAuth(authToken);
+        if (authData == null) {
+            throw new DataAccessException("Error: unauthorized");
+        }
+
+        // The opponent of the player who resigns wins
+        updateWithRetry(gameID, "Error: game not found", prefetchedGame, game -> {
+            if (game.isFinished()) {
+                return null;
+            }
+            if (authData.username().equals(game.whiteUsername())) {
+                return game.finish(GameResult.BLACK_WON);
+            } else if (authData.username().equals(game.blackUsername())) {
+                return game.finish(GameResult.WHITE_WON);
+            }
+            throw new DataAccessException("Error: only players can resign");
+        });
+    }
+
+    public boolean isGameOver(int gameID) throws DataAccessException {
+        GameData game = findGame(gameID);
         if (game == null) {
             throw new DataAccessException("Error: game not found");
         }
 
-        // Check if it's the player's turn
-        ChessGame.TeamColor currentTurn = game.game().getTeamTurn();
-        boolean isWhiteTurn = currentTurn == ChessGame.TeamColor.WHITE;
-        if ((isWhiteTurn && !Objects.equals(game.whiteUsername(), authData.username())) ||
-                (!isWhiteTurn && !Objects.equals(game.blackUsername(), authData.username()))) {
-            throw new DataAccessException("Error: not your turn");
+        if (game.isFinished()) {
+            return true;
+        }
+        // Games that ended before the status was recorded are recognized from the board
+        long start = System.nanoTime();
+        try {
+            return game.game().isInCheckmate(ChessGame.TeamColor.WHITE) ||
+                    game.game().isInCheckmate(ChessGame.TeamColor.BLACK) ||
+                    game.game().isInStalemate(ChessGame.TeamColor.WHITE) ||
+                    game.game().isInStalemate(ChessGame.TeamColor.BLACK);
+        } finally {
+            record(gameOverCheck, "rules.isGameOver", start);
         }
+    }
 
-        // Make the move
+    /**
+     * Applies a read-modify-write change to a game using the version check in {@link GameDAO#updateGame}.
+     * If another writer updated the game in between, the game is reloaded and the change is applied again.
+     *
+     * @param prefetchedGame a read of the game already in flight, used for the first attempt
+     * @return the game as written, or as read if the change produced nothing to write
+     */
+    private GameData updateWithRetry(int gameID, String notFoundMessage, CompletableFuture<GameData> prefetchedGame,
+                                     GameUpdate update) throws DataAccessException {
+        if (journal == null) {
+            return applyWithRetry(gameID, notFoundMessage, prefetchedGame, update);
+        }
+        // Hold the game's lock so a journaled move cannot be accepted between this read and write
+        ReentrantLock lock = lockFor(gameID);
+        lock.lock();
         try {
-            game.game().makeMove(move);
-        } catch (chess.InvalidMoveException e) {
-            throw new DataAccessException("Error: invalid move");
+            boolean waited = awaitPendingWrite(gameID);
+            return applyWithRetry(gameID, notFoundMessage, waited ? null : prefetchedGame, update);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // Update the game in the database
-        gameDAO.updateGame(game);
+    /**
+     * @param prefetchedGame a read of the game already in flight, or null if the first attempt must read afresh
+     */
+    private GameData applyWithRetry(int gameID, String notFoundMessage, CompletableFuture<GameData> prefetchedGame,
+                                    GameUpdate update) throws DataAccessException {
+        VersionConflictException conflict = null;
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            GameData game = attempt == 0 && prefetchedGame != null
+                    ? AsyncDataAccess.await(prefetchedGame)
+                    : gameDAO.getGame(gameID);
+            if (game == null) {
+                throw new DataAccessException(notFoundMessage);
+            }
+
+            GameData updatedGame = update.apply(game);
+            if (updatedGame == null) {
+                return game;
+            }
+
+            try {
+                gameDAO.updateGame(updatedGame);
+                return updatedGame;
+            } catch (VersionConflictException e) {
+                conflict = e;
+            }
+        }
+        throw conflict;
+    }
 
-        return game;
+    /**
+     * Applies a move to the game, appends it to the journal and schedules the write to the game store for once
+     * it is durable. The game's lock is released before the journal commits so other games sharing the lock
+     * stripe can join the same group commit.
+     * <p>
+     * The game is always read under the lock. The journaled move carries no version check of its own, so a read
+     * taken before the lock could miss a write that landed in between, and the move would be applied to the old
+     * board and then rejected by the store after it was acknowledged. While an earlier move of the game is still
+     * on its way to the store, the move is applied to a copy of that move's result instead of waiting for the
+     * write, and its own write is queued behind it.
+     */
+    private PendingWrite journalMove(int gameID, ChessMove move, GameUpdate update) throws DataAccessException {
+        ReentrantLock lock = lockFor(gameID);
+        lock.lock();
+        try {
+            PendingWrite previous = pendingWrites.get(gameID);
+            GameData game = previous != null ? previous.nextBase(gson) : gameDAO.getGame(gameID);
+            if (game == null) {
+                throw new DataAccessException("Error: game not found");
+            }
+
+            GameData updatedGame = update.apply(game);
+            CompletableFuture<Void> appended = journal.append(gameID, game.version(), move);
+            // A move built on one that never became durable was never acknowledged either
+            CompletableFuture<Void> durable = previous == null
+                    ? appended
+                    : appended.runAfterBoth(previous.durable(), () -> {});
+            CompletableFuture<Void> previousWritten = previous == null
+                    ? CompletableFuture.completedFuture(null)
+                    : previous.written().exceptionally(e -> null);
+            PendingWrite pending = new PendingWrite(updatedGame, durable, new CompletableFuture<>(),
+                    new CompletableFuture<>());
+            pendingWrites.put(gameID, pending);
+            CompletableFuture.allOf(durable, previousWritten).whenComplete((ignored, error) -> {
+                if (error == null) {
+                    writeJournaledMove(gameID, pending, INITIAL_WRITE_BACKOFF_MILLIS);
+                    return;
+                }
+                if (!appended.isCompletedExceptionally()) {
+                    journal.markDiscarded();
+                }
+                pendingWrites.remove(gameID, pending);
+                pending.written().completeExceptionally(error);
+            });
+            return pending;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public void resignGame(int gameID, String authToken) throws DataAccessException {
-        AuthData authData = authDAO.getAuth(authToken);
-        if (authData == null) {
-            throw new DataAccessException("Error: unauthorized");
+    /**
+     * Writes a durable journaled move to the game store, retrying with backoff until the store takes it, so the
+     * journal can be checkpointed without waiting for another command on the game.
+     */
+    private void writeJournaledMove(int gameID, PendingWrite pending, long backoffMillis) {
+        AsyncDataAccess.run(() -> gameDAO.updateGame(pending.game()), ioExecutor).whenComplete((ignored, error) -> {
+            if (error == null) {
+                pendingWrites.remove(gameID, pending);
+                journal.markApplied();
+                pending.written().complete(null);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            pending.failedAttempt().completeExceptionally(cause);
+            if (cause instanceof VersionConflictException) {
+                // The store has moved past the move's version, so no retry can land it
+                System.err.println("Dropping journaled move for game " + gameID + ": " + cause.getMessage());
+                journal.markDiscarded();
+                pendingWrites.remove(gameID, pending);
+                pending.written().completeExceptionally(cause);
+                return;
+            }
+            System.err.println("Retrying journaled move for game " + gameID + ": " + cause.getMessage());
+            long nextBackoff = Math.min(backoffMillis * 2, MAX_WRITE_BACKOFF_MILLIS);
+            CompletableFuture.delayedExecutor(backoffMillis, TimeUnit.MILLISECONDS, ioExecutor)
+                    .execute(() -> writeJournaledMove(gameID, pending, nextBackoff));
+        });
+    }
+
+    /**
+     * Waits for the background write of a journaled move so reads of the game include it. While the store is
+     * rejecting the write, this fails with the store's error instead of waiting for the retries.
+     *
+     * @return whether there was a write to wait for
+     */
+    private boolean awaitPendingWrite(int gameID) throws DataAccessException {
+        PendingWrite pending = pendingWrites.get(gameID);
+        if (pending == null) {
+            return false;
+        }
+        try {
+            CompletableFuture.anyOf(pending.written(), pending.failedAttempt()).join();
+        } catch (CompletionException | CancellationException e) {
+            // Checked below
         }
+        // A move that never reached the journal was never acknowledged, so the store is right without it
+        if (pending.written().isDone()) {
+            return true;
+        }
+        Throwable failure = pending.failedAttempt().exceptionNow();
+        if (failure instanceof DataAccessException e) {
+            throw e;
+        }
+        throw new DataAccessException("Error: " + failure.getMessage());
+    }
 
+    /**
+     * Looks a game up among the games in play and then, if it is not there, in the archive.
+     */
+    private GameData findGame(int gameID) throws DataAccessException {
+        awaitPendingWrite(gameID);
         GameData game = gameDAO.getGame(gameID);
-        if (game == null) {
-            throw new DataAccessException("Error: game not found");
-        }
+        return game != null ? game : gameDAO.getArchivedGame(gameID);
+    }
 
-        // Mark the game as over by setting both players to null
-        GameData updatedGame = new GameData(game.gameID(), null, null, game.gameName(), game.game());
-        gameDAO.updateGame(updatedGame);
+    /**
+     * Records time spent in the chess rules in both the histogram and the current trace.
+     */
+    private static void record(Histogram histogram, String spanName, long startNanos) {
+        long end = System.nanoTime();
+        histogram.record(end - startNanos);
+        Tracer.record(spanName, startNanos, end);
     }
 
-    public boolean isGameOver(int gameID) throws DataAccessException {
-        GameData game = gameDAO.getGame(gameID);
-        if (game == null) {
-            throw new DataAccessException("Error: game not found");
+    private ReentrantLock lockFor(int gameID) {
+        return gameLocks[Math.floorMod(gameID, gameLocks.length)];
+    }
+
+    /**
+     * A journaled move whose write to the game store may still be in flight.
+     *
+     * @param failedAttempt fails with the store's error once a write attempt has failed
+     */
+    private record PendingWrite(GameData game, CompletableFuture<Void> durable, CompletableFuture<Void> written,
+                                CompletableFuture<Void> failedAttempt) {
+
+        /**
+         * @return a copy of the game as the store will hold it once this write lands
+         */
+        GameData nextBase(Gson gson) {
+            // A round trip through JSON copies the board as the store keeps it, including which pieces have moved
+            ChessGame board = gson.fromJson(gson.toJson(game.game()), ChessGame.class);
+            return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), board,
+                    game.version() + 1, game.status(), game.result());
         }
+    }
 
-        // The game is over if both player usernames are null (resigned) or if it's in checkmate or stalemate
-        return (game.whiteUsername() == null && game.blackUsername() == null) ||
-                game.game().isInCheckmate(ChessGame.TeamColor.WHITE) ||
-                game.game().isInCheckmate(ChessGame.TeamColor.BLACK) ||
-                game.game().isInStalemate(ChessGame.TeamColor.WHITE) ||
-                game.game().isInStalemate(ChessGame.TeamColor.BLACK);
+    @FunctionalInterface
+    private interface GameUpdate {
+        /**
+         * @return the game to write back, or null if nothing needs to change
+         */
+        GameData apply(GameData current) throws DataAccessException;
     }
-}
\ No newline at end of file
+}
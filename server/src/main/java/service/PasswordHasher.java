@@ -0,0 +1,173 @@
+package service;
+
+import dataaccess.DataAccessException;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs bcrypt hashing and verification on a small dedicated pool of worker threads.
+ * <p>
+ * bcrypt is deliberately CPU-heavy, so a burst of logins run on request threads could occupy every core
+ * and starve move handling. Here the work is capped at a fixed number of workers with a bounded queue;
+ * once both are full, further requests fail straight away with a "server busy" error instead of waiting.
+ */
+public class PasswordHasher implements AutoCloseable {
+    public static final int DEFAULT_COST = 10;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private static PasswordHasher defaultHasher;
+
+    private final ThreadPoolExecutor executor;
+    private final int cost;
+    private final Timing hashTiming = new Timing();
+    private final Timing verifyTiming = new Timing();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param workers       threads available for hashing; keep this below the core count so games keep running
+     * @param queueCapacity requests that may wait for a worker before new ones are rejected
+     * @param cost          bcrypt log2 work factor used for new hashes
+     */
+    public PasswordHasher(int workers, int queueCapacity, int cost) {
+        if (workers <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Workers must be positive and queue capacity non-negative");
+        }
+        BlockingQueue<Runnable> queue = queueCapacity == 0
+                ? new SynchronousQueue<>()
+                : new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, queue,
+                Thread.ofPlatform().name("bcrypt-", 0).daemon(true).factory());
+        this.cost = cost;
+    }
+
+    /**
+     * The hasher shared by services that are not given one, sized to half the cores.
+     * The cost, worker count and queue capacity can be overridden with the
+     * {@code chess.bcrypt.cost}, {@code chess.bcrypt.workers} and {@code chess.bcrypt.queue} system properties.
+     */
+    public static synchronized PasswordHasher defaultHasher() {
+        if (defaultHasher == null) {
+            int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            defaultHasher = new PasswordHasher(
+                    Integer.getInteger("chess.bcrypt.workers", workers),
+                    Integer.getInteger("chess.bcrypt.queue", DEFAULT_QUEUE_CAPACITY),
+                    Integer.getInteger("chess.bcrypt.cost", DEFAULT_COST));
+        }
+        return defaultHasher;
+    }
+
+    public String hash(String password) throws DataAccessException {
+        return run(hashTiming, () -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    public boolean verify(String password, String hashedPassword) throws DataAccessException {
+        return run(verifyTiming, () -> BCrypt.checkpw(password, hashedPassword));
+    }
+
+    /**
+     * Starts the worker threads and seeds the random source for salts, so the first registration after a
+     * restart does not wait for either.
+     */
+    public void warmUp() {
+        executor.prestartAllCoreThreads();
+        BCrypt.gensalt(cost);
+    }
+
+    public Timing hashTiming() {
+        return hashTiming;
+    }
+
+    public Timing verifyTiming() {
+        return verifyTiming;
+    }
+
+    public long rejected() {
+        return rejected.get();
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Timing timing, Callable<T> work) throws DataAccessException {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    timing.record(started - submitted, System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new DataAccessException("Error: server busy, try again later");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted while checking password");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new DataAccessException("Error: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Time requests spent waiting for a worker and hashing, kept separately for hashing and verification.
+     */
+    public static class Timing {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder queuedNanos = new LongAdder();
+        private final LongAdder workNanos = new LongAdder();
+        private final AtomicLong maxTotalNanos = new AtomicLong();
+
+        void record(long queued, long work) {
+            count.increment();
+            queuedNanos.add(queued);
+            workNanos.add(work);
+            maxTotalNanos.accumulateAndGet(queued + work, Math::max);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double meanQueuedMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : queuedNanos.sum() / 1e6 / n;
+        }
+
+        public double meanWorkMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : workNanos.sum() / 1e6 / n;
+        }
+
+        public double maxMillis() {
+            return maxTotalNanos.get() / 1e6;
+        }
+    }
+}
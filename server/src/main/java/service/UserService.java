@@ -4,17 +4,20 @@ import dataaccess.*;
 import model.UserData;
 import request.RegisterRequest;
 import result.RegisterResult;
-import org.mindrot.jbcrypt.BCrypt;
-
-import java.util.UUID;
 
 public class UserService {
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
+    private final PasswordHasher passwordHasher;
 
     public UserService(UserDAO userDAO, AuthDAO authDAO) {
+        this(userDAO, authDAO, PasswordHasher.defaultHasher());
+    }
+
+    public UserService(UserDAO userDAO, AuthDAO authDAO, PasswordHasher passwordHasher) {
         this.userDAO = userDAO;
         this.authDAO = authDAO;
+        this.passwordHasher = passwordHasher;
     }
 
     public RegisterResult register(RegisterRequest request) throws DataAccessException {
@@ -29,15 +32,14 @@ public class UserService {
         }
 
         // Hash the password
-        String hashedPassword = BCrypt.hashpw(request.password(), BCrypt.gensalt());
+        String hashedPassword = passwordHasher.hash(request.password());
 
         // Create new user
         UserData newUser = new UserData(request.username(), hashedPassword, request.email());
         userDAO.createUser(newUser);
 
         // Generate auth token
-        String authToken = UUID.randomUUID().toString();
-        authDAO.createAuth(authToken, request.username());
+        String authToken = authDAO.issueToken(request.username());
 
         return new RegisterResult(request.username(), authToken);
     }
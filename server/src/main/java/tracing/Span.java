@@ -0,0 +1,13 @@
+package tracing;
+
+/**
+ * One timed step of a {@link Trace}, such as a data access call or a rules check.
+ *
+ * @param startNanos the {@link System#nanoTime} the step started at
+ * @param thread     the thread the step ran on
+ */
+public record Span(String name, long startNanos, long durationNanos, String thread) {
+    public long endNanos() {
+        return startNanos + durationNanos;
+    }
+}
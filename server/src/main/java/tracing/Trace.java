@@ -0,0 +1,168 @@
+package tracing;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The steps taken to handle one request or command, recorded as {@link Span}s.
+ * <p>
+ * Spans are recorded once they finish, from whichever thread ran them, so nesting is not tracked while
+ * recording; {@link #describe} works it out afterwards from which spans enclose which. A trace keeps at most
+ * {@link #MAX_SPANS} spans and ignores any recorded after it has finished.
+ */
+public final class Trace {
+    public static final int MAX_SPANS = 256;
+
+    private final long startNanos = System.nanoTime();
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final List<Span> spans = new ArrayList<>();
+    private volatile String name;
+    private volatile String outcome;
+    private long durationNanos = -1;
+    private int droppedSpans;
+
+    /**
+     * Makes a trace current on a thread until closed; closing restores whatever was current before.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    Trace(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Makes this the trace that spans on the calling thread are recorded in.
+     */
+    public Scope activate() {
+        Trace previous = Tracer.CURRENT.get();
+        Tracer.CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                Tracer.CURRENT.remove();
+            } else {
+                Tracer.CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Records a span that started at {@code startNanos} and ends now.
+     */
+    public void record(String spanName, long startNanos) {
+        record(spanName, startNanos, System.nanoTime());
+    }
+
+    public synchronized void record(String spanName, long startNanos, long endNanos) {
+        if (durationNanos >= 0) {
+            return;
+        }
+        if (spans.size() >= MAX_SPANS) {
+            droppedSpans++;
+            return;
+        }
+        spans.add(new Span(spanName, startNanos, endNanos - startNanos, threadName()));
+    }
+
+    public void rename(String newName) {
+        this.name = newName;
+    }
+
+    /**
+     * Notes how the request ended, such as a status code or an error message.
+     */
+    public void outcome(String newOutcome) {
+        this.outcome = newOutcome;
+    }
+
+    /**
+     * @return whether this call finished the trace, rather than it having been finished already
+     */
+    synchronized boolean end() {
+        if (durationNanos >= 0) {
+            return false;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        return true;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String outcome() {
+        return outcome;
+    }
+
+    public long startedAtMillis() {
+        return startedAtMillis;
+    }
+
+    /**
+     * @return how long the request took, or -1 while it is still running
+     */
+    public synchronized long durationNanos() {
+        return durationNanos;
+    }
+
+    public synchronized List<Span> spans() {
+        return List.copyOf(spans);
+    }
+
+    /**
+     * Writes the trace as a header line followed by one line per span, in start order, each indented under the
+     * spans that enclose it and showing its offset from the start of the trace.
+     */
+    public String describe() {
+        List<Span> ordered;
+        long duration;
+        int dropped;
+        synchronized (this) {
+            ordered = new ArrayList<>(spans);
+            duration = durationNanos;
+            dropped = droppedSpans;
+        }
+        ordered.sort(Comparator.comparingLong(Span::startNanos)
+                .thenComparing(Comparator.comparingLong(Span::durationNanos).reversed()));
+
+        StringBuilder out = new StringBuilder();
+        out.append(name).append(' ').append(millis(duration)).append(" ms");
+        if (outcome != null) {
+            out.append(" (").append(outcome).append(')');
+        }
+        out.append(" at ").append(Instant.ofEpochMilli(startedAtMillis)).append('\n');
+
+        List<Span> enclosing = new ArrayList<>();
+        for (Span span : ordered) {
+            while (!enclosing.isEmpty() && enclosing.getLast().endNanos() < span.endNanos()) {
+                enclosing.removeLast();
+            }
+            out.append("  ".repeat(enclosing.size() + 1))
+                    .append('+').append(millis(span.startNanos() - startNanos)).append(" ms ")
+                    .append(span.name()).append(' ').append(millis(span.durationNanos())).append(" ms")
+                    .append(" [").append(span.thread()).append("]\n");
+            enclosing.add(span);
+        }
+        if (dropped > 0) {
+            out.append("  ... ").append(dropped).append(" more spans not recorded\n");
+        }
+        return out.toString();
+    }
+
+    /**
+     * Virtual threads are usually unnamed, so they are told apart by ID.
+     */
+    private static String threadName() {
+        Thread thread = Thread.currentThread();
+        String name = thread.getName();
+        return name.isEmpty() ? "virtual-" + thread.threadId() : name;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,145 @@
+package tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts a {@link Trace} for each request and keeps the most recent slow ones for inspection.
+ * <p>
+ * Every request is traced, which costs a few small objects per span; only traces that took at least the slow
+ * threshold are kept, in a ring buffer that overwrites the oldest. Code that does the work does not need a
+ * tracer: it records spans into whichever trace is current on its thread through {@link #record}, which does
+ * nothing when no trace is current. {@link #propagating} carries the current trace over to another executor.
+ */
+public class Tracer {
+    public static final long DEFAULT_SLOW_MILLIS = 100;
+    public static final int DEFAULT_CAPACITY = 64;
+
+    static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private final long slowNanos;
+    private final Trace[] slowTraces;
+    private final AtomicLong finishedTraces = new AtomicLong();
+    private final AtomicLong recordedSlowTraces = new AtomicLong();
+
+    /**
+     * @param slowMillis the shortest request whose trace is kept
+     * @param capacity   how many slow traces are kept
+     */
+    public Tracer(long slowMillis, int capacity) {
+        if (slowMillis < 0 || capacity < 1) {
+            throw new IllegalArgumentException("Slow threshold must not be negative and capacity must be positive");
+        }
+        this.slowNanos = slowMillis * 1_000_000;
+        this.slowTraces = new Trace[capacity];
+    }
+
+    /**
+     * Reads the slow threshold from {@code chess.trace.slowMillis} and the number of traces kept from
+     * {@code chess.trace.capacity}.
+     */
+    public static Tracer fromSystemProperties() {
+        return new Tracer(Long.getLong("chess.trace.slowMillis", DEFAULT_SLOW_MILLIS),
+                Integer.getInteger("chess.trace.capacity", DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Starts a trace; it is not current on any thread until {@linkplain Trace#activate activated}.
+     */
+    public Trace start(String name) {
+        return new Trace(name);
+    }
+
+    /**
+     * Ends a trace and keeps it if it was slow. Finishing a trace twice has no further effect.
+     */
+    public void finish(Trace trace) {
+        if (!trace.end()) {
+            return;
+        }
+        finishedTraces.incrementAndGet();
+        if (trace.durationNanos() >= slowNanos) {
+            long index = recordedSlowTraces.getAndIncrement();
+            synchronized (slowTraces) {
+                slowTraces[(int) (index % slowTraces.length)] = trace;
+            }
+        }
+    }
+
+    /**
+     * @return the slow traces kept, newest first
+     */
+    public List<Trace> slowTraces() {
+        List<Trace> traces = new ArrayList<>(slowTraces.length);
+        synchronized (slowTraces) {
+            for (Trace trace : slowTraces) {
+                if (trace != null) {
+                    traces.add(trace);
+                }
+            }
+        }
+        traces.sort((a, b) -> Long.compare(b.startedAtMillis(), a.startedAtMillis()));
+        return traces;
+    }
+
+    /**
+     * @return every slow trace kept, newest first, in the form of {@link Trace#describe}
+     */
+    public String describeSlowTraces() {
+        StringBuilder out = new StringBuilder();
+        for (Trace trace : slowTraces()) {
+            out.append(trace.describe()).append('\n');
+        }
+        return out.toString();
+    }
+
+    public long finishedTraces() {
+        return finishedTraces.get();
+    }
+
+    public long slowTracesRecorded() {
+        return recordedSlowTraces.get();
+    }
+
+    /**
+     * @return the trace current on this thread, or null if there is none
+     */
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Records a span in the trace current on this thread, if there is one.
+     */
+    public static void record(String spanName, long startNanos, long endNanos) {
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            trace.record(spanName, startNanos, endNanos);
+        }
+    }
+
+    public static void record(String spanName, long startNanos) {
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            trace.record(spanName, startNanos, System.nanoTime());
+        }
+    }
+
+    /**
+     * @return an executor that runs tasks with the calling thread's current trace, or the executor itself if no
+     * trace is current
+     */
+    public static Executor propagating(Executor executor) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return executor;
+        }
+        return task -> executor.execute(() -> {
+            try (Trace.Scope active = trace.activate()) {
+                task.run();
+            }
+        });
+    }
+}
@@ -100,4 +100,26 @@ class AuthDAOTest {
         AuthData retrievedAuth = authDAO.getAuth(authToken);
         assertNull(retrievedAuth);
     }
-}
\ No newline at end of file
+
+    @Test
+    void expiredTokenRejectedAndPurged() throws DataAccessException, InterruptedException {
+        AuthDAO shortLived = new MySqlAuthDAO(100);
+        String authToken = UUID.randomUUID().toString();
+        shortLived.createAuth(authToken, "testUser");
+
+        Thread.sleep(200);
+
+        assertNull(shortLived.getAuth(authToken));
+        assertEquals(1, shortLived.purgeExpired(10));
+        assertEquals(0, shortLived.countTokens());
+    }
+
+    @Test
+    void purgeExpiredKeepsLiveTokens() throws DataAccessException {
+        String authToken = UUID.randomUUID().toString();
+        authDAO.createAuth(authToken, "testUser");
+
+        assertEquals(0, authDAO.purgeExpired(10));
+        assertEquals(1, authDAO.countTokens());
+    }
+}
@@ -2,10 +2,15 @@ package dataaccess;
 
 import chess.ChessGame;
 import model.GameData;
+import model.GameResult;
+import model.GameStatus;
 import model.UserData;
 import org.junit.jupiter.api.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -112,6 +117,97 @@ class GameDAOTest {
         assertThrows(DataAccessException.class, () -> gameDAO.updateGame(nonExistentGame));
     }
 
+    @Test
+    void updateGameIncrementsVersion() throws DataAccessException {
+        // Positive test
+        gameDAO.createGame(new GameData(0, null, null, "Test Game", new ChessGame()));
+        GameData createdGame = gameDAO.listGames().get(0);
+        assertEquals(0, createdGame.version());
+
+        gameDAO.updateGame(createdGame);
+
+        assertEquals(1, gameDAO.getGame(createdGame.gameID()).version());
+    }
+
+    @Test
+    void updateGameStaleVersion() throws DataAccessException {
+        // Negative test
+        gameDAO.createGame(new GameData(0, null, null, "Test Game", new ChessGame()));
+        GameData staleGame = gameDAO.listGames().get(0);
+        gameDAO.updateGame(staleGame);
+
+        GameData conflictingUpdate = new GameData(staleGame.gameID(), null, null, "Lost Update",
+                staleGame.game(), staleGame.version());
+        assertThrows(VersionConflictException.class, () -> gameDAO.updateGame(conflictingUpdate));
+        assertEquals("Test Game", gameDAO.getGame(staleGame.gameID()).gameName());
+    }
+
+    @Test
+    void staleUpdatesInOneBatchConflict() throws Exception {
+        // Negative test
+        gameDAO.createGame(new GameData(0, null, null, "First", new ChessGame()));
+        gameDAO.createGame(new GameData(0, null, null, "Second", new ChessGame()));
+        gameDAO.createGame(new GameData(0, null, null, "Third", new ChessGame()));
+        List<GameData> stale = gameDAO.listGames();
+        gameDAO.updateGame(stale.get(0));
+        gameDAO.updateGame(stale.get(1));
+
+        // A long window puts all three updates in one rewritten batch
+        try (MySqlGameDAO batchingDAO = new MySqlGameDAO(500, 16)) {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (GameData game : stale) {
+                GameData renamed = new GameData(game.gameID(), null, null, "Lost Update", game.game(),
+                        game.version());
+                writes.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        batchingDAO.updateGame(renamed);
+                    } catch (DataAccessException e) {
+                        throw new CompletionException(e);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < 2; i++) {
+                CompletableFuture<Void> write = writes.get(i);
+                assertThrows(VersionConflictException.class, () -> AsyncDataAccess.await(write));
+            }
+            AsyncDataAccess.await(writes.get(2));
+            assertEquals(1, batchingDAO.getUpdateCoalescer().getFlushes());
+        }
+        assertEquals("First", gameDAO.getGame(stale.get(0).gameID()).gameName());
+        assertEquals("Second", gameDAO.getGame(stale.get(1).gameID()).gameName());
+        assertEquals("Lost Update", gameDAO.getGame(stale.get(2).gameID()).gameName());
+    }
+
+    @Test
+    void archiveFinishedGamesSuccess() throws DataAccessException {
+        // Positive test
+        gameDAO.createGame(new GameData(0, null, null, "Open Game", new ChessGame()));
+        gameDAO.createGame(new GameData(0, null, null, "Finished Game", new ChessGame()));
+        GameData finished = gameDAO.listGames().stream()
+                .filter(g -> g.gameName().equals("Finished Game"))
+                .findFirst()
+                .orElseThrow();
+        gameDAO.updateGame(finished.finish(GameResult.DRAW));
+
+        assertEquals(1, gameDAO.listGames().size());
+        assertEquals(1, gameDAO.archiveFinishedGames());
+
+        assertNull(gameDAO.getGame(finished.gameID()));
+        GameData archived = gameDAO.getArchivedGame(finished.gameID());
+        assertEquals(GameStatus.FINISHED, archived.status());
+        assertEquals(GameResult.DRAW, archived.result());
+    }
+
+    @Test
+    void getArchivedGameNotFound() throws DataAccessException {
+        // Negative test
+        gameDAO.createGame(new GameData(0, null, null, "Open Game", new ChessGame()));
+
+        assertEquals(0, gameDAO.archiveFinishedGames());
+        assertNull(gameDAO.getArchivedGame(gameDAO.listGames().get(0).gameID()));
+    }
+
     @Test
     void clearSuccess() throws DataAccessException {
         // Positive test
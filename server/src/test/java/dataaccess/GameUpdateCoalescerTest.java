@@ -0,0 +1,211 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameUpdateCoalescerTest {
+    private FakeStore store;
+    private ExecutorService callers;
+    private GameUpdateCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        store = new FakeStore();
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        callers.shutdownNow();
+    }
+
+    @Test
+    void updatesWithinWindowShareOneFlush() throws Exception {
+        coalescer = new GameUpdateCoalescer(store, 200, 256);
+        for (int gameID = 1; gameID <= 10; gameID++) {
+            store.versions.put(gameID, 0);
+        }
+
+        List<Future<?>> done = new ArrayList<>();
+        for (int gameID = 1; gameID <= 10; gameID++) {
+            int id = gameID;
+            done.add(callers.submit(() -> submit(id, "state", 0)));
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+
+        assertEquals(1, store.batches.size());
+        assertEquals(10, store.batches.get(0).size());
+        assertEquals(1, coalescer.getFlushes());
+        assertEquals(10.0, coalescer.getAverageBatchSize());
+        assertEquals(10, coalescer.getWrittenUpdates());
+    }
+
+    @Test
+    void fullBatchFlushesWithoutWaitingForWindow() throws Exception {
+        coalescer = new GameUpdateCoalescer(store, 60_000, 2);
+        store.versions.put(1, 0);
+        store.versions.put(2, 0);
+
+        Future<?> first = callers.submit(() -> submit(1, "state", 0));
+        Future<?> second = callers.submit(() -> submit(2, "state", 0));
+        first.get();
+        second.get();
+
+        assertEquals(1, store.batches.size());
+    }
+
+    @Test
+    void laterUpdateSupersedesPendingOne() throws Exception {
+        coalescer = new GameUpdateCoalescer(store, 300, 256);
+        store.versions.put(1, 0);
+
+        Future<?> first = callers.submit(() -> submit(1, "first", 0));
+        waitForPending(1);
+        GameUpdateCoalescer.Update pending = coalescer.pending(1);
+        assertEquals("first", pending.gameState());
+        assertEquals(1, pending.newVersion(), "reads see the pending update's version");
+        Future<?> second = callers.submit(() -> submit(1, "second", pending.newVersion()));
+        first.get();
+        second.get();
+
+        assertEquals(1, store.batches.size());
+        GameUpdateCoalescer.Update written = store.batches.get(0).get(0);
+        assertEquals("second", written.gameState());
+        assertEquals(0, written.expectedVersion());
+        assertEquals(2, written.newVersion());
+        assertEquals(2, store.versions.get(1));
+        assertEquals(1, coalescer.getSupersededUpdates());
+        assertNull(coalescer.pending(1));
+    }
+
+    @Test
+    void staleUpdateToPendingGameIsRejected() throws Exception {
+        coalescer = new GameUpdateCoalescer(store, 300, 256);
+        store.versions.put(1, 0);
+
+        Future<?> first = callers.submit(() -> submit(1, "first", 0));
+        waitForPending(1);
+
+        assertThrows(VersionConflictException.class, () -> submit(1, "stale", 0));
+        first.get();
+        assertEquals("first", store.batches.get(0).get(0).gameState());
+    }
+
+    @Test
+    void storeOutcomesReachCallers() {
+        coalescer = new GameUpdateCoalescer(store, 0, 256);
+        store.versions.put(1, 3);
+
+        assertThrows(VersionConflictException.class, () -> submit(1, "state", 0));
+        DataAccessException missing = assertThrows(DataAccessException.class,
+                () -> submit(2, "state", 0));
+        assertFalse(missing instanceof VersionConflictException);
+    }
+
+    @Test
+    void writerFailureFailsWholeBatch() {
+        coalescer = new GameUpdateCoalescer(batch -> {
+            throw new DataAccessException("Error: connection refused");
+        }, 0, 256);
+
+        DataAccessException e = assertThrows(DataAccessException.class,
+                () -> submit(1, "state", 0));
+        assertEquals("Error: connection refused", e.getMessage());
+        assertNull(coalescer.pending(1));
+    }
+
+    @Test
+    void awaitWrittenWaitsForPendingUpdate() throws Exception {
+        coalescer = new GameUpdateCoalescer(store, 300, 256);
+        store.versions.put(1, 0);
+
+        Future<?> update = callers.submit(() -> submit(1, "state", 0));
+        waitForPending(1);
+        coalescer.awaitWritten(1);
+
+        assertEquals(1, store.versions.get(1));
+        assertNull(coalescer.pending(1));
+        update.get();
+    }
+
+    @Test
+    void awaitWrittenReturnsWhenUpdateFails() throws Exception {
+        coalescer = new GameUpdateCoalescer(batch -> {
+            throw new DataAccessException("Error: connection refused");
+        }, 300, 256);
+
+        Future<?> update = callers.submit(() -> submit(1, "state", 0));
+        waitForPending(1);
+        coalescer.awaitWritten(1);
+
+        assertNull(coalescer.pending(1));
+        assertThrows(ExecutionException.class, update::get);
+    }
+
+    @Test
+    void closeFlushesPendingUpdates() throws Exception {
+        coalescer = new GameUpdateCoalescer(store, 60_000, 256);
+        store.versions.put(1, 0);
+
+        Future<?> update = callers.submit(() -> submit(1, "state", 0));
+        waitForPending(1);
+        coalescer.close();
+
+        update.get();
+        assertEquals(1, store.versions.get(1));
+        assertThrows(DataAccessException.class, () -> submit(1, "late", 1));
+    }
+
+    private Void submit(int gameID, String state, int version) throws DataAccessException {
+        coalescer.submit(gameID, null, null, "game", state, "OPEN", null, version);
+        return null;
+    }
+
+    private void waitForPending(int gameID) throws InterruptedException {
+        while (coalescer.pending(gameID) == null) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Keeps a version per game and applies updates with the same check as the SQL statement.
+     */
+    private static class FakeStore implements GameUpdateCoalescer.BatchWriter {
+        private final Map<Integer, Integer> versions = new ConcurrentHashMap<>();
+        private final List<List<GameUpdateCoalescer.Update>> batches = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<GameUpdateCoalescer.Outcome> write(List<GameUpdateCoalescer.Update> batch) {
+            batches.add(batch);
+            List<GameUpdateCoalescer.Outcome> outcomes = new ArrayList<>();
+            for (GameUpdateCoalescer.Update update : batch) {
+                Integer version = versions.get(update.gameID());
+                if (version == null) {
+                    outcomes.add(GameUpdateCoalescer.Outcome.MISSING);
+                } else if (version != update.expectedVersion()) {
+                    outcomes.add(GameUpdateCoalescer.Outcome.VERSION_CONFLICT);
+                } else {
+                    versions.put(update.gameID(), update.newVersion());
+                    outcomes.add(GameUpdateCoalescer.Outcome.WRITTEN);
+                }
+            }
+            return outcomes;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package dataaccess;
+
+import model.AuthData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryAuthDAOTest {
+    private static final long TTL = 60_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private MemoryUserDAO userDAO;
+    private MemoryAuthDAO authDAO;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        userDAO = new MemoryUserDAO();
+        authDAO = new MemoryAuthDAO(userDAO, TTL, clock::get);
+        userDAO.createUser(new UserData("testUser", "password", "test@example.com"));
+    }
+
+    @Test
+    void createGetAndDeleteAuth() throws DataAccessException {
+        authDAO.createAuth("token", "testUser");
+
+        assertEquals(new AuthData("token", "testUser"), authDAO.getAuth("token"));
+        authDAO.deleteAuth("token");
+        assertNull(authDAO.getAuth("token"));
+    }
+
+    @Test
+    void createAuthNonExistentUser() {
+        assertThrows(DataAccessException.class, () -> authDAO.createAuth("token", "nobody"));
+    }
+
+    @Test
+    void deleteAuthNonExistent() {
+        assertThrows(DataAccessException.class, () -> authDAO.deleteAuth("missing"));
+    }
+
+    @Test
+    void duplicateUserRejected() {
+        assertThrows(DataAccessException.class,
+                () -> userDAO.createUser(new UserData("testUser", "other", "other@example.com")));
+    }
+
+    @Test
+    void unusedTokenExpires() throws DataAccessException {
+        authDAO.createAuth("token", "testUser");
+
+        clock.addAndGet(TTL);
+
+        assertNull(authDAO.getAuth("token"));
+    }
+
+    @Test
+    void usedTokenSlidesForward() throws DataAccessException {
+        authDAO.createAuth("token", "testUser");
+
+        clock.addAndGet(TTL / 2 + 1);
+        assertNotNull(authDAO.getAuth("token"));
+        clock.addAndGet(TTL - 1);
+
+        assertNotNull(authDAO.getAuth("token"));
+    }
+
+    @Test
+    void purgeExpiredDeletesInBatches() throws DataAccessException {
+        for (int i = 0; i < 5; i++) {
+            authDAO.createAuth("old" + i, "testUser");
+        }
+        clock.addAndGet(TTL);
+        authDAO.createAuth("fresh", "testUser");
+
+        assertEquals(3, authDAO.purgeExpired(3));
+        assertEquals(2, authDAO.purgeExpired(3));
+        assertEquals(0, authDAO.purgeExpired(3));
+        assertEquals(1, authDAO.countTokens());
+        assertNotNull(authDAO.getAuth("fresh"));
+    }
+}
@@ -0,0 +1,146 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import model.GameResult;
+import model.GameStatus;
+import model.UserData;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryGameDAOTest {
+    private MemoryUserDAO userDAO;
+    private MemoryGameDAO gameDAO;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        userDAO = new MemoryUserDAO();
+        gameDAO = new MemoryGameDAO(userDAO);
+        userDAO.createUser(new UserData("white", "password", "white@example.com"));
+    }
+
+    @Test
+    void createAndListGames() throws DataAccessException {
+        gameDAO.createGame(new GameData(0, null, null, "first", new ChessGame()));
+        gameDAO.createGame(new GameData(0, "white", null, "second", new ChessGame()));
+
+        List<GameData> games = gameDAO.listGames();
+
+        assertEquals(List.of("first", "second"), games.stream().map(GameData::gameName).toList());
+        assertEquals("white", gameDAO.getGame(games.get(1).gameID()).whiteUsername());
+    }
+
+    @Test
+    void createGameRequiresKnownPlayers() {
+        assertThrows(DataAccessException.class,
+                () -> gameDAO.createGame(new GameData(0, "nonexistentuser", null, "game", new ChessGame())));
+        assertThrows(DataAccessException.class,
+                () -> gameDAO.createGame(new GameData(0, null, null, null, new ChessGame())));
+    }
+
+    @Test
+    void changesToReadGameAreNotStored() throws Exception {
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData read = gameDAO.getGame(1);
+
+        read.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(1).game().getTeamTurn());
+    }
+
+    @Test
+    void updateGameChecksVersion() throws DataAccessException {
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData read = gameDAO.getGame(1);
+
+        gameDAO.updateGame(new GameData(1, "white", null, "game", read.game(), read.version()));
+
+        assertEquals(1, gameDAO.getGame(1).version());
+        assertThrows(VersionConflictException.class, () -> gameDAO.updateGame(read));
+        assertThrows(DataAccessException.class,
+                () -> gameDAO.updateGame(new GameData(42, null, null, "missing", new ChessGame())));
+    }
+
+    @Test
+    void concurrentCreatesGetDistinctIDs() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 500; i++) {
+                    try {
+                        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+                    } catch (DataAccessException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (GameData game : gameDAO.listGames()) {
+            ids.add(game.gameID());
+        }
+        assertEquals(0, failures.get());
+        assertEquals(4000, ids.size());
+    }
+
+    @Test
+    void concurrentUpdatesOfSameVersionOnlyOneWins() throws Exception {
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData read = gameDAO.getGame(1);
+        AtomicInteger wins = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    gameDAO.updateGame(read);
+                    wins.incrementAndGet();
+                } catch (VersionConflictException e) {
+                    conflicts.incrementAndGet();
+                } catch (DataAccessException e) {
+                    fail(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, wins.get());
+        assertEquals(7, conflicts.get());
+    }
+
+    @Test
+    void finishedGamesMoveToArchive() throws DataAccessException {
+        gameDAO.createGame(new GameData(0, "white", null, "open", new ChessGame()));
+        gameDAO.createGame(new GameData(0, "white", null, "over", new ChessGame()));
+        gameDAO.updateGame(gameDAO.getGame(2).finish(GameResult.BLACK_WON));
+
+        assertEquals(List.of("open"), gameDAO.listGames().stream().map(GameData::gameName).toList());
+        assertEquals(1, gameDAO.archiveFinishedGames());
+
+        assertNull(gameDAO.getGame(2));
+        GameData archived = gameDAO.getArchivedGame(2);
+        assertEquals("over", archived.gameName());
+        assertEquals("white", archived.whiteUsername());
+        assertEquals(GameStatus.FINISHED, archived.status());
+        assertEquals(GameResult.BLACK_WON, archived.result());
+        assertEquals(1, archived.version());
+        assertNull(gameDAO.getArchivedGame(1));
+        assertEquals(0, gameDAO.archiveFinishedGames());
+    }
+}
@@ -0,0 +1,169 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the migrated schema against a MySQL server, including that the queries the DAOs run use an index.
+ */
+class MigrationsTest {
+    private static final int FINISHED_GAMES = 2000;
+
+    @BeforeAll
+    static void migrate() throws DataAccessException {
+        DatabaseManager.createDatabase();
+        DatabaseManager.createTables();
+    }
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        DatabaseManager.clearDatabase();
+    }
+
+    @Test
+    void allMigrationsApplied() throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertEquals(new SchemaMigrator(Migrations.ALL).latestVersion(), SchemaMigrator.currentVersion(conn));
+        }
+    }
+
+    @Test
+    void migrateAgainAppliesNothing() throws DataAccessException {
+        assertEquals(0, DatabaseManager.createTables());
+    }
+
+    @Test
+    void lifecycleMigrationFinishesResignedLegacyGames() throws Exception {
+        ChessGame moved = new ChessGame();
+        moved.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String database = conn.getCatalog();
+            String legacy = database + "_legacy";
+            execute(conn, "DROP DATABASE IF EXISTS " + legacy);
+            execute(conn, "CREATE DATABASE " + legacy);
+            conn.setCatalog(legacy);
+            try {
+                // The tables as they were before games had a status, where resigning cleared both seats
+                Migrations.ALL.get(0).step().apply(conn);
+                execute(conn, "INSERT INTO users (username, password, email) VALUES ('white', 'password', 'email'), "
+                        + "('black', 'password', 'email')");
+                insertLegacyGame(conn, null, null, moved);
+                insertLegacyGame(conn, null, null, new ChessGame());
+                insertLegacyGame(conn, "white", "black", moved);
+
+                Migrations.ALL.get(1).step().apply(conn);
+
+                assertEquals("FINISHED", statusOf(conn, 1));
+                assertEquals("OPEN", statusOf(conn, 2));
+                assertEquals("ACTIVE", statusOf(conn, 3));
+            } finally {
+                execute(conn, "DROP DATABASE " + legacy);
+                conn.setCatalog(database);
+            }
+        }
+    }
+
+    @Test
+    void listGamesUsesStatusIndex() throws DataAccessException, SQLException {
+        seedGames();
+
+        assertEquals("games_status", indexUsed("SELECT * FROM games WHERE status IN ('OPEN', 'ACTIVE')"));
+    }
+
+    @Test
+    void playerGamesUseWhiteIndex() throws DataAccessException, SQLException {
+        seedGames();
+
+        assertEquals("games_white_status",
+                indexUsed("SELECT * FROM games WHERE white_username = 'player3' AND status = 'ACTIVE'"));
+    }
+
+    @Test
+    void playerGamesUseBlackIndex() throws DataAccessException, SQLException {
+        seedGames();
+
+        assertEquals("games_black_status",
+                indexUsed("SELECT * FROM games WHERE black_username = 'player3' AND status = 'ACTIVE'"));
+    }
+
+    @Test
+    void authLookupUsesPrimaryKey() throws DataAccessException, SQLException {
+        assertEquals("PRIMARY", indexUsed("SELECT * FROM auth_tokens WHERE auth_token = 'token'"));
+    }
+
+    /**
+     * Adds ten players and many finished games with a few live ones, so the optimizer prefers an index to a scan.
+     */
+    private static void seedGames() throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO users (username, password, email) VALUES (?, 'password', 'email')")) {
+                for (int i = 0; i < 10; i++) {
+                    stmt.setString(1, "player" + i);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO games "
+                    + "(white_username, black_username, game_name, game_state, status) VALUES (?, ?, 'game', '', ?)")) {
+                for (int i = 0; i < FINISHED_GAMES; i++) {
+                    stmt.setString(1, "player" + i % 10);
+                    stmt.setString(2, "player" + (i + 1) % 10);
+                    stmt.setString(3, i % 100 == 0 ? "ACTIVE" : "FINISHED");
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("ANALYZE TABLE games")) {
+                stmt.executeQuery().close();
+            }
+        }
+    }
+
+    private static void insertLegacyGame(Connection conn, String white, String black, ChessGame game)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO games "
+                + "(white_username, black_username, game_name, game_state) VALUES (?, ?, 'game', ?)")) {
+            stmt.setString(1, white);
+            stmt.setString(2, black);
+            stmt.setString(3, new Gson().toJson(game));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String statusOf(Connection conn, int gameID) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT status FROM games WHERE game_id = ?")) {
+            stmt.setInt(1, gameID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString("status");
+            }
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String indexUsed(String query) throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query);
+             ResultSet rs = stmt.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getString("key");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveJournalTest {
+    private static final ChessMove WHITE_PAWN = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    private static final ChessMove BLACK_PAWN = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private MemoryGameDAO gameDAO;
+    private MoveJournal journal;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        file = directory.resolve("moves.journal");
+        gameDAO = new MemoryGameDAO(new MemoryUserDAO());
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        journal = new MoveJournal(file);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void packRoundTrips() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 8), new ChessPosition(8, 8), ChessPiece.PieceType.QUEEN);
+
+        assertEquals(WHITE_PAWN, MoveJournal.unpack(MoveJournal.pack(WHITE_PAWN)));
+        assertEquals(promotion, MoveJournal.unpack(MoveJournal.pack(promotion)));
+    }
+
+    @Test
+    void replayAppliesMovesMissingFromStore() throws Exception {
+        journal.append(1, 0, WHITE_PAWN).join();
+        journal.append(1, 1, BLACK_PAWN).join();
+        reopen();
+
+        assertEquals(2, journal.replay(gameDAO));
+
+        GameData game = gameDAO.getGame(1);
+        assertEquals(2, game.version());
+        assertEquals(ChessGame.TeamColor.WHITE, game.game().getTeamTurn());
+        assertNotNull(game.game().getBoard().getPiece(new ChessPosition(5, 5)));
+        assertEquals(0, journal.sizeBytes(), "the store holds everything once replayed");
+    }
+
+    @Test
+    void replaySkipsMovesAlreadyInStore() throws Exception {
+        GameData game = gameDAO.getGame(1);
+        game.game().makeMove(WHITE_PAWN);
+        gameDAO.updateGame(game);
+        journal.append(1, 0, WHITE_PAWN).join();
+        journal.append(1, 1, BLACK_PAWN).join();
+        reopen();
+
+        assertEquals(1, journal.replay(gameDAO));
+        assertEquals(2, gameDAO.getGame(1).version());
+    }
+
+    @Test
+    void replayStopsAtTornRecord() throws Exception {
+        journal.append(1, 0, WHITE_PAWN).join();
+        journal.close();
+        // A full record with a bad checksum followed by a partial one
+        Files.write(file, new byte[20], StandardOpenOption.APPEND);
+        journal = new MoveJournal(file);
+
+        assertEquals(16, journal.sizeBytes());
+        journal.append(1, 1, BLACK_PAWN).join();
+        reopen();
+        assertEquals(2, journal.replay(gameDAO));
+    }
+
+    @Test
+    void replayIgnoresMovesBeforeClear() throws Exception {
+        journal.append(1, 0, WHITE_PAWN).join();
+        journal.appendClear().join();
+        reopen();
+
+        assertEquals(0, journal.replay(gameDAO));
+        assertEquals(0, gameDAO.getGame(1).version());
+    }
+
+    @Test
+    void concurrentAppendsShareCommits() throws Exception {
+        journal.close();
+        journal = new MoveJournal(file, 50, 512);
+
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        for (int gameID = 1; gameID <= 100; gameID++) {
+            durable.add(journal.append(gameID, 0, WHITE_PAWN));
+        }
+        CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(100, journal.journaledMoves());
+        assertTrue(journal.commits() < 10, "100 moves took " + journal.commits() + " fsyncs");
+    }
+
+    @Test
+    void checkpointWaitsForEveryMoveToBeApplied() throws Exception {
+        journal.close();
+        journal = new MoveJournal(file, 0, 512, 0);
+        journal.append(1, 0, WHITE_PAWN).join();
+        journal.append(1, 1, BLACK_PAWN).join();
+
+        journal.markApplied();
+        journal.appendClear().join();
+        assertEquals(48, journal.sizeBytes());
+
+        journal.markApplied();
+        journal.appendClear().join();
+        assertEquals(16, journal.sizeBytes());
+        assertEquals(1, journal.checkpoints());
+    }
+
+    @Test
+    void appendAfterCloseFails() {
+        journal.close();
+
+        CompletableFuture<Void> durable = journal.append(1, 0, WHITE_PAWN);
+
+        assertThrows(DataAccessException.class, () -> AsyncDataAccess.await(durable));
+    }
+
+    private void reopen() throws DataAccessException {
+        journal.close();
+        journal = new MoveJournal(file);
+    }
+}
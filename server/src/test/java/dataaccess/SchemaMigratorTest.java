@@ -0,0 +1,40 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+    private static final Migration.Step NOTHING = conn -> { };
+
+    @Test
+    void latestVersionIsLastMigration() {
+        SchemaMigrator migrator = new SchemaMigrator(List.of(
+                new Migration(1, "first", NOTHING), new Migration(4, "second", NOTHING)));
+
+        assertEquals(4, migrator.latestVersion());
+        assertEquals(0, new SchemaMigrator(List.of()).latestVersion());
+    }
+
+    @Test
+    void migrationsOutOfOrderRejected() {
+        List<Migration> migrations = List.of(new Migration(2, "second", NOTHING), new Migration(1, "first", NOTHING));
+
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(migrations));
+    }
+
+    @Test
+    void duplicateOrNonPositiveVersionsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(List.of(
+                new Migration(1, "first", NOTHING), new Migration(1, "again", NOTHING))));
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(List.of(
+                new Migration(0, "zero", NOTHING))));
+    }
+
+    @Test
+    void shippedMigrationsAreOrdered() {
+        assertEquals(Migrations.ALL.size(), new SchemaMigrator(Migrations.ALL).latestVersion());
+    }
+}
@@ -0,0 +1,160 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import model.GameResult;
+import model.GameStatus;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentGameDAOTest {
+    private static final int SMALL_SEGMENT = 32 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private SegmentGameDAO gameDAO;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        gameDAO = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gameDAO.close();
+    }
+
+    @Test
+    void createGetAndList() throws DataAccessException {
+        gameDAO.createGame(new GameData(0, null, null, "first", new ChessGame()));
+        gameDAO.createGame(new GameData(0, "white", null, "second", new ChessGame()));
+
+        List<GameData> games = gameDAO.listGames();
+
+        assertEquals(List.of(1, 2), games.stream().map(GameData::gameID).toList());
+        assertEquals("white", gameDAO.getGame(2).whiteUsername());
+        assertNull(gameDAO.getGame(3));
+    }
+
+    @Test
+    void updateGameChecksVersion() throws Exception {
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData read = gameDAO.getGame(1);
+        read.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        gameDAO.updateGame(read);
+
+        GameData updated = gameDAO.getGame(1);
+        assertEquals(1, updated.version());
+        assertEquals(ChessGame.TeamColor.BLACK, updated.game().getTeamTurn());
+        assertThrows(VersionConflictException.class, () -> gameDAO.updateGame(read));
+        assertThrows(DataAccessException.class,
+                () -> gameDAO.updateGame(new GameData(42, null, null, "missing", new ChessGame())));
+    }
+
+    @Test
+    void reopenReplaysSegments() throws Exception {
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData read = gameDAO.getGame(1);
+        read.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        gameDAO.updateGame(new GameData(1, "white", "black", "game", read.game(), read.version()));
+
+        gameDAO.close();
+        gameDAO = open();
+
+        GameData recovered = gameDAO.getGame(1);
+        assertEquals("white", recovered.whiteUsername());
+        assertEquals(1, recovered.version());
+        assertEquals(read.game().getBoard(), recovered.game().getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, recovered.game().getTeamTurn());
+        gameDAO.createGame(new GameData(0, null, null, "next", new ChessGame()));
+        assertNotNull(gameDAO.getGame(2), "IDs continue after the highest one replayed");
+    }
+
+    @Test
+    void recoveryStopsAtTornWrite() throws Exception {
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        long end = gameDAO.activeWritePosition();
+        Path segment = gameDAO.activeSegmentPath();
+        gameDAO.close();
+
+        // A record header whose payload never made it to disk
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(12).putInt(200).putInt(12345).putInt(99).flip(), end);
+        }
+        gameDAO = open();
+
+        assertEquals(1, gameDAO.listGames().size());
+        assertEquals(end, gameDAO.activeWritePosition());
+        gameDAO.createGame(new GameData(0, null, null, "after crash", new ChessGame()));
+        gameDAO.close();
+        gameDAO = open();
+        assertEquals(List.of("game", "after crash"), gameDAO.listGames().stream().map(GameData::gameName).toList());
+    }
+
+    @Test
+    void compactionDropsDeadSegments() throws Exception {
+        gameDAO.createGame(new GameData(0, null, null, "busy", new ChessGame()));
+        gameDAO.createGame(new GameData(0, null, null, "quiet", new ChessGame()));
+        for (int i = 0; i < 100; i++) {
+            GameData game = gameDAO.getGame(1);
+            gameDAO.updateGame(new GameData(1, "white" + i, null, "busy", game.game(), game.version()));
+        }
+        int before = gameDAO.segmentCount();
+        assertTrue(before > 3, "updates spread over " + before + " segments");
+
+        gameDAO.compact();
+
+        assertTrue(gameDAO.segmentCount() < before);
+        assertEquals("white99", gameDAO.getGame(1).whiteUsername());
+        assertEquals(100, gameDAO.getGame(1).version());
+        assertEquals("quiet", gameDAO.getGame(2).gameName());
+
+        gameDAO.close();
+        gameDAO = open();
+        assertEquals("white99", gameDAO.getGame(1).whiteUsername());
+        assertEquals("quiet", gameDAO.getGame(2).gameName());
+    }
+
+    @Test
+    void statusSurvivesReopenAndFinishedGamesAreNotListed() throws Exception {
+        gameDAO.createGame(new GameData(0, "white", null, "open", new ChessGame()));
+        gameDAO.createGame(new GameData(0, "white", "black", "over", new ChessGame()));
+        gameDAO.updateGame(gameDAO.getGame(2).finish(GameResult.DRAW));
+
+        gameDAO.close();
+        gameDAO = open();
+
+        assertEquals(GameStatus.OPEN, gameDAO.getGame(1).status());
+        assertEquals(GameStatus.FINISHED, gameDAO.getGame(2).status());
+        assertEquals(GameResult.DRAW, gameDAO.getGame(2).result());
+        assertEquals(List.of("open"), gameDAO.listGames().stream().map(GameData::gameName).toList());
+    }
+
+    @Test
+    void clearSurvivesReopen() throws Exception {
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+
+        gameDAO.clear();
+        gameDAO.close();
+        gameDAO = open();
+
+        assertTrue(gameDAO.listGames().isEmpty());
+        assertEquals(1, gameDAO.segmentCount());
+    }
+
+    private SegmentGameDAO open() throws DataAccessException {
+        return new SegmentGameDAO(directory, SMALL_SEGMENT, 0, false);
+    }
+}
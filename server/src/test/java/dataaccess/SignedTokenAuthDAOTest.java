@@ -0,0 +1,89 @@
+package dataaccess;
+
+import model.AuthData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedTokenAuthDAOTest {
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final AtomicInteger lookups = new AtomicInteger();
+    private SignedTokenAuthDAO authDAO;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        userDAO.createUser(new UserData("white", "password", "white@example.com"));
+        MemoryAuthDAO store = new MemoryAuthDAO(userDAO) {
+            @Override
+            public AuthData getAuth(String authToken) {
+                lookups.incrementAndGet();
+                return super.getAuth(authToken);
+            }
+        };
+        TokenSigner signer = new TokenSigner(Map.of(1, TokenSigner.randomKey()), 60_000, clock::get);
+        authDAO = new SignedTokenAuthDAO(store, signer, clock::get);
+    }
+
+    @Test
+    void signedTokenVerifiedWithoutLookup() throws DataAccessException {
+        String token = authDAO.issueToken("white");
+
+        assertEquals(new AuthData(token, "white"), authDAO.getAuth(token));
+        assertEquals(new AuthData(token, "white"), authDAO.getAuthAsync(token, Runnable::run).join());
+        assertEquals(0, lookups.get());
+        assertEquals(2, authDAO.verifiedTokens());
+    }
+
+    @Test
+    void unsignedTokenPassedToStore() throws DataAccessException {
+        authDAO.createAuth("token", "white");
+
+        assertEquals(new AuthData("token", "white"), authDAO.getAuth("token"));
+        assertEquals(1, lookups.get());
+        authDAO.deleteAuth("token");
+        assertNull(authDAO.getAuth("token"));
+    }
+
+    @Test
+    void deletedTokenRevoked() throws DataAccessException {
+        String token = authDAO.issueToken("white");
+        String other = authDAO.issueToken("white");
+
+        authDAO.deleteAuth(token);
+
+        assertNull(authDAO.getAuth(token));
+        assertNotNull(authDAO.getAuth(other));
+        assertEquals(1, authDAO.revokedTokens());
+        assertThrows(DataAccessException.class, () -> authDAO.deleteAuth(token));
+    }
+
+    @Test
+    void clearRevokesEarlierTokensOnly() throws DataAccessException {
+        String before = authDAO.issueToken("white");
+
+        authDAO.clear();
+        String after = authDAO.issueToken("white");
+
+        assertNull(authDAO.getAuth(before));
+        assertNotNull(authDAO.getAuth(after));
+        assertEquals(1, authDAO.rejectedTokens());
+    }
+
+    @Test
+    void signedTokenExpiresFromIssueEvenWhenUsed() throws DataAccessException {
+        String token = authDAO.issueToken("white");
+
+        // Used past half its lifetime, which would refresh a stored token
+        clock.addAndGet(45_000);
+        assertNotNull(authDAO.getAuth(token));
+        clock.addAndGet(15_000);
+
+        assertNull(authDAO.getAuth(token));
+    }
+}
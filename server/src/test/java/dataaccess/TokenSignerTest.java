@@ -0,0 +1,87 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenSignerTest {
+    private static final long TTL = 60_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private TokenSigner signer;
+
+    @BeforeEach
+    void setUp() {
+        signer = new TokenSigner(Map.of(1, TokenSigner.randomKey()), TTL, clock::get);
+    }
+
+    @Test
+    void issuedTokenVerifies() {
+        TokenSigner.VerifiedToken token = signer.verify(signer.issue("white"));
+
+        assertNotNull(token);
+        assertEquals("white", token.username());
+        assertEquals(1, token.keyID());
+        assertEquals(clock.get() + TTL, token.expiresAtMillis());
+    }
+
+    @Test
+    void tokensAreUnique() {
+        assertNotEquals(signer.issue("white"), signer.issue("white"));
+    }
+
+    @Test
+    void tamperedTokenRejected() {
+        String token = signer.issue("white");
+        String forged = new TokenSigner(Map.of(1, TokenSigner.randomKey()), TTL, clock::get).issue("white");
+        String otherPayload = forged.substring(0, forged.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        assertNull(signer.verify(forged));
+        assertNull(signer.verify(otherPayload));
+    }
+
+    @Test
+    void malformedTokensRejected() {
+        assertNull(signer.verify(null));
+        assertNull(signer.verify("0d1c6f5e-1b6c-4d7a-9e3f-4a2b1c0d9e8f"));
+        assertNull(signer.verify("a.b.c"));
+        assertNull(signer.verify("!!!.???"));
+        assertNull(signer.verify(".abc"));
+    }
+
+    @Test
+    void expiredTokenRejected() {
+        String token = signer.issue("white");
+
+        clock.addAndGet(TTL - 1);
+        assertNotNull(signer.verify(token));
+        clock.addAndGet(1);
+        assertNull(signer.verify(token));
+    }
+
+    @Test
+    void rotatedKeySignsNewTokensAndOldOnesStillVerify() {
+        String before = signer.issue("white");
+
+        int newKey = signer.rotate(TokenSigner.randomKey());
+        String after = signer.issue("white");
+
+        assertEquals(2, newKey);
+        assertEquals(2, signer.verify(after).keyID());
+        assertEquals(1, signer.verify(before).keyID());
+    }
+
+    @Test
+    void retiredKeyNoLongerVerifies() {
+        String before = signer.issue("white");
+        signer.rotate(TokenSigner.randomKey());
+
+        signer.retire(1);
+
+        assertNull(signer.verify(before));
+        assertThrows(IllegalArgumentException.class, () -> signer.retire(signer.currentKeyID()));
+    }
+}
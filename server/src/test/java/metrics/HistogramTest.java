@@ -0,0 +1,62 @@
+package metrics;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+    @Test
+    void emptyHistogramReportsZero() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.valueAtQuantile(0.99));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int value = 0; value < 16; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(7, histogram.valueAtQuantile(0.5));
+        assertEquals(15, histogram.valueAtQuantile(1.0));
+    }
+
+    @Test
+    void quantilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertWithin(5_000_000, histogram.valueAtQuantile(0.5));
+        assertWithin(9_900_000, histogram.valueAtQuantile(0.99));
+        assertWithin(9_990_000, histogram.valueAtQuantile(0.999));
+        assertEquals(50_005_000_000L, histogram.sumNanos());
+    }
+
+    @Test
+    void everyValueLandsInItsOwnBucketRange() {
+        for (long value = 1; value < 1 << 20; value = value * 3 / 2 + 1) {
+            long midpoint = Histogram.bucketMidpoint(Histogram.bucket(value));
+            assertEquals(midpoint, value, value / 16.0 + 1, "value " + value);
+        }
+    }
+
+    @Test
+    void hugeAndNegativeValuesAreClamped() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.valueAtQuantile(0.5));
+        assertTrue(histogram.valueAtQuantile(1.0) > 60_000_000_000L);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.07, "expected about " + expected + " but was " + actual);
+    }
+}
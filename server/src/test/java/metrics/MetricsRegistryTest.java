@@ -0,0 +1,78 @@
+package metrics;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+    private MetricsRegistry metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsRegistry();
+    }
+
+    @Test
+    void counterWrittenWithHelpTypeAndLabels() {
+        Counter counter = metrics.counter("requests_total", "Requests handled", "route", "GET /game");
+        counter.increment();
+        counter.add(2);
+
+        String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("# HELP requests_total Requests handled\n"));
+        assertTrue(scrape.contains("# TYPE requests_total counter\n"));
+        assertTrue(scrape.contains("requests_total{route=\"GET /game\"} 3\n"));
+    }
+
+    @Test
+    void sameNameAndLabelsReturnSameMetric() {
+        Counter first = metrics.counter("requests_total", "Requests handled", "route", "a");
+
+        assertSame(first, metrics.counter("requests_total", "Requests handled", "route", "a"));
+        assertNotSame(first, metrics.counter("requests_total", "Requests handled", "route", "b"));
+    }
+
+    @Test
+    void histogramWrittenAsSummaryInSeconds() {
+        Histogram histogram = metrics.histogram("latency_seconds", "Latency");
+        histogram.record(2_000_000);
+
+        String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("# TYPE latency_seconds summary\n"));
+        assertTrue(scrape.contains("latency_seconds{quantile=\"0.99\"} 0.00"));
+        assertTrue(scrape.contains("latency_seconds_sum 0.002\n"));
+        assertTrue(scrape.contains("latency_seconds_count 1\n"));
+    }
+
+    @Test
+    void gaugeReadAtScrapeAndFailingGaugeLeftOut() {
+        int[] value = {4};
+        metrics.gauge("queue_depth", "Queued", () -> value[0]);
+        metrics.gauge("broken", "Unreadable", () -> {
+            throw new IllegalStateException("closed");
+        });
+
+        value[0] = 9;
+        String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("queue_depth 9\n"));
+        assertFalse(scrape.contains("\nbroken "));
+    }
+
+    @Test
+    void labelValuesEscaped() {
+        metrics.counter("odd_total", "Odd labels", "value", "a\"b\\c\nd").increment();
+
+        assertTrue(metrics.scrape().contains("odd_total{value=\"a\\\"b\\\\c\\nd\"} 1\n"));
+    }
+
+    @Test
+    void conflictingTypeAndBadLabelsRejected() {
+        metrics.counter("thing", "A counter");
+
+        assertThrows(IllegalArgumentException.class, () -> metrics.histogram("thing", "A histogram"));
+        assertThrows(IllegalArgumentException.class, () -> metrics.counter("other", "Odd labels", "route"));
+    }
+}
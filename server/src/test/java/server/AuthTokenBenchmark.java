@@ -0,0 +1,90 @@
+package server;
+
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
+import dataaccess.MemoryAuthDAO;
+import dataaccess.MemoryUserDAO;
+import dataaccess.MySqlAuthDAO;
+import dataaccess.MySqlUserDAO;
+import dataaccess.SignedTokenAuthDAO;
+import dataaccess.TokenSigner;
+import model.UserData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the cost of authenticating a request with a signed token against looking the token up.
+ * <p>
+ * Each mode checks the same token repeatedly from one thread and then from several at once. The in-memory
+ * lookup is the floor for a table lookup; the MySQL lookup is the round trip signed tokens replace, and is
+ * skipped when no database is reachable.
+ * <p>
+ * This is not a JUnit test; run its main method against the server test classpath.
+ */
+public class AuthTokenBenchmark {
+    private static final int THREADS = 8;
+    private static final int WARMUP_CHECKS = 20_000;
+    private static final int FAST_CHECKS = 1_000_000;
+    private static final int DATABASE_CHECKS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-16s %8s %14s %14s%n", "mode", "threads", "checks/s", "ns/check");
+
+        MemoryUserDAO memoryUsers = new MemoryUserDAO();
+        memoryUsers.createUser(new UserData("benchmark", "password", "benchmark@example.com"));
+        MemoryAuthDAO memoryAuth = new MemoryAuthDAO(memoryUsers);
+        run("memory lookup", memoryAuth, memoryAuth.issueToken("benchmark"), FAST_CHECKS);
+
+        SignedTokenAuthDAO signed = new SignedTokenAuthDAO(memoryAuth, TokenSigner.withRandomKey());
+        run("signed token", signed, signed.issueToken("benchmark"), FAST_CHECKS);
+
+        try {
+            DatabaseManager.createDatabase();
+            DatabaseManager.createTables();
+            MySqlAuthDAO mySqlAuth = new MySqlAuthDAO();
+            mySqlAuth.clear();
+            new MySqlUserDAO().createUser(new UserData("benchmark", "password", "benchmark@example.com"));
+            run("mysql lookup", mySqlAuth, mySqlAuth.issueToken("benchmark"), DATABASE_CHECKS);
+            mySqlAuth.clear();
+        } catch (DataAccessException | RuntimeException e) {
+            System.out.printf("%-16s skipped, no database: %s%n", "mysql lookup", e.getMessage());
+        } catch (ExceptionInInitializerError e) {
+            System.out.printf("%-16s skipped, no database: %s%n", "mysql lookup", e.getCause().getMessage());
+        }
+    }
+
+    private static void run(String mode, AuthDAO authDAO, String token, int checks) throws Exception {
+        check(authDAO, token, Math.min(checks, WARMUP_CHECKS));
+        for (int threads : new int[] {1, THREADS}) {
+            int perThread = checks / threads;
+            try (ExecutorService workers = Executors.newFixedThreadPool(threads)) {
+                long start = System.nanoTime();
+                List<Future<?>> finished = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    finished.add(workers.submit(() -> check(authDAO, token, perThread)));
+                }
+                for (Future<?> future : finished) {
+                    future.get();
+                }
+                long elapsed = System.nanoTime() - start;
+                long total = (long) perThread * threads;
+                System.out.printf("%-16s %8d %14.0f %14.0f%n", mode, threads, total / (elapsed / 1e9),
+                        (double) elapsed * threads / total);
+            }
+        }
+    }
+
+    private static Void check(AuthDAO authDAO, String token, int checks) throws DataAccessException {
+        for (int i = 0; i < checks; i++) {
+            if (authDAO.getAuth(token) == null) {
+                throw new IllegalStateException("Token was not accepted");
+            }
+        }
+        return null;
+    }
+}
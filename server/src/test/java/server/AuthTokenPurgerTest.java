@@ -0,0 +1,59 @@
+package server;
+
+import dataaccess.DataAccessException;
+import dataaccess.MemoryAuthDAO;
+import dataaccess.MemoryUserDAO;
+import model.UserData;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthTokenPurgerTest {
+    private static final long TTL = 60_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private MemoryAuthDAO authDAO;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        userDAO.createUser(new UserData("white", "password", "white@example.com"));
+        authDAO = new MemoryAuthDAO(userDAO, TTL, clock::get);
+        for (int i = 0; i < 10; i++) {
+            authDAO.createAuth("expired" + i, "white");
+        }
+        clock.addAndGet(TTL);
+        authDAO.createAuth("live", "white");
+    }
+
+    @Test
+    void purgeDeletesExpiredTokensInBatches() throws DataAccessException {
+        AuthTokenPurger purger = new AuthTokenPurger(authDAO, 4, 10);
+
+        assertEquals(10, purger.purge());
+
+        assertEquals(3, purger.batches());
+        assertEquals(10, purger.purgedTokens());
+        assertEquals(1, purger.storedTokens());
+        assertEquals(1, purger.runs());
+    }
+
+    @Test
+    void runStopsAtBatchLimit() throws DataAccessException {
+        AuthTokenPurger purger = new AuthTokenPurger(authDAO, 3, 2);
+
+        assertEquals(6, purger.purge());
+        assertEquals(4, purger.purge());
+
+        assertEquals(10, purger.purgedTokens());
+        assertEquals(4, purger.batches());
+    }
+
+    @Test
+    void invalidLimitsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AuthTokenPurger(authDAO, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AuthTokenPurger(authDAO, 1, 0));
+    }
+}
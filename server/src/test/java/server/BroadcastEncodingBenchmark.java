@@ -0,0 +1,79 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import model.GameData;
+import websocket.messages.ServerMessage;
+
+/**
+ * Measures the cost of fanning a LOAD_GAME message out to a game's audience,
+ * comparing encoding the message for every session against encoding it once and sharing the payload.
+ * <p>
+ * This is not a JUnit test; run its main method against the server test classpath.
+ */
+public class BroadcastEncodingBenchmark {
+    private static final int[] AUDIENCE_SIZES = {1, 10, 50, 100, 500, 1000};
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 200;
+
+    private static final Gson GSON = new Gson();
+    private static long sink;
+
+    public static void main(String[] args) throws InvalidMoveException {
+        ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+        message.setGame(new GameData(1, "white", "black", "benchmark", openingPosition()));
+        System.out.println("Payload size: " + GSON.toJson(message).length() + " chars");
+        System.out.printf("%10s %18s %18s %10s%n", "audience", "per-session (us)", "encode-once (us)", "speedup");
+
+        for (int audience : AUDIENCE_SIZES) {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                encodePerSession(message, audience);
+                encodeOnce(message, audience);
+            }
+
+            long perSession = time(() -> encodePerSession(message, audience));
+            long once = time(() -> encodeOnce(message, audience));
+            System.out.printf("%10d %18.1f %18.1f %9.1fx%n", audience,
+                    perSession / 1000.0, once / 1000.0, (double) perSession / once);
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static long time(Runnable round) {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            round.run();
+        }
+        return (System.nanoTime() - start) / MEASURED_ROUNDS;
+    }
+
+    private static void encodePerSession(ServerMessage message, int audience) {
+        for (int i = 0; i < audience; i++) {
+            deliver(GSON.toJson(message));
+        }
+    }
+
+    private static void encodeOnce(ServerMessage message, int audience) {
+        String payload = GSON.toJson(message);
+        for (int i = 0; i < audience; i++) {
+            deliver(payload);
+        }
+    }
+
+    private static void deliver(String payload) {
+        // Stands in for the socket write, which costs the same either way
+        sink += payload.length();
+    }
+
+    private static ChessGame openingPosition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null));
+        return game;
+    }
+}
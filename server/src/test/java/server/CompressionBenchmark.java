@@ -0,0 +1,123 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import model.GameData;
+import websocket.messages.ServerMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Measures what per-message compression saves and costs when LOAD_GAME boards are broadcast to a game's audience.
+ * <p>
+ * Jetty keeps a separate compressor for every connection, so a broadcast is compressed once per session.
+ * Each mode replays the boards of one game to every session: uncompressed, compressed with the context reset
+ * after each message, and compressed with context takeover, where the previous board stays in the window.
+ * <p>
+ * This is not a JUnit test; run its main method against the server test classpath.
+ */
+public class CompressionBenchmark {
+    private static final int[] AUDIENCE_SIZES = {2, 10, 100, 1000};
+    private static final int MOVES = 40;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static final Gson GSON = new Gson();
+
+    public static void main(String[] args) throws InvalidMoveException {
+        List<byte[]> boards = playGame(new Random(42));
+        long rawBytes = boards.stream().mapToLong(board -> board.length).sum();
+        System.out.printf("%d boards, %.0f bytes each on average%n", boards.size(), (double) rawBytes / boards.size());
+        System.out.printf("%10s %-18s %16s %10s %18s%n", "audience", "mode", "bytes/session", "ratio", "cpu/broadcast (us)");
+
+        for (int audience : AUDIENCE_SIZES) {
+            System.out.printf("%10d %-18s %16d %10s %18s%n", audience, "none", rawBytes, "1.00", "-");
+            for (boolean contextTakeover : new boolean[]{false, true}) {
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    broadcast(boards, audience, contextTakeover);
+                }
+                long start = System.nanoTime();
+                long bytesPerSession = broadcast(boards, audience, contextTakeover);
+                long perBroadcast = (System.nanoTime() - start) / boards.size();
+                System.out.printf("%10d %-18s %16d %10.2f %18.1f%n", audience,
+                        contextTakeover ? "context-takeover" : "no-takeover",
+                        bytesPerSession, (double) rawBytes / bytesPerSession, perBroadcast / 1000.0);
+            }
+        }
+    }
+
+    /**
+     * @return the compressed bytes one session receives for the whole game
+     */
+    private static long broadcast(List<byte[]> boards, int audience, boolean contextTakeover) {
+        Deflater[] sessions = new Deflater[audience];
+        for (int i = 0; i < audience; i++) {
+            sessions[i] = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        long bytesPerSession = 0;
+        for (byte[] board : boards) {
+            for (int i = 0; i < audience; i++) {
+                int length = compress(sessions[i], board, buffer);
+                if (!contextTakeover) {
+                    sessions[i].reset();
+                }
+                if (i == 0) {
+                    bytesPerSession += length;
+                }
+            }
+        }
+        for (Deflater session : sessions) {
+            session.end();
+        }
+        return bytesPerSession;
+    }
+
+    private static int compress(Deflater deflater, byte[] payload, byte[] buffer) {
+        deflater.setInput(payload);
+        int length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        // The empty block ending each sync flush is not sent on the wire
+        return length - 4;
+    }
+
+    private static List<byte[]> playGame(Random random) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        List<byte[]> boards = new ArrayList<>();
+        for (int ply = 0; ply < MOVES; ply++) {
+            List<ChessMove> moves = legalMoves(game);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+            message.setGame(new GameData(1, "white", "black", "benchmark", game));
+            boards.add(GSON.toJson(message).getBytes(StandardCharsets.UTF_8));
+        }
+        return boards;
+    }
+
+    private static List<ChessMove> legalMoves(ChessGame game) {
+        List<ChessMove> moves = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = game.getBoard().getPiece(position);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    Collection<ChessMove> valid = game.validMoves(position);
+                    if (valid != null) {
+                        moves.addAll(valid);
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,152 @@
+package server;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameCommandExecutorTest {
+    private GameCommandExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new GameCommandExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void commandsForOneGameRunInOrder() throws InterruptedException {
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            int value = i;
+            executor.submit(1, () -> {
+                processed.add(value);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, processed.get(i));
+        }
+    }
+
+    @Test
+    void commandsForOneGameNeverOverlap() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(400);
+
+        for (int thread = 0; thread < 4; thread++) {
+            Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 100; i++) {
+                    executor.submit(7, () -> {
+                        if (inFlight.incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        Thread.onSpinWait();
+                        inFlight.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void differentGamesRunInParallel() throws InterruptedException {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+
+        for (int gameID = 1; gameID <= 2; gameID++) {
+            executor.submit(gameID, () -> {
+                bothStarted.countDown();
+                try {
+                    // Only completes if the other game's command is running at the same time
+                    if (bothStarted.await(5, TimeUnit.SECONDS)) {
+                        done.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void queueDepthTracksPendingCommands() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int i = 0; i < 3; i++) {
+            executor.submit(3, () -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+
+        assertEquals(3, executor.queueDepth(3));
+        assertEquals(3, executor.queueDepths().get(3));
+        assertEquals(0, executor.queueDepth(4));
+        executor.submit(4, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        assertEquals(4, executor.totalQueueDepth());
+        assertEquals(3, executor.deepestQueueDepth());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void idleMailboxesAreReclaimed() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(100);
+        for (int gameID = 0; gameID < 100; gameID++) {
+            executor.submit(gameID, done::countDown);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.activeMailboxes() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.activeMailboxes());
+    }
+
+    @Test
+    void failingCommandDoesNotStopMailbox() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(5, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.submit(5, done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.failedCommands());
+    }
+}
@@ -0,0 +1,76 @@
+package server;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+import websocket.messages.ServerMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReplayBufferTest {
+    private final Gson gson = new Gson();
+    private GameReplayBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new GameReplayBuffer(4);
+    }
+
+    @Test
+    void publishAssignsIncreasingSequenceNumbers() {
+        String first = publish("one", null);
+        String second = publish("two", null);
+
+        assertEquals(1L, gson.fromJson(first, ServerMessage.class).getSequence());
+        assertEquals(2L, gson.fromJson(second, ServerMessage.class).getSequence());
+        assertEquals(2, buffer.currentSequence());
+    }
+
+    @Test
+    void sinceReturnsOnlyMissedMessages() {
+        publish("one", null);
+        publish("two", null);
+        publish("three", null);
+
+        List<GameReplayBuffer.Entry> missed = buffer.since(1, "white");
+
+        assertEquals(List.of(2L, 3L), missed.stream().map(GameReplayBuffer.Entry::sequence).toList());
+        assertTrue(buffer.since(3, "white").isEmpty());
+    }
+
+    @Test
+    void sinceSkipsMessagesNotMeantForUser() {
+        publish("white made a move", "white");
+        publish("Check!", null);
+
+        List<GameReplayBuffer.Entry> missed = buffer.since(0, "white");
+
+        assertEquals(1, missed.size());
+        assertEquals(2, missed.get(0).sequence());
+        assertEquals(2, buffer.since(0, "black").size());
+    }
+
+    @Test
+    void sinceOverwrittenRangeRequiresFullReload() {
+        for (int i = 0; i < 6; i++) {
+            publish("message " + i, null);
+        }
+
+        assertNull(buffer.since(1, "white"));
+        assertEquals(4, buffer.since(2, "white").size());
+    }
+
+    @Test
+    void sinceFutureSequenceRequiresFullReload() {
+        publish("one", null);
+
+        assertNull(buffer.since(5, "white"));
+    }
+
+    private String publish(String text, String excludedUsername) {
+        ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+        message.setMessage(text);
+        return buffer.publish(message, gson::toJson, excludedUsername);
+    }
+}
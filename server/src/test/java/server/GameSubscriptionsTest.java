@@ -0,0 +1,120 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSubscriptionsTest {
+    private GameSubscriptions subscriptions;
+
+    @BeforeEach
+    void setUp() {
+        subscriptions = new GameSubscriptions();
+    }
+
+    @Test
+    void subscribeIndexesBothDirections() {
+        Session session = fakeSession();
+        subscriptions.subscribe(1, session);
+        subscriptions.subscribe(2, session);
+
+        assertEquals(Set.of(session), subscriptions.sessions(1));
+        assertEquals(Set.of(1, 2), subscriptions.games(session));
+    }
+
+    @Test
+    void removeSessionOnlyTouchesItsGames() {
+        Session leaving = fakeSession();
+        Session staying = fakeSession();
+        subscriptions.subscribe(1, leaving);
+        subscriptions.subscribe(1, staying);
+        subscriptions.subscribe(2, leaving);
+
+        assertEquals(Set.of(1, 2), subscriptions.removeSession(leaving));
+
+        assertEquals(Set.of(staying), subscriptions.sessions(1));
+        assertTrue(subscriptions.sessions(2).isEmpty());
+        assertEquals(1, subscriptions.gameCount());
+        assertEquals(1, subscriptions.sessionCount());
+    }
+
+    @Test
+    void unsubscribeReclaimsEmptyEntries() {
+        Session session = fakeSession();
+        subscriptions.subscribe(1, session);
+
+        subscriptions.unsubscribe(1, session);
+
+        assertEquals(0, subscriptions.gameCount());
+        assertEquals(0, subscriptions.sessionCount());
+    }
+
+    @Test
+    void removeUnknownSession() {
+        assertTrue(subscriptions.removeSession(fakeSession()).isEmpty());
+    }
+
+    @Test
+    void stressManyGamesWithConnectionChurn() {
+        int games = 100_000;
+        int threads = 8;
+        int churnPerThread = 50_000;
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            // Every game has a long-lived player connection
+            List<Session> players = new ArrayList<>(games);
+            for (int gameID = 0; gameID < games; gameID++) {
+                Session player = fakeSession();
+                players.add(player);
+                subscriptions.subscribe(gameID, player);
+            }
+
+            // Spectators connect to a few random games and disconnect again, concurrently
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(Thread.ofPlatform().start(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < churnPerThread; i++) {
+                        Session spectator = fakeSession();
+                        for (int j = 0; j < 3; j++) {
+                            subscriptions.subscribe(random.nextInt(games), spectator);
+                        }
+                        subscriptions.removeSession(spectator);
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            assertEquals(games, subscriptions.gameCount());
+            assertEquals(games, subscriptions.sessionCount());
+            for (int gameID = 0; gameID < games; gameID += 997) {
+                assertEquals(Set.of(players.get(gameID)), subscriptions.sessions(gameID));
+            }
+
+            for (Session player : players) {
+                subscriptions.removeSession(player);
+            }
+            assertEquals(0, subscriptions.gameCount());
+            assertEquals(0, subscriptions.sessionCount());
+        });
+    }
+
+    private static Session fakeSession() {
+        return (Session) Proxy.newProxyInstance(GameSubscriptionsTest.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,78 @@
+package server;
+
+import dataaccess.DataAccess;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsEndpointTest {
+    private static Server server;
+    private static String baseUrl;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startServer() {
+        // Serve the debug endpoint and keep every trace, so it has something to show
+        System.setProperty("chess.trace.endpoint", "true");
+        System.setProperty("chess.trace.slowMillis", "0");
+        try {
+            server = new Server(DataAccess.inMemory(), new VirtualThreadPool());
+        } finally {
+            System.clearProperty("chess.trace.endpoint");
+            System.clearProperty("chess.trace.slowMillis");
+        }
+        baseUrl = "http://localhost:" + server.run(0);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void requestsAndDaoCallsAppearInScrape() throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/user"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"metrics\",\"password\":\"pw\",\"email\":\"m@example.com\"}")));
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/game")).header("Authorization", "bad").GET());
+
+        HttpResponse<String> scrape = send(HttpRequest.newBuilder(URI.create(baseUrl + "/metrics")).GET());
+
+        assertEquals(200, scrape.statusCode());
+        assertTrue(scrape.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String body = scrape.body();
+        assertTrue(body.contains("http_request_duration_seconds_count{route=\"POST /user\"} 1\n"));
+        assertTrue(body.contains("http_responses_total{route=\"GET /game\",status=\"401\"} 1\n"));
+        assertTrue(body.contains("dao_call_duration_seconds_count{dao=\"user\",method=\"createUser\"} 1\n"));
+        assertTrue(body.contains("# TYPE websocket_command_duration_seconds summary"));
+        assertTrue(body.contains("# TYPE chess_rules_duration_seconds summary"));
+        assertTrue(body.contains("websocket_sessions 0\n"));
+        assertTrue(body.contains("websocket_mailbox_max_queue_depth 0\n"));
+    }
+
+    @Test
+    void slowTracesShowRequestSteps() throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/user"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"traced\",\"password\":\"pw\",\"email\":\"t@example.com\"}")));
+
+        HttpResponse<String> traces = send(HttpRequest.newBuilder(URI.create(baseUrl + "/debug/traces")).GET());
+
+        assertEquals(200, traces.statusCode());
+        String body = traces.body();
+        assertTrue(body.contains("POST /user "));
+        assertTrue(body.contains("(status 200)"));
+        assertTrue(body.contains(" json.parse "));
+        assertTrue(body.contains(" dao.user.createUser "));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
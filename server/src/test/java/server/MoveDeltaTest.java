@@ -0,0 +1,70 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import model.GameData;
+import org.junit.jupiter.api.*;
+import websocket.messages.ServerMessage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveDeltaTest {
+    private final Gson gson = new Gson();
+
+    @Test
+    void deltaAppliedToClientCopyMatchesServerBoard() throws InvalidMoveException {
+        ChessGame serverGame = new ChessGame();
+        ChessGame clientGame = gson.fromJson(gson.toJson(serverGame), ChessGame.class);
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        serverGame.makeMove(move);
+        ServerMessage delta = roundTrip(moveMessage(serverGame, move));
+
+        assertEquals(clientGame.getPly() + 1, delta.getPly());
+        clientGame.makeMove(delta.getMove());
+        assertEquals(delta.getPositionHash(), clientGame.positionHash());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, delta.getStatus());
+    }
+
+    @Test
+    void divergedBoardIsDetectedByHash() throws InvalidMoveException {
+        ChessGame serverGame = new ChessGame();
+        ChessGame clientGame = new ChessGame();
+        clientGame.getBoard().addPiece(new ChessPosition(4, 4), null);
+        clientGame.getBoard().addPiece(new ChessPosition(2, 1), null);
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        serverGame.makeMove(move);
+        clientGame.makeMove(move);
+
+        assertNotEquals(serverGame.positionHash(), clientGame.positionHash());
+    }
+
+    @Test
+    void deltaIsAnOrderOfMagnitudeSmallerThanLoadGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+
+        ServerMessage loadGame = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+        loadGame.setGame(new GameData(1, "white", "black", "game", game));
+
+        int loadGameBytes = gson.toJson(loadGame).length();
+        int deltaBytes = gson.toJson(moveMessage(game, move)).length();
+        assertTrue(deltaBytes * 10 < loadGameBytes,
+                "delta was " + deltaBytes + " bytes vs " + loadGameBytes + " for LOAD_GAME");
+    }
+
+    private ServerMessage moveMessage(ChessGame game, ChessMove move) {
+        ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.MOVE);
+        message.setMoveDelta(move, game.getPly(), game.positionHash(), game.getStatus());
+        return message;
+    }
+
+    private ServerMessage roundTrip(ServerMessage message) {
+        return gson.fromJson(gson.toJson(message), ServerMessage.class);
+    }
+}
@@ -0,0 +1,79 @@
+package server;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.DataAccessException;
+import dataaccess.MoveJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures sustained move throughput into the write-ahead journal as the number of concurrent games grows.
+ * <p>
+ * Every game runs on its own virtual thread and waits for each move to be durable before making the next, the
+ * way a player waits for the server to acknowledge a move. The journal is run with a batch size of one, which
+ * costs an fsync per move, and with group commit, where moves from every game share each fsync.
+ * <p>
+ * This is not a JUnit test; run its main method against the server test classpath.
+ */
+public class MoveJournalBenchmark {
+    private static final int[] GAME_COUNTS = {1, 10, 100, 500};
+    private static final int MOVES_PER_GAME = 200;
+    private static final ChessMove MOVE = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("journal-benchmark");
+        System.out.printf("%8s %-14s %12s %10s %12s%n", "games", "mode", "moves/s", "fsyncs", "moves/fsync");
+        for (int games : GAME_COUNTS) {
+            run(directory, games, "fsync-per-move", 0, 1);
+            run(directory, games, "group-commit", 0, MoveJournal.DEFAULT_MAX_BATCH);
+            run(directory, games, "group-1ms", 1, MoveJournal.DEFAULT_MAX_BATCH);
+        }
+    }
+
+    private static void run(Path directory, int games, String mode, long commitIntervalMillis, int maxBatch)
+            throws Exception {
+        Path file = directory.resolve(mode + "-" + games + ".journal");
+        // Fewer moves per game for the slow mode keeps the run short without changing its rate
+        int movesPerGame = maxBatch == 1 ? Math.max(10, MOVES_PER_GAME / games) : MOVES_PER_GAME;
+        try (MoveJournal journal = new MoveJournal(file, commitIntervalMillis, maxBatch);
+             ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            List<Future<?>> finished = new ArrayList<>();
+            for (int gameID = 1; gameID <= games; gameID++) {
+                int id = gameID;
+                finished.add(players.submit(() -> play(journal, id, movesPerGame)));
+            }
+            for (Future<?> future : finished) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%8d %-14s %12.0f %10d %12.1f%n", games, mode, journal.journaledMoves() / seconds,
+                    journal.commits(), (double) journal.journaledMoves() / journal.commits());
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private static Void play(MoveJournal journal, int gameID, int moves) throws DataAccessException {
+        for (int version = 0; version < moves; version++) {
+            journal.append(gameID, version, MOVE).join();
+        }
+        return null;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Left in the temp directory
+        }
+    }
+}
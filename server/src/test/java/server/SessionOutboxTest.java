@@ -0,0 +1,139 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static websocket.messages.ServerMessage.ServerMessageType.*;
+
+class SessionOutboxTest {
+    private FakeSession fake;
+    private OutboundMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        fake = new FakeSession();
+        metrics = new OutboundMetrics();
+    }
+
+    @Test
+    void writesFramesInOrderOneAtATime() {
+        SessionOutbox outbox = new SessionOutbox(fake.session, 8, SlowConsumerPolicy.DROP_STALE_BOARDS, metrics);
+
+        outbox.enqueue(NOTIFICATION, "first");
+        outbox.enqueue(NOTIFICATION, "second");
+        outbox.enqueue(NOTIFICATION, "third");
+
+        assertEquals(List.of("first"), fake.written);
+        fake.completeAll();
+        assertEquals(List.of("first", "second", "third"), fake.written);
+        assertEquals(0, outbox.depth());
+        assertEquals(3, metrics.getSentFrames());
+    }
+
+    @Test
+    void writesCompletingInlineDrainTheQueue() {
+        fake.completeInline = true;
+        SessionOutbox outbox = new SessionOutbox(fake.session, 8, SlowConsumerPolicy.DROP_STALE_BOARDS, metrics);
+
+        for (int i = 0; i < 5; i++) {
+            outbox.enqueue(NOTIFICATION, "message " + i);
+        }
+
+        assertEquals(5, fake.written.size());
+        assertEquals(0, outbox.depth());
+    }
+
+    @Test
+    void slowConsumerKeepsOnlyLatestBoard() {
+        SessionOutbox outbox = new SessionOutbox(fake.session, 4, SlowConsumerPolicy.DROP_STALE_BOARDS, metrics);
+        outbox.enqueue(LOAD_GAME, "board 0");
+
+        for (int i = 1; i <= 10; i++) {
+            outbox.enqueue(LOAD_GAME, "board " + i);
+        }
+
+        assertTrue(outbox.depth() <= 4);
+        assertTrue(metrics.getDroppedFrames() > 0);
+        fake.completeAll();
+        assertEquals("board 10", fake.written.get(fake.written.size() - 1));
+        assertFalse(fake.closed);
+    }
+
+    @Test
+    void slowConsumerIsDisconnectedWhenConfigured() {
+        SessionOutbox outbox = new SessionOutbox(fake.session, 2, SlowConsumerPolicy.DISCONNECT, metrics);
+
+        for (int i = 0; i < 4; i++) {
+            outbox.enqueue(LOAD_GAME, "board " + i);
+        }
+
+        assertTrue(fake.closed);
+        assertEquals(1, metrics.getSlowConsumerDisconnects());
+        assertEquals(0, outbox.depth());
+    }
+
+    @Test
+    void failedWriteStopsFurtherSends() {
+        SessionOutbox outbox = new SessionOutbox(fake.session, 8, SlowConsumerPolicy.DROP_STALE_BOARDS, metrics);
+        outbox.enqueue(NOTIFICATION, "first");
+        outbox.enqueue(NOTIFICATION, "second");
+
+        fake.pending.remove(0).writeFailed(new IllegalStateException("connection reset"));
+        outbox.enqueue(NOTIFICATION, "third");
+
+        assertEquals(List.of("first"), fake.written);
+        assertEquals(1, metrics.getFailedWrites());
+    }
+
+    /**
+     * Session whose writes stay pending until the test completes them.
+     */
+    private static class FakeSession {
+        final List<String> written = new ArrayList<>();
+        final List<WriteCallback> pending = new ArrayList<>();
+        boolean completeInline;
+        boolean closed;
+        final Session session;
+
+        FakeSession() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString") && args.length == 2) {
+                            written.add((String) args[0]);
+                            WriteCallback callback = (WriteCallback) args[1];
+                            if (completeInline) {
+                                callback.writeSuccess();
+                            } else {
+                                pending.add(callback);
+                            }
+                        }
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getRemote" -> remote;
+                        case "isOpen" -> !closed;
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+
+        void completeAll() {
+            while (!pending.isEmpty()) {
+                pending.remove(0).writeSuccess();
+            }
+        }
+    }
+}
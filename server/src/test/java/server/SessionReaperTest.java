@@ -0,0 +1,121 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionReaperTest {
+    private static final long HEARTBEAT = 1_000;
+    private static final long IDLE_TIMEOUT = 3_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final List<Session> pinged = new ArrayList<>();
+    private final List<Session> evicted = new ArrayList<>();
+    private SessionReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        reaper = new SessionReaper(HEARTBEAT, IDLE_TIMEOUT, pinged::add, evicted::addAll, clock::get);
+    }
+
+    @Test
+    void quietSessionIsPingedAfterHeartbeatInterval() {
+        Session session = fakeSession();
+        reaper.register(session);
+
+        advance(HEARTBEAT / 2);
+        assertTrue(pinged.isEmpty());
+
+        advance(HEARTBEAT / 2 + 100);
+        assertEquals(List.of(session), pinged);
+        assertEquals(1, reaper.pingsSent());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    void silentSessionIsEvictedAfterIdleTimeout() {
+        Session session = fakeSession();
+        reaper.register(session);
+
+        advance(IDLE_TIMEOUT + 200);
+
+        assertEquals(List.of(session), evicted);
+        assertEquals(1, reaper.sessionsReaped());
+        assertEquals(0, reaper.trackedSessions());
+    }
+
+    @Test
+    void activityKeepsSessionAlive() {
+        Session session = fakeSession();
+        reaper.register(session);
+
+        for (int i = 0; i < 10; i++) {
+            advance(HEARTBEAT / 2);
+            reaper.touch(session);
+        }
+
+        assertTrue(pinged.isEmpty());
+        assertTrue(evicted.isEmpty());
+        assertEquals(1, reaper.trackedSessions());
+    }
+
+    @Test
+    void unregisteredSessionIsNeverEvicted() {
+        Session session = fakeSession();
+        reaper.register(session);
+        reaper.unregister(session);
+
+        advance(IDLE_TIMEOUT * 2);
+
+        assertTrue(pinged.isEmpty());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    void deadSessionsAreEvictedTogether() {
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Session session = fakeSession();
+            sessions.add(session);
+            reaper.register(session);
+        }
+        Session live = fakeSession();
+        reaper.register(live);
+
+        for (int i = 0; i < 8; i++) {
+            advance(IDLE_TIMEOUT / 8 + 50);
+            reaper.touch(live);
+        }
+
+        assertEquals(sessions.size(), evicted.size());
+        assertTrue(evicted.containsAll(sessions));
+        assertFalse(evicted.contains(live));
+        assertEquals(1, reaper.trackedSessions());
+    }
+
+    /**
+     * Moves the fake clock forward in small steps, ticking the reaper as its scheduler would.
+     */
+    private void advance(long millis) {
+        long end = clock.get() + millis;
+        while (clock.get() < end) {
+            clock.set(Math.min(end, clock.get() + HEARTBEAT / 10));
+            reaper.tick();
+        }
+    }
+
+    private static Session fakeSession() {
+        return (Session) Proxy.newProxyInstance(SessionReaperTest.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,56 @@
+package server;
+
+import dataaccess.DataAccess;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupTimingsTest {
+    @Test
+    void timeRecordsStepsInOrder() throws Exception {
+        StartupTimings timings = new StartupTimings();
+        timings.time("first", () -> Thread.sleep(5));
+        timings.time("second", () -> { });
+        timings.finish();
+
+        Map<String, Long> steps = timings.stepMillis();
+        assertEquals(List.of("first", "second"), List.copyOf(steps.keySet()));
+        assertTrue(steps.get("first") >= 5);
+        assertTrue(timings.totalMillis() >= steps.get("first"));
+        assertTrue(timings.toString().startsWith("Started in "));
+    }
+
+    @Test
+    void failedAsyncStepDoesNotFailStartup() {
+        StartupTimings timings = new StartupTimings();
+
+        assertDoesNotThrow(() -> timings.timeAsync("broken", () -> {
+            throw new IllegalStateException("boom");
+        }).join());
+        assertTrue(timings.stepMillis().containsKey("broken"));
+    }
+
+    @Test
+    void unfinishedTotalIsNegative() {
+        assertEquals(-1, new StartupTimings().totalMillis());
+    }
+
+    @Test
+    void serverReportsEachStartupStep() {
+        Server server = new Server(DataAccess.inMemory(), new VirtualThreadPool());
+        try {
+            assertTrue(server.run(0) > 0);
+
+            StartupTimings timings = server.getStartupTimings();
+            assertTrue(timings.totalMillis() >= 0);
+            assertTrue(timings.stepMillis().keySet().containsAll(
+                    Set.of("storage", "http", "json adapters", "password hasher")));
+        } finally {
+            server.stop();
+        }
+    }
+}
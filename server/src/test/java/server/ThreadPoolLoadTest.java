@@ -0,0 +1,110 @@
+package server;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares Spark's fixed Jetty pool against {@link VirtualThreadPool} under many concurrent clients.
+ * <p>
+ * The endpoint blocks for a few milliseconds per request, standing in for the JDBC round trips a real
+ * handler waits on. Every client sends its requests back to back, so with a fixed pool requests queue
+ * behind the busy threads while a virtual thread per request keeps them all in flight.
+ * <p>
+ * This is not a JUnit test; run its main method against the server test classpath with optional
+ * arguments {@code clients requestsPerClient blockMillis} (defaults 10000, 5 and 20). Each client holds
+ * a connection open, so the process needs about two file descriptors per client.
+ */
+public class ThreadPoolLoadTest {
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long blockMillis = args.length > 2 ? Long.parseLong(args[2]) : 20;
+
+        System.out.printf("%d clients x %d requests, %d ms blocking per request%n",
+                clients, requestsPerClient, blockMillis);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "pool", "req/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "errors");
+        run("platform", new QueuedThreadPool(200, 8, 60_000), clients, requestsPerClient, blockMillis);
+        run("virtual", new VirtualThreadPool(), clients, requestsPerClient, blockMillis);
+    }
+
+    private static void run(String name, ThreadPool pool, int clients, int requestsPerClient, long blockMillis)
+            throws Exception {
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory().withThreadPool(pool));
+        Spark.port(0);
+        Spark.get("/work", (request, response) -> {
+            Thread.sleep(blockMillis);
+            return "{}";
+        });
+        Spark.awaitInitialization();
+        URI uri = URI.create("http://localhost:" + Spark.port() + "/work");
+
+        long[] latencies = new long[clients * requestsPerClient];
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicReference<Exception> firstError = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(120)).GET().build();
+
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                executor.execute(() -> {
+                    try {
+                        for (int r = 0; r < requestsPerClient; r++) {
+                            long sent = System.nanoTime();
+                            client.send(request, HttpResponse.BodyHandlers.discarding());
+                            latencies[recorded.getAndIncrement()] = System.nanoTime() - sent;
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        firstError.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+
+            long[] sorted = Arrays.copyOf(latencies, recorded.get());
+            Arrays.sort(sorted);
+            System.out.printf("%-10s %12.0f %10.1f %10.1f %10.1f %8d%n", name,
+                    sorted.length / (elapsed / 1e9),
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), errors.get());
+            if (firstError.get() != null) {
+                System.out.println("  first error: " + firstError.get());
+            }
+        } finally {
+            Spark.stop();
+            Spark.awaitStop();
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
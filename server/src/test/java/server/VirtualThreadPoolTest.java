@@ -0,0 +1,71 @@
+package server;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPoolTest {
+    private VirtualThreadPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = new VirtualThreadPool();
+        pool.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.stop();
+    }
+
+    @Test
+    void loopsSubmittedFromOutsideRunOnPlatformThreads() throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        pool.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+
+        assertFalse(virtual.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void workSubmittedByLoopsRunsOnVirtualThreads() throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        pool.execute(() -> pool.execute(() -> virtual.complete(Thread.currentThread().isVirtual())));
+
+        assertTrue(virtual.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsWorkWhenStopped() throws Exception {
+        pool.stop();
+
+        assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> {}));
+    }
+
+    @Test
+    void stopInterruptsBlockedThreads() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        pool.execute(() -> pool.execute(() -> {
+            try {
+                blocked.countDown();
+                Thread.sleep(60_000);
+                interrupted.complete(false);
+            } catch (InterruptedException e) {
+                interrupted.complete(true);
+            }
+        }));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        pool.setStopTimeout(0);
+        pool.stop();
+
+        assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+        assertTimeoutPreemptively(Duration.ofSeconds(1), pool::join);
+    }
+}
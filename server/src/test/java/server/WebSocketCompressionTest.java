@@ -0,0 +1,147 @@
+package server;
+
+import dataaccess.DataAccess;
+import org.junit.jupiter.api.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the permessage-deflate the server negotiates, over a raw socket so the handshake and frame bits are
+ * visible.
+ */
+class WebSocketCompressionTest {
+    private static final String[] PROPERTIES = {"chess.ws.compression", "chess.ws.compressionLevel",
+            "chess.ws.compressionContextTakeover", "chess.ws.compressionMinBytes"};
+    private static final byte RSV1 = 0x40;
+
+    private Server server;
+    private int port;
+
+    @AfterEach
+    void tearDown() {
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void contextTakeoverCanBeTurnedOff() throws IOException {
+        System.setProperty("chess.ws.compressionContextTakeover", "false");
+        start();
+
+        try (Socket socket = new Socket("localhost", port)) {
+            String extensions = upgrade(socket);
+
+            assertTrue(extensions.contains("permessage-deflate"), extensions);
+            assertTrue(extensions.contains("server_no_context_takeover"), extensions);
+        }
+    }
+
+    @Test
+    void messagesBelowMinimumAreNotCompressed() throws IOException {
+        System.setProperty("chess.ws.compressionMinBytes", "4096");
+        start();
+
+        try (Socket socket = new Socket("localhost", port)) {
+            assertTrue(upgrade(socket).contains("permessage-deflate"));
+
+            assertEquals(0, sendAndReadReplyHeader(socket, "not a command") & RSV1);
+        }
+    }
+
+    @Test
+    void messagesAtMinimumAreCompressed() throws IOException {
+        System.setProperty("chess.ws.compressionMinBytes", "0");
+        System.setProperty("chess.ws.compressionLevel", "9");
+        start();
+
+        try (Socket socket = new Socket("localhost", port)) {
+            assertTrue(upgrade(socket).contains("permessage-deflate"));
+
+            assertEquals(RSV1, sendAndReadReplyHeader(socket, "not a command") & RSV1);
+        }
+    }
+
+    @Test
+    void compressionCanBeDisabled() throws IOException {
+        System.setProperty("chess.ws.compression", "false");
+        start();
+
+        try (Socket socket = new Socket("localhost", port)) {
+            assertEquals("", upgrade(socket));
+        }
+    }
+
+    private void start() {
+        server = new Server(DataAccess.inMemory(), new VirtualThreadPool());
+        port = server.run(0);
+    }
+
+    /**
+     * Opens a WebSocket offering permessage-deflate.
+     *
+     * @return the extensions the server accepted, or an empty string if none
+     */
+    private static String upgrade(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET /ws HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+                "Sec-WebSocket-Version: 13\r\n" +
+                "Sec-WebSocket-Extensions: permessage-deflate; client_max_window_bits\r\n" +
+                "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        String status = readLine(in);
+        assertTrue(status.contains(" 101 "), status);
+        String extensions = "";
+        for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            if (line.toLowerCase().startsWith("sec-websocket-extensions:")) {
+                extensions = line.substring(line.indexOf(':') + 1).trim();
+            }
+        }
+        return extensions;
+    }
+
+    /**
+     * Sends a text frame and returns the first byte of the server's reply frame, which holds its RSV1 bit.
+     */
+    private static int sendAndReadReplyHeader(Socket socket, String message) throws IOException {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        OutputStream out = socket.getOutputStream();
+        // A final text frame, masked with a zero key as clients must mask
+        out.write(0x81);
+        out.write(0x80 | payload.length);
+        out.write(new byte[4]);
+        out.write(payload);
+        out.flush();
+
+        socket.setSoTimeout(5000);
+        return socket.getInputStream().read();
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b == -1) {
+                throw new IOException("Connection closed during handshake");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package server;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketConfigTest {
+    private static final String[] PROPERTIES = {"chess.ws.queueCapacity", "chess.ws.slowConsumerPolicy",
+            "chess.ws.heartbeatMillis", "chess.ws.idleTimeoutMillis", "chess.ws.compression",
+            "chess.ws.compressionLevel", "chess.ws.compressionContextTakeover", "chess.ws.compressionMinBytes"};
+
+    @AfterEach
+    void tearDown() {
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+    }
+
+    @Test
+    void unsetPropertiesUseDefaults() {
+        assertEquals(WebSocketConfig.defaults(), WebSocketConfig.fromSystemProperties());
+    }
+
+    @Test
+    void propertiesOverrideDefaults() {
+        System.setProperty("chess.ws.queueCapacity", "8");
+        System.setProperty("chess.ws.slowConsumerPolicy", "disconnect");
+        System.setProperty("chess.ws.heartbeatMillis", "1000");
+        System.setProperty("chess.ws.idleTimeoutMillis", "5000");
+
+        assertEquals(new WebSocketConfig(8, SlowConsumerPolicy.DISCONNECT, 1000, 5000),
+                WebSocketConfig.fromSystemProperties());
+    }
+
+    @Test
+    void invalidPropertiesRejected() {
+        System.setProperty("chess.ws.slowConsumerPolicy", "ignore");
+        assertThrows(IllegalArgumentException.class, WebSocketConfig::fromSystemProperties);
+
+        System.clearProperty("chess.ws.slowConsumerPolicy");
+        System.setProperty("chess.ws.idleTimeoutMillis", "1000");
+        assertThrows(IllegalArgumentException.class, WebSocketConfig::fromSystemProperties);
+    }
+
+    @Test
+    void compressionPropertiesOverrideDefaults() {
+        System.setProperty("chess.ws.compression", "false");
+        System.setProperty("chess.ws.compressionLevel", "1");
+        System.setProperty("chess.ws.compressionContextTakeover", "false");
+        System.setProperty("chess.ws.compressionMinBytes", "256");
+
+        assertEquals(new WebSocketConfig.Compression(false, 1, false, 256),
+                WebSocketConfig.fromSystemProperties().compression());
+    }
+
+    @Test
+    void invalidCompressionRejected() {
+        System.setProperty("chess.ws.compressionLevel", "10");
+        assertThrows(IllegalArgumentException.class, WebSocketConfig::fromSystemProperties);
+
+        System.clearProperty("chess.ws.compressionLevel");
+        System.setProperty("chess.ws.compressionMinBytes", "-1");
+        assertThrows(IllegalArgumentException.class, WebSocketConfig::fromSystemProperties);
+    }
+}
@@ -0,0 +1,118 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import dataaccess.*;
+import metrics.MetricsRegistry;
+import model.GameData;
+import model.UserData;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.*;
+import service.GameService;
+import tracing.Tracer;
+import websocket.commands.UserGameCommand;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketHandlerTest {
+    private static final long IDLE_TIMEOUT_MILLIS = 200;
+    private static final int GAME_ID = 1;
+
+    private final Gson gson = new Gson();
+    private WebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        userDAO.createUser(new UserData("white", "password", "white@example.com"));
+        MemoryAuthDAO authDAO = new MemoryAuthDAO(userDAO);
+        authDAO.createAuth("token", "white");
+        MemoryGameDAO gameDAO = new MemoryGameDAO(userDAO);
+        gameDAO.createGame(new GameData(0, "white", null, "game", new ChessGame()));
+
+        handler = new WebSocketHandler(new GameService(gameDAO, authDAO),
+                new WebSocketConfig(8, SlowConsumerPolicy.DROP_STALE_BOARDS, 50, IDLE_TIMEOUT_MILLIS),
+                new MetricsRegistry(), new Tracer(100, 4));
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.close();
+    }
+
+    @Test
+    void replayBufferReleasedAfterCleanClose() throws InterruptedException {
+        FakeSession client = new FakeSession();
+        handler.onConnect(client.session);
+        handler.onMessage(client.session,
+                gson.toJson(new UserGameCommand(UserGameCommand.CommandType.CONNECT, "token", GAME_ID)));
+        awaitCondition(() -> !client.written.isEmpty());
+        assertTrue(handler.hasReplayBuffer(GAME_ID));
+
+        client.open = false;
+        handler.onClose(client.session, 1000, "bye");
+
+        // Kept for the resume window, then dropped
+        assertTrue(handler.hasReplayBuffer(GAME_ID));
+        awaitCondition(() -> !handler.hasReplayBuffer(GAME_ID));
+    }
+
+    @Test
+    void unwatchedReplayBufferSweptWithoutIdleSessions() throws InterruptedException {
+        FakeSession client = new FakeSession();
+        handler.onConnect(client.session);
+        UserGameCommand move = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", GAME_ID);
+        move.setMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        // A move from a session that never subscribed leaves a buffer that no leave will release
+        handler.onMessage(client.session, gson.toJson(move));
+        awaitCondition(() -> handler.hasReplayBuffer(GAME_ID));
+        client.open = false;
+        handler.onClose(client.session, 1000, "bye");
+
+        awaitCondition(() -> !handler.hasReplayBuffer(GAME_ID));
+        assertEquals(0, handler.idleSessionsReaped());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class FakeSession {
+        final List<String> written = new CopyOnWriteArrayList<>();
+        volatile boolean open = true;
+        final Session session;
+
+        FakeSession() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString") && args.length == 2) {
+                            written.add((String) args[0]);
+                            ((WriteCallback) args[1]).writeSuccess();
+                        }
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getRemote" -> remote;
+                        case "isOpen" -> open;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.*;
+import model.GameData;
+import model.GameResult;
+import model.GameStatus;
+import model.UserData;
+import org.junit.jupiter.api.*;
+import request.JoinGameRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the status a game moves through as it is joined, played and ended, and that finished games can
+ * still be looked up once archived.
+ */
+public class GameLifecycleTest {
+    private MemoryGameDAO gameDAO;
+    private GameService gameService;
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        MemoryAuthDAO authDAO = new MemoryAuthDAO(userDAO);
+        for (String username : new String[]{"white", "black", "observer"}) {
+            userDAO.createUser(new UserData(username, "password", username + "@example.com"));
+            authDAO.createAuth(username, username);
+        }
+        gameDAO = new MemoryGameDAO(userDAO);
+        gameService = new GameService(gameDAO, authDAO);
+        gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+    }
+
+    @Test
+    public void testJoiningBothSeatsActivatesGame() throws DataAccessException {
+        assertEquals(GameStatus.OPEN, gameService.getGame(1).status());
+
+        gameService.joinGame(new JoinGameRequest("WHITE", 1), "white");
+        assertEquals(GameStatus.OPEN, gameService.getGame(1).status());
+        gameService.joinGame(new JoinGameRequest("BLACK", 1), "black");
+        assertEquals(GameStatus.ACTIVE, gameService.getGame(1).status());
+
+        gameService.leaveGame(1, "black");
+        assertEquals(GameStatus.OPEN, gameService.getGame(1).status());
+    }
+
+    @Test
+    public void testResignFinishesGameAndKeepsPlayers() throws DataAccessException {
+        seatBothPlayers();
+        assertThrows(DataAccessException.class, () -> gameService.resignGame(1, "observer"));
+
+        gameService.resignGame(1, "white");
+
+        GameData game = gameService.getGame(1);
+        assertEquals(GameStatus.FINISHED, game.status());
+        assertEquals(GameResult.BLACK_WON, game.result());
+        assertEquals("white", game.whiteUsername());
+        assertTrue(gameService.isGameOver(1));
+    }
+
+    @Test
+    public void testCheckmateFinishesGame() throws DataAccessException {
+        seatBothPlayers();
+
+        // Fool's mate
+        move("white", 2, 6, 3, 6);
+        move("black", 7, 5, 5, 5);
+        move("white", 2, 7, 4, 7);
+        GameData mated = move("black", 8, 4, 4, 8);
+
+        assertEquals(GameStatus.FINISHED, mated.status());
+        assertEquals(GameResult.BLACK_WON, mated.result());
+        assertEquals(GameResult.BLACK_WON, gameService.getGame(1).result());
+    }
+
+    @Test
+    public void testArchivedGameIsStillFoundButNotListed() throws DataAccessException {
+        seatBothPlayers();
+        gameService.resignGame(1, "black");
+        gameDAO.createGame(new GameData(0, null, null, "next", new ChessGame()));
+
+        assertEquals(1, gameService.archiveFinishedGames());
+
+        assertNull(gameDAO.getGame(1));
+        assertEquals(GameResult.WHITE_WON, gameService.getGame(1).result());
+        assertTrue(gameService.isGameOver(1));
+        assertEquals(1, gameService.listGames("white").games().size());
+        // Leaving a finished game is allowed and changes nothing
+        gameService.leaveGame(1, "white");
+        assertThrows(DataAccessException.class,
+                () -> gameService.joinGame(new JoinGameRequest("WHITE", 1), "observer"));
+    }
+
+    private void seatBothPlayers() throws DataAccessException {
+        gameService.joinGame(new JoinGameRequest("WHITE", 1), "white");
+        gameService.joinGame(new JoinGameRequest("BLACK", 1), "black");
+    }
+
+    private GameData move(String player, int startRow, int startCol, int endRow, int endCol)
+            throws DataAccessException {
+        return gameService.makeMove(1, player,
+                new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null));
+    }
+}
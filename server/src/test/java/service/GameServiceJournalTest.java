@@ -0,0 +1,280 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.*;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that moves made through a journal are acknowledged before the game store is written,
+ * and that a move the store never received is recovered from the journal.
+ */
+public class GameServiceJournalTest {
+    private static final ChessMove WHITE_PAWN = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    private static final ChessMove BLACK_PAWN = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService ioExecutor;
+    private FlakyGameDAO gameDAO;
+    private MoveJournal journal;
+    private GameService gameService;
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        userDAO.createUser(new UserData("white", "password", "white@example.com"));
+        userDAO.createUser(new UserData("black", "password", "black@example.com"));
+        MemoryAuthDAO authDAO = new MemoryAuthDAO(userDAO) {
+            @Override
+            public AuthData getAuth(String authToken) {
+                // Lets a stale read in flight finish, and the write it missed land, before the move goes on
+                gameDAO.awaitStaleRead();
+                return super.getAuth(authToken);
+            }
+        };
+        authDAO.createAuth("token", "white");
+        authDAO.createAuth("blackToken", "black");
+        gameDAO = new FlakyGameDAO(new MemoryGameDAO(userDAO));
+        gameDAO.createGame(new GameData(0, "white", null, "game", new ChessGame()));
+        gameDAO.createGame(new GameData(0, "white", "black", "full game", new ChessGame()));
+
+        ioExecutor = Executors.newCachedThreadPool();
+        // Checkpoint whenever the store catches up, however small the journal is
+        journal = new MoveJournal(directory.resolve("moves.journal"), MoveJournal.DEFAULT_COMMIT_INTERVAL_MILLIS,
+                MoveJournal.DEFAULT_MAX_BATCH, 0);
+        gameService = new GameService(gameDAO, authDAO, ioExecutor, journal);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        journal.close();
+        ioExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testJournaledMoveIsVisibleToLaterReads() throws DataAccessException {
+        GameData moved = gameService.makeMove(1, "token", WHITE_PAWN);
+
+        assertEquals(ChessGame.TeamColor.BLACK, moved.game().getTeamTurn());
+        assertEquals(ChessGame.TeamColor.BLACK, gameService.getGame(1).game().getTeamTurn());
+        assertEquals(1, gameService.getGame(1).version());
+        assertEquals(1, journal.journaledMoves());
+    }
+
+    @Test
+    public void testRejectedMoveIsNotJournaled() {
+        ChessMove blackPawn = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+
+        assertThrows(DataAccessException.class, () -> gameService.makeMove(1, "token", blackPawn));
+        assertEquals(0, journal.journaledMoves());
+    }
+
+    @Test
+    public void testMoveAfterResignationIsRejected() throws DataAccessException {
+        gameService.makeMove(2, "token", WHITE_PAWN);
+        gameService.resignGame(2, "token");
+
+        assertThrows(DataAccessException.class, () -> gameService.makeMove(2, "blackToken", BLACK_PAWN));
+        assertEquals(1, journal.journaledMoves());
+        assertTrue(gameService.getGame(2).isFinished());
+    }
+
+    @Test
+    public void testMoveMissedByStoreIsReplayed() throws DataAccessException {
+        gameDAO.failUpdates = true;
+
+        // Acknowledged once durable in the journal, even though the store write fails
+        gameService.makeMove(1, "token", WHITE_PAWN);
+        assertThrows(DataAccessException.class, () -> gameService.getGame(1, "token"));
+        assertEquals(0, gameDAO.getGame(1).version());
+
+        // As after a crash: the store never received the move, but the journal has it
+        assertEquals(1, journal.replay(gameDAO.delegate));
+        assertEquals(ChessGame.TeamColor.BLACK, gameDAO.getGame(1).game().getTeamTurn());
+    }
+
+    @Test
+    public void testFailedStoreWriteIsRetried() throws Exception {
+        gameDAO.failUpdates = true;
+        gameService.makeMove(2, "token", WHITE_PAWN);
+        assertThrows(DataAccessException.class, () -> gameService.getGame(2, "token"));
+
+        // No later command touches the game, yet the write lands and the journal is checkpointed
+        gameDAO.failUpdates = false;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journal.checkpoints() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, journal.checkpoints());
+        assertEquals(1, gameDAO.getGame(2).version());
+        assertEquals(ChessGame.TeamColor.BLACK, gameDAO.getGame(2).game().getTeamTurn());
+    }
+
+    @Test
+    public void testMoveDoesNotWaitForEarlierStoreWrite() throws Exception {
+        gameDAO.holdUpdates();
+        gameService.makeMove(2, "token", WHITE_PAWN);
+
+        CompletableFuture<GameData> reply = CompletableFuture.supplyAsync(() -> {
+            try {
+                return gameService.makeMove(2, "blackToken", BLACK_PAWN);
+            } catch (DataAccessException e) {
+                throw new CompletionException(e);
+            }
+        }, ioExecutor);
+        assertEquals(ChessGame.TeamColor.WHITE, reply.get(5, TimeUnit.SECONDS).game().getTeamTurn());
+        assertEquals(0, gameDAO.getGame(2).version());
+
+        gameDAO.releaseUpdates();
+        gameService.awaitPendingWrites();
+        assertEquals(2, gameDAO.getGame(2).version());
+        assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(2).game().getTeamTurn());
+    }
+
+    @Test
+    public void testJournalShrinksOnceWritesDrain() throws Exception {
+        gameDAO.holdUpdates();
+        gameService.makeMove(2, "token", WHITE_PAWN);
+        assertEquals(16, journal.sizeBytes());
+
+        gameDAO.releaseUpdates();
+        gameService.awaitPendingWrites();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journal.checkpoints() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, journal.sizeBytes());
+        assertEquals(1, journal.checkpoints());
+        assertEquals(1, gameDAO.getGame(2).version());
+    }
+
+    @Test
+    public void testMoveSeesWriteThatLandsWhileWaitingForLock() throws Exception {
+        gameDAO.holdUpdates();
+        gameService.makeMove(2, "token", WHITE_PAWN);
+
+        // Any read taken while white's write is held returns the old board, and the write lands right after it
+        gameDAO.staleReads = true;
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            gameDAO.releaseUpdates();
+        });
+        GameData moved = gameService.makeMove(2, "blackToken", BLACK_PAWN);
+
+        assertEquals(ChessGame.TeamColor.WHITE, moved.game().getTeamTurn());
+        gameService.awaitPendingWrites();
+        assertEquals(2, gameDAO.getGame(2).version());
+        assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(2).game().getTeamTurn());
+    }
+
+    /**
+     * Delegates to a real DAO but can be told to fail every update, like a store that has gone away, or to hold
+     * updates back until released.
+     */
+    private static class FlakyGameDAO implements GameDAO {
+        private final GameDAO delegate;
+        private volatile boolean failUpdates;
+        private volatile boolean staleReads;
+        private volatile CountDownLatch updateGate = new CountDownLatch(0);
+        private final CountDownLatch updateLanded = new CountDownLatch(1);
+        private final CountDownLatch staleReadReturned = new CountDownLatch(1);
+
+        FlakyGameDAO(GameDAO delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void clear() throws DataAccessException {
+            delegate.clear();
+        }
+
+        @Override
+        public void createGame(GameData game) throws DataAccessException {
+            delegate.createGame(game);
+        }
+
+        void holdUpdates() {
+            updateGate = new CountDownLatch(1);
+        }
+
+        void releaseUpdates() {
+            updateGate.countDown();
+        }
+
+        /**
+         * While updates are held and stale reads are on, reads the game, then lets the held update land and
+         * returns what was read, as if the write finished just after the read.
+         */
+        @Override
+        public GameData getGame(int gameID) throws DataAccessException {
+            if (!staleReads || updateGate.getCount() == 0) {
+                return delegate.getGame(gameID);
+            }
+            GameData stale = delegate.getGame(gameID);
+            releaseUpdates();
+            try {
+                updateLanded.await();
+                // Gives the service time to forget the write it was waiting for
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            staleReadReturned.countDown();
+            return stale;
+        }
+
+        void awaitStaleRead() {
+            if (!staleReads) {
+                return;
+            }
+            try {
+                staleReadReturned.await(300, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public List<GameData> listGames() throws DataAccessException {
+            return delegate.listGames();
+        }
+
+        @Override
+        public void updateGame(GameData game) throws DataAccessException {
+            if (failUpdates) {
+                throw new DataAccessException("Error: store unavailable");
+            }
+            try {
+                updateGate.await();
+            } catch (InterruptedException e) {
+                throw new DataAccessException("Error: interrupted");
+            }
+            delegate.updateGame(game);
+            updateLanded.countDown();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.*;
+import model.AuthData;
+import model.GameData;
+import org.junit.jupiter.api.*;
+import request.JoinGameRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that game operations look up the auth token and the game in parallel.
+ * Both fake lookups wait for each other at a barrier, so an operation that ran them one after
+ * the other would time out.
+ */
+public class GameServicePipelineTest {
+    private static final String TOKEN = "token";
+
+    private ExecutorService ioExecutor;
+    private CyclicBarrier bothLookups;
+    private FakeGameDAO gameDAO;
+    private GameService gameService;
+
+    @BeforeEach
+    public void setUp() {
+        ioExecutor = Executors.newCachedThreadPool();
+        bothLookups = new CyclicBarrier(2);
+        gameDAO = new FakeGameDAO();
+        gameService = new GameService(gameDAO, new FakeAuthDAO(), ioExecutor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ioExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testJoinGameLooksUpAuthAndGameTogether() throws DataAccessException {
+        gameDAO.games.put(1, new GameData(1, null, null, "game", new ChessGame()));
+
+        gameService.joinGame(new JoinGameRequest("WHITE", 1), TOKEN);
+
+        assertEquals("player", gameDAO.games.get(1).whiteUsername());
+    }
+
+    @Test
+    public void testMakeMoveLooksUpAuthAndGameTogether() throws DataAccessException {
+        gameDAO.games.put(1, new GameData(1, "player", "other", "game", new ChessGame()));
+
+        GameData updated = gameService.makeMove(1, TOKEN,
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        assertEquals(ChessGame.TeamColor.BLACK, updated.game().getTeamTurn());
+        assertEquals(1, gameDAO.updates.size());
+    }
+
+    @Test
+    public void testUnauthorizedReportedBeforeMissingGame() {
+        DataAccessException e = assertThrows(DataAccessException.class,
+                () -> gameService.makeMove(99, "bad-token",
+                        new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null)));
+
+        assertEquals("Error: unauthorized", e.getMessage());
+    }
+
+    @Test
+    public void testMissingGameFromPrefetch() {
+        DataAccessException e = assertThrows(DataAccessException.class,
+                () -> gameService.makeMove(99, TOKEN,
+                        new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null)));
+
+        assertEquals("Error: game not found", e.getMessage());
+    }
+
+    private void awaitOtherLookup() throws DataAccessException {
+        try {
+            bothLookups.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            throw new DataAccessException("Error: lookups were not issued in parallel");
+        }
+    }
+
+    private class FakeAuthDAO implements AuthDAO {
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void createAuth(String authToken, String username) {
+        }
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            awaitOtherLookup();
+            return TOKEN.equals(authToken) ? new AuthData(authToken, "player") : null;
+        }
+
+        @Override
+        public void deleteAuth(String authToken) {
+        }
+    }
+
+    private class FakeGameDAO implements GameDAO {
+        private final Map<Integer, GameData> games = new HashMap<>();
+        private final List<GameData> updates = new ArrayList<>();
+
+        @Override
+        public void clear() {
+            games.clear();
+        }
+
+        @Override
+        public void createGame(GameData game) {
+            games.put(game.gameID(), game);
+        }
+
+        @Override
+        public GameData getGame(int gameID) throws DataAccessException {
+            awaitOtherLookup();
+            return games.get(gameID);
+        }
+
+        @Override
+        public List<GameData> listGames() {
+            return new ArrayList<>(games.values());
+        }
+
+        @Override
+        public void updateGame(GameData game) {
+            updates.add(game);
+            games.put(game.gameID(), game);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import request.CreateGameRequest;
 import request.JoinGameRequest;
 import result.CreateGameResult;
+import result.GetGameResult;
 import result.ListGamesResult;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -98,6 +99,24 @@ public class GameServiceTest {
         assertEquals("Error: bad request", exception.getMessage());
     }
 
+    @Test
+    public void testGetGame() throws DataAccessException {
+        CreateGameResult createResult = gameService.createGame(new CreateGameRequest("Test Game"), validAuthToken);
+
+        GetGameResult result = gameService.getGame(createResult.gameID(), validAuthToken);
+
+        assertNotNull(result);
+        assertEquals(createResult.gameID(), result.game().gameID());
+        assertEquals("Test Game", result.game().gameName());
+    }
+
+    @Test
+    public void testGetNonexistentGame() {
+        DataAccessException exception = assertThrows(DataAccessException.class,
+            () -> gameService.getGame(9999, validAuthToken));
+        assertEquals("Error: game not found", exception.getMessage());
+    }
+
     @Test
     public void testListGames() throws DataAccessException {
         // Create a couple of games
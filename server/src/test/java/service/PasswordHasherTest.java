@@ -0,0 +1,72 @@
+package service;
+
+import dataaccess.DataAccessException;
+import org.junit.jupiter.api.*;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+    private PasswordHasher hasher;
+
+    @AfterEach
+    public void tearDown() {
+        if (hasher != null) {
+            hasher.close();
+        }
+    }
+
+    @Test
+    public void testHashAndVerify() throws DataAccessException {
+        hasher = new PasswordHasher(1, 4, 4);
+
+        String hashed = hasher.hash("password");
+
+        assertTrue(hasher.verify("password", hashed));
+        assertFalse(hasher.verify("wrong", hashed));
+        assertEquals(1, hasher.hashTiming().count());
+        assertEquals(2, hasher.verifyTiming().count());
+    }
+
+    @Test
+    public void testConfiguredCost() throws DataAccessException {
+        hasher = new PasswordHasher(1, 4, 5);
+
+        assertTrue(hasher.hash("password").startsWith("$2a$05$"));
+    }
+
+    @Test
+    public void testVerifiesHashesOfOtherCosts() throws DataAccessException {
+        hasher = new PasswordHasher(1, 4, 4);
+
+        assertTrue(hasher.verify("password", BCrypt.hashpw("password", BCrypt.gensalt(6))));
+    }
+
+    @Test
+    public void testRejectsWhenSaturated() throws InterruptedException {
+        // One worker and one queue slot, with a cost high enough that neither frees up during the burst
+        hasher = new PasswordHasher(1, 1, 13);
+        AtomicInteger busy = new AtomicInteger();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            callers.add(Thread.ofVirtual().start(() -> {
+                try {
+                    hasher.hash("password");
+                } catch (DataAccessException e) {
+                    assertEquals("Error: server busy, try again later", e.getMessage());
+                    busy.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        assertTrue(busy.get() >= 2, "expected at least two rejections, got " + busy.get());
+        assertEquals(busy.get(), hasher.rejected());
+    }
+}
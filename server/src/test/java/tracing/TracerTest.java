@@ -0,0 +1,118 @@
+package tracing;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracerTest {
+    @Test
+    void keepsOnlySlowTraces() throws InterruptedException {
+        Tracer tracer = new Tracer(5, 4);
+        Trace fast = tracer.start("fast");
+        tracer.finish(fast);
+        Trace slow = tracer.start("slow");
+        Thread.sleep(10);
+        tracer.finish(slow);
+
+        assertEquals(List.of(slow), tracer.slowTraces());
+        assertEquals(2, tracer.finishedTraces());
+        assertEquals(1, tracer.slowTracesRecorded());
+    }
+
+    @Test
+    void ringBufferKeepsNewest() {
+        Tracer tracer = new Tracer(0, 2);
+        for (int i = 0; i < 5; i++) {
+            tracer.finish(tracer.start("trace " + i));
+        }
+
+        List<String> names = tracer.slowTraces().stream().map(Trace::name).toList();
+        assertEquals(2, names.size());
+        assertTrue(names.containsAll(List.of("trace 3", "trace 4")));
+    }
+
+    @Test
+    void spansGoToCurrentTraceOnly() {
+        Tracer tracer = new Tracer(0, 4);
+        Tracer.record("before", System.nanoTime());
+
+        Trace trace = tracer.start("request");
+        try (Trace.Scope active = trace.activate()) {
+            assertSame(trace, Tracer.current());
+            Tracer.record("inside", System.nanoTime());
+        }
+        Tracer.record("after", System.nanoTime());
+        tracer.finish(trace);
+        trace.record("late", System.nanoTime());
+
+        assertNull(Tracer.current());
+        assertEquals(List.of("inside"), trace.spans().stream().map(Span::name).toList());
+    }
+
+    @Test
+    void propagatingExecutorCarriesTrace() throws InterruptedException {
+        Tracer tracer = new Tracer(0, 4);
+        ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("io").factory());
+        Trace trace = tracer.start("request");
+        try (Trace.Scope active = trace.activate()) {
+            Tracer.propagating(executor).execute(() -> Tracer.record("dao.call", System.nanoTime()));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        Span span = trace.spans().getFirst();
+        assertEquals("dao.call", span.name());
+        assertEquals("io", span.thread());
+    }
+
+    @Test
+    void unnamedVirtualThreadsNamedById() throws InterruptedException {
+        Tracer tracer = new Tracer(0, 4);
+        Trace trace = tracer.start("request");
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try (Trace.Scope active = trace.activate()) {
+                Tracer.record("dao.call", System.nanoTime());
+            }
+        });
+        thread.join();
+
+        assertEquals("virtual-" + thread.threadId(), trace.spans().getFirst().thread());
+    }
+
+    @Test
+    void describeIndentsEnclosedSpans() {
+        Tracer tracer = new Tracer(0, 4);
+        Trace trace = tracer.start("WS MAKE_MOVE");
+        long start = System.nanoTime();
+        trace.record("dao.game.getGame", start + 1_000, start + 2_000);
+        trace.record("command", start, start + 5_000);
+        trace.record("broadcast.move", start + 6_000, start + 7_000);
+        trace.outcome("Error: not your turn");
+        tracer.finish(trace);
+
+        String[] lines = trace.describe().split("\n");
+        assertTrue(lines[0].startsWith("WS MAKE_MOVE "));
+        assertTrue(lines[0].contains("(Error: not your turn)"));
+        assertTrue(lines[1].startsWith("  +") && lines[1].contains(" command "));
+        assertTrue(lines[2].startsWith("    +") && lines[2].contains(" dao.game.getGame "));
+        assertTrue(lines[3].startsWith("  +") && lines[3].contains(" broadcast.move "));
+    }
+
+    @Test
+    void spansCappedPerTrace() {
+        Tracer tracer = new Tracer(0, 1);
+        Trace trace = tracer.start("busy");
+        for (int i = 0; i < Trace.MAX_SPANS + 3; i++) {
+            trace.record("step", System.nanoTime());
+        }
+        tracer.finish(trace);
+
+        assertEquals(Trace.MAX_SPANS, trace.spans().size());
+        assertTrue(trace.describe().contains("3 more spans not recorded"));
+    }
+}
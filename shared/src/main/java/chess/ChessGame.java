@@ -13,6 +13,7 @@ public class ChessGame {
     private TeamColor teamTurn;
     private ChessBoard board;
     private ChessMove lastMove;
+    private int ply;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -41,6 +42,55 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Rules-based state of the game from the point of view of the team to move.
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
+    /**
+     * @return the number of half-moves made in this game
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    public GameStatus getStatus() {
+        if (isInCheckmate(teamTurn)) {
+            return GameStatus.CHECKMATE;
+        }
+        if (isInStalemate(teamTurn)) {
+            return GameStatus.STALEMATE;
+        }
+        if (isInCheck(teamTurn)) {
+            return GameStatus.CHECK;
+        }
+        return GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the piece placement and the team to move.
+     * Two games reached by the same moves produce the same hash on any machine,
+     * which lets a client confirm that a move applied locally matches the server's board.
+     */
+    public long positionHash() {
+        long hash = 0xcbf29ce484222325L;
+        for (int row = 1; row <= 8; row++) {
+            for (int column = 1; column <= 8; column++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, column));
+                int code = piece == null ? 0
+                        : 1 + piece.getTeamColor().ordinal() * ChessPiece.PieceType.values().length
+                        + piece.getPieceType().ordinal();
+                hash = (hash ^ code) * 0x100000001b3L;
+            }
+        }
+        return (hash ^ teamTurn.ordinal()) * 0x100000001b3L;
+    }
+
     /**
      * Calculates all valid moves for a piece at the given position.
      * This method considers the current game state, including check situations.
@@ -225,6 +275,7 @@ public class ChessGame {
     private void updateGameState(ChessPiece piece, ChessMove move) {
         setLastMove(move);
         board.setLastMove(move);
+        ply++;
         teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
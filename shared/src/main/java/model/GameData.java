@@ -2,5 +2,43 @@ package model;
 
 import chess.ChessGame;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {}
+/**
+ * @param status where the game is in its life; games built without one are {@link GameStatus#OPEN} while a seat
+ *               is free and {@link GameStatus#ACTIVE} once both are taken
+ * @param result how the game ended, or null until it is finished
+ */
+public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                       int version, GameStatus status, GameResult result) {
 
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                    int version) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, version,
+                whiteUsername != null && blackUsername != null ? GameStatus.ACTIVE : GameStatus.OPEN, null);
+    }
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, 0);
+    }
+
+    public boolean isFinished() {
+        return status == GameStatus.FINISHED;
+    }
+
+    public GameData finish(GameResult result) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, version, GameStatus.FINISHED,
+                result);
+    }
+
+    /**
+     * @return this game finished if its board is in checkmate or stalemate, otherwise this game unchanged
+     */
+    public GameData withBoardOutcome() {
+        return switch (game.getStatus()) {
+            // The side to move is the one that has been mated
+            case CHECKMATE -> finish(game.getTeamTurn() == ChessGame.TeamColor.WHITE
+                    ? GameResult.BLACK_WON : GameResult.WHITE_WON);
+            case STALEMATE -> finish(GameResult.DRAW);
+            default -> this;
+        };
+    }
+}
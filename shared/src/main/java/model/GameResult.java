@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * How a finished game ended.
+ */
+public enum GameResult {
+    WHITE_WON,
+    BLACK_WON,
+    DRAW
+}
@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * Where a game is in its life: waiting for players, being played, or over.
+ */
+public enum GameStatus {
+    OPEN,
+    ACTIVE,
+    FINISHED
+}
@@ -0,0 +1,11 @@
+package result;
+
+import model.GameData;
+
+public record GetGameResult(GameData game) {
+    public GetGameResult {
+        if (game == null) {
+            throw new IllegalArgumentException("Game cannot be null");
+        }
+    }
+}
@@ -17,6 +17,8 @@ public class UserGameCommand {
     private final Integer gameID;
     private ChessMove move;
     private String move1;
+    private Boolean acceptsMoveDeltas;
+    private Long lastSequence;
 
 
     public UserGameCommand(CommandType commandType, String authToken, Integer gameID) {
@@ -29,7 +31,9 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        SYNC,
+        RESUME
     }
 
     public CommandType getCommandType() {
@@ -57,6 +61,24 @@ public class UserGameCommand {
         this.move1 = move;
     }
 
+    // Set on CONNECT by clients that can apply MOVE deltas instead of receiving a LOAD_GAME after every move
+    public void setAcceptsMoveDeltas(boolean acceptsMoveDeltas) {
+        this.acceptsMoveDeltas = acceptsMoveDeltas;
+    }
+
+    public boolean acceptsMoveDeltas() {
+        return Boolean.TRUE.equals(acceptsMoveDeltas);
+    }
+
+    // Set on RESUME to the sequence number of the last game message the client received
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
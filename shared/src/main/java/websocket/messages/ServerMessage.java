@@ -1,6 +1,7 @@
 package websocket.messages;
 
 import chess.ChessGame;
+import chess.ChessMove;
 
 import java.util.Objects;
 
@@ -9,11 +10,18 @@ public class ServerMessage {
     private String message;
     private String errorMessage;
     private Object game;  // Changed to Object to allow flexibility
+    private ChessMove move;
+    private Integer ply;
+    private Long positionHash;
+    private ChessGame.GameStatus status;
+    // Position of this message in its game's stream; transport metadata, so not part of equals
+    private Long sequence;
 
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        MOVE
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -52,6 +60,38 @@ public class ServerMessage {
         return this.game;
     }
 
+    // A MOVE message carries only the move and enough state for the client to check it applied it correctly
+    public void setMoveDelta(ChessMove move, int ply, long positionHash, ChessGame.GameStatus status) {
+        this.move = move;
+        this.ply = ply;
+        this.positionHash = positionHash;
+        this.status = status;
+    }
+
+    public ChessMove getMove() {
+        return this.move;
+    }
+
+    public Integer getPly() {
+        return this.ply;
+    }
+
+    public Long getPositionHash() {
+        return this.positionHash;
+    }
+
+    public ChessGame.GameStatus getStatus() {
+        return this.status;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Long getSequence() {
+        return this.sequence;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -64,11 +104,15 @@ public class ServerMessage {
         return getServerMessageType() == that.getServerMessageType() &&
                 Objects.equals(message, that.message) &&
                 Objects.equals(errorMessage, that.errorMessage) &&
-                Objects.equals(game, that.game);
+                Objects.equals(game, that.game) &&
+                Objects.equals(move, that.move) &&
+                Objects.equals(ply, that.ply) &&
+                Objects.equals(positionHash, that.positionHash) &&
+                status == that.status;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getServerMessageType(), message, errorMessage, game);
+        return Objects.hash(getServerMessageType(), message, errorMessage, game, move, ply, positionHash, status);
     }
 }
\ No newline at end of file